@@ -0,0 +1,202 @@
+package com.twitchliveloadout;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.twitchliveloadout.fights.Fight;
+import com.twitchliveloadout.fights.FightStateManager;
+import com.twitchliveloadout.fights.FightStatisticEntry;
+import com.twitchliveloadout.items.CollectionLogManager;
+import com.twitchliveloadout.twitch.TwitchState;
+import com.twitchliveloadout.twitch.TwitchStateCompressionTuner;
+import com.twitchliveloadout.ui.CanvasListener;
+import net.runelite.api.Client;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.NPC;
+import net.runelite.api.Player;
+import net.runelite.client.game.ItemManager;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+/**
+ * Synthetic worst-case data for the benchmarks, where the RuneLite dependencies are mocked.
+ */
+public class BenchmarkFixtures
+{
+	public final static int BANK_ITEM_AMOUNT = 5000;
+	public final static int BANK_TAB_ITEM_AMOUNT = 500;
+	public final static int COLLECTION_LOG_TAB_AMOUNT = 5;
+	public final static int COLLECTION_LOG_CATEGORY_AMOUNT = 60; // per tab
+	public final static int COLLECTION_LOG_ITEM_AMOUNT = 8; // per category
+	public final static int FIGHT_AMOUNT = 10;
+	public final static int FINISHED_SESSION_AMOUNT = 1000; // per fight
+	public final static int SKILL_AMOUNT = 24;
+
+	public static TwitchLiveLoadoutPlugin createPlugin()
+	{
+		final TwitchLiveLoadoutPlugin plugin = mock(TwitchLiveLoadoutPlugin.class, RETURNS_DEEP_STUBS);
+
+		doReturn(true).when(plugin).isLoggedIn();
+		doReturn(true).when(plugin).isLoggedIn(anyBoolean());
+
+		return plugin;
+	}
+
+	public static TwitchLiveLoadoutConfig createConfig()
+	{
+		final TwitchLiveLoadoutConfig config = mock(TwitchLiveLoadoutConfig.class, CALLS_REAL_METHODS);
+
+		doReturn(true).when(config).syncEnabled();
+		doReturn(true).when(config).bankEnabled();
+		doReturn(BANK_ITEM_AMOUNT).when(config).bankItemsAmount();
+		doReturn(true).when(config).collectionLogEnabled();
+		doReturn(true).when(config).fightStatisticsEnabled();
+
+		return config;
+	}
+
+	public static Client createClient()
+	{
+		final Client client = mock(Client.class);
+		final Player localPlayer = mock(Player.class);
+
+		doReturn("Streamer").when(localPlayer).getName();
+		doReturn(localPlayer).when(client).getLocalPlayer();
+		doReturn(BANK_TAB_ITEM_AMOUNT).when(client).getVarbitValue(anyInt());
+
+		return client;
+	}
+
+	public static ItemManager createItemManager()
+	{
+		final ItemManager itemManager = mock(ItemManager.class);
+		final ItemComposition itemComposition = mock(ItemComposition.class);
+
+		doReturn(-1).when(itemComposition).getPlaceholderTemplateId();
+		doReturn(itemComposition).when(itemManager).getItemComposition(anyInt());
+		doReturn(1000).when(itemManager).getItemPrice(anyInt());
+
+		return itemManager;
+	}
+
+	public static TwitchState createTwitchState(TwitchLiveLoadoutPlugin plugin, TwitchLiveLoadoutConfig config)
+	{
+		return createTwitchState(plugin, config, new TwitchStateCompressionTuner());
+	}
+
+	public static TwitchState createTwitchState(TwitchLiveLoadoutPlugin plugin, TwitchLiveLoadoutConfig config, TwitchStateCompressionTuner compressionTuner)
+	{
+		final TwitchState twitchState = new TwitchState(plugin, config, mock(CanvasListener.class), new Gson(), compressionTuner);
+		final Item[] inventoryItems = createItems(28, 0);
+		final Item[] equipmentItems = createItems(14, 100);
+		final Item[] bankItems = createItems(BANK_ITEM_AMOUNT, 1000);
+		final int[] bankTabAmounts = new int[9];
+		final int[] skillValues = new int[SKILL_AMOUNT];
+
+		for (int tabIndex = 0; tabIndex < bankTabAmounts.length; tabIndex++)
+		{
+			bankTabAmounts[tabIndex] = BANK_TAB_ITEM_AMOUNT;
+		}
+
+		for (int skillIndex = 0; skillIndex < SKILL_AMOUNT; skillIndex++)
+		{
+			skillValues[skillIndex] = 13034431 + skillIndex;
+		}
+
+		twitchState.setPlayerName("Streamer");
+		twitchState.setAccountHash(1234567890L);
+		twitchState.setSkillExperiences(skillValues);
+		twitchState.setBoostedSkillLevels(skillValues);
+		twitchState.setInventoryItems(inventoryItems, 28000);
+		twitchState.setEquipmentItems(equipmentItems, 14000);
+		twitchState.setBankItems(bankItems, bankTabAmounts);
+		twitchState.setBankItemsPrice(5000000000L);
+		twitchState.setCollectionLog(createCollectionLog());
+
+		return twitchState;
+	}
+
+	public static Item[] createItems(int amount, int firstItemId)
+	{
+		final Item[] items = new Item[amount];
+
+		for (int itemIndex = 0; itemIndex < amount; itemIndex++)
+		{
+			items[itemIndex] = new Item(firstItemId + itemIndex, 1 + (itemIndex % 1000));
+		}
+
+		return items;
+	}
+
+	public static JsonObject createCollectionLog()
+	{
+		final JsonObject collectionLog = new JsonObject();
+		int itemId = 20000;
+
+		for (int tabIndex = 0; tabIndex < COLLECTION_LOG_TAB_AMOUNT; tabIndex++)
+		{
+			final JsonObject tabLog = new JsonObject();
+
+			for (int categoryIndex = 0; categoryIndex < COLLECTION_LOG_CATEGORY_AMOUNT; categoryIndex++)
+			{
+				final JsonObject categoryLog = new JsonObject();
+				final JsonObject counters = new JsonObject();
+				final JsonArray items = new JsonArray();
+
+				counters.addProperty("Kills", 1000 + categoryIndex);
+
+				for (int itemIndex = 0; itemIndex < COLLECTION_LOG_ITEM_AMOUNT; itemIndex++)
+				{
+					final JsonArray item = new JsonArray();
+					item.add(itemId++);
+					item.add(itemIndex % 3);
+					items.add(item);
+				}
+
+				categoryLog.add(CollectionLogManager.COUNTERS_KEY_NAME, counters);
+				categoryLog.add(CollectionLogManager.ITEMS_KEY_NAME, items);
+				tabLog.add("Category "+ categoryIndex, categoryLog);
+			}
+
+			collectionLog.add("Tab "+ tabIndex, tabLog);
+		}
+
+		return collectionLog;
+	}
+
+	public static FightStateManager createFightStateManager(TwitchLiveLoadoutPlugin plugin, TwitchLiveLoadoutConfig config, Client client)
+	{
+		final FightStateManager fightStateManager = new FightStateManager(plugin, config, client);
+
+		for (int fightIndex = 0; fightIndex < FIGHT_AMOUNT; fightIndex++)
+		{
+			final NPC actor = mock(NPC.class);
+
+			doReturn("Boss "+ fightIndex).when(actor).getName();
+			doReturn(fightIndex).when(actor).getId();
+			doReturn(100 + fightIndex).when(actor).getCombatLevel();
+
+			fightStateManager.createFight(actor);
+			final Fight fight = fightStateManager.getFight(actor);
+
+			for (int sessionIndex = 0; sessionIndex < FINISHED_SESSION_AMOUNT; sessionIndex++)
+			{
+				fight.ensureSession(actor).addInteractingTicks(50);
+
+				for (FightStatisticEntry statisticEntry : FightStatisticEntry.values())
+				{
+					fight.ensureStatistic(actor, statisticEntry).registerHit(25);
+					fight.ensureStatistic(actor, statisticEntry).registerMiss(0);
+				}
+
+				fight.finishSession(actor);
+				fight.increaseSessionCounter();
+			}
+		}
+
+		return fightStateManager;
+	}
+}
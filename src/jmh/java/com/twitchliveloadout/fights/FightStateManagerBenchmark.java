@@ -0,0 +1,38 @@
+package com.twitchliveloadout.fights;
+
+import com.google.gson.JsonObject;
+import com.twitchliveloadout.BenchmarkFixtures;
+import com.twitchliveloadout.TwitchLiveLoadoutConfig;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FightStateManagerBenchmark
+{
+	private FightStateManager fightStateManager;
+
+	@Setup
+	public void setUp()
+	{
+		final TwitchLiveLoadoutPlugin plugin = BenchmarkFixtures.createPlugin();
+		final TwitchLiveLoadoutConfig config = BenchmarkFixtures.createConfig();
+
+		fightStateManager = BenchmarkFixtures.createFightStateManager(plugin, config, BenchmarkFixtures.createClient());
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		fightStateManager.shutDown();
+	}
+
+	@Benchmark
+	public JsonObject getFightStatisticsState()
+	{
+		return fightStateManager.getFightStatisticsState();
+	}
+}
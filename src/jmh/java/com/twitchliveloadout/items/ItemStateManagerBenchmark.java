@@ -0,0 +1,45 @@
+package com.twitchliveloadout.items;
+
+import com.twitchliveloadout.BenchmarkFixtures;
+import com.twitchliveloadout.TwitchLiveLoadoutConfig;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import com.twitchliveloadout.twitch.TwitchState;
+import net.runelite.api.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ItemStateManagerBenchmark
+{
+	private ItemStateManager itemStateManager;
+	private Item[] bankItems;
+	private int depositedQuantity = 0;
+
+	@Setup
+	public void setUp()
+	{
+		final TwitchLiveLoadoutPlugin plugin = BenchmarkFixtures.createPlugin();
+		final TwitchLiveLoadoutConfig config = BenchmarkFixtures.createConfig();
+		final TwitchState twitchState = BenchmarkFixtures.createTwitchState(plugin, config);
+
+		itemStateManager = new ItemStateManager(plugin, twitchState, BenchmarkFixtures.createClient(), BenchmarkFixtures.createItemManager(), config);
+		bankItems = BenchmarkFixtures.createItems(BenchmarkFixtures.BANK_ITEM_AMOUNT, 1000);
+	}
+
+	@Benchmark
+	public void setSlicedBankItems()
+	{
+		itemStateManager.setSlicedBankItems(bankItems);
+	}
+
+	@Benchmark
+	public void setSlicedBankItemsAfterDeposit()
+	{
+		// change a single slot to measure the incremental update of the bank index
+		bankItems[0] = new Item(bankItems[0].getId(), ++depositedQuantity);
+		itemStateManager.setSlicedBankItems(bankItems);
+	}
+}
@@ -0,0 +1,49 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.twitchliveloadout.BenchmarkFixtures;
+import com.twitchliveloadout.TwitchLiveLoadoutConfig;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import com.twitchliveloadout.ui.CanvasListener;
+import net.runelite.client.chat.ChatMessageManager;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TwitchApiBenchmark
+{
+	private TwitchApi twitchApi;
+	private JsonObject state;
+
+	@Setup
+	public void setUp()
+	{
+		final TwitchLiveLoadoutPlugin plugin = BenchmarkFixtures.createPlugin();
+		final TwitchLiveLoadoutConfig config = BenchmarkFixtures.createConfig();
+		final TwitchSyncCoordinator syncCoordinator = new TwitchSyncCoordinator(plugin, mock(CanvasListener.class));
+		final TwitchStateCompressionTuner compressionTuner = new TwitchStateCompressionTuner();
+		final TwitchState twitchState = BenchmarkFixtures.createTwitchState(plugin, config, compressionTuner);
+
+		twitchApi = new TwitchApi(plugin, BenchmarkFixtures.createClient(), config, mock(ChatMessageManager.class), new OkHttpClient(), new Gson(), compressionTuner, syncCoordinator);
+		state = twitchState.getFilteredState();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		twitchApi.shutDown();
+	}
+
+	@Benchmark
+	public String compressState()
+	{
+		return twitchApi.compressState(twitchApi.encodeWireFormat(state));
+	}
+}
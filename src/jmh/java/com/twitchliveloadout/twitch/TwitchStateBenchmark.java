@@ -0,0 +1,44 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonObject;
+import com.twitchliveloadout.BenchmarkFixtures;
+import com.twitchliveloadout.TwitchLiveLoadoutConfig;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TwitchStateBenchmark
+{
+	private TwitchState twitchState;
+
+	@Setup
+	public void setUp()
+	{
+		final TwitchLiveLoadoutPlugin plugin = BenchmarkFixtures.createPlugin();
+		final TwitchLiveLoadoutConfig config = BenchmarkFixtures.createConfig();
+
+		twitchState = BenchmarkFixtures.createTwitchState(plugin, config);
+	}
+
+	@Benchmark
+	public JsonObject getFilteredState()
+	{
+		return twitchState.getFilteredState();
+	}
+
+	/**
+	 * Rotate through all the cyclic states to include every slice of the bank and collection log.
+	 */
+	@Benchmark
+	public JsonObject addCyclicState()
+	{
+		final JsonObject state = twitchState.addCyclicState(new JsonObject());
+		twitchState.nextCyclicState();
+
+		return state;
+	}
+}
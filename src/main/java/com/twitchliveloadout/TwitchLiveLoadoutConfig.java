@@ -133,6 +133,71 @@ public interface TwitchLiveLoadoutConfig extends Config
 		return 0;
 	}
 
+	@ConfigItem(
+			keyName = "deltaSyncEnabled",
+			name = "Only sync changes",
+			description = "Only send the information that changed since the last message, with a full update at the configured interval.",
+			position = 4,
+			section = syncingSection
+	)
+	default boolean deltaSyncEnabled()
+	{
+		return false;
+	}
+
+	@Range(
+			min = 5,
+			max = 5 * 60
+	)
+	@ConfigItem(
+			keyName = "deltaSyncKeyframeInterval",
+			name = "Full update interval",
+			description = "The amount of seconds between full updates when only syncing changes.",
+			position = 6,
+			section = syncingSection
+	)
+	@Units(Units.SECONDS)
+	default int deltaSyncKeyframeInterval()
+	{
+		return 30;
+	}
+
+	@ConfigItem(
+			keyName = "dictionaryCompressionEnabled",
+			name = "Dictionary compression",
+			description = "Compress with a dictionary of common data to fit more bank and collection log items in each update.",
+			position = 8,
+			section = syncingSection
+	)
+	default boolean dictionaryCompressionEnabled()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "compactWireFormatEnabled",
+			name = "Compact format",
+			description = "Send items and skills in a compact binary format to fit more bank and collection log items in each update.",
+			position = 10,
+			section = syncingSection
+	)
+	default boolean compactWireFormatEnabled()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "journalEnabled",
+			name = "Record journal",
+			description = "Record all sent states and received marketplace data in the RuneLite folder to replay them for troubleshooting.",
+			position = 12,
+			section = syncingSection
+	)
+	default boolean journalEnabled()
+	{
+		return false;
+	}
+
 	@ConfigSection(
 			name = "Items",
 			description = "Syncing of items in inventory, equipment and bank.",
@@ -37,7 +37,10 @@ import com.twitchliveloadout.skills.SkillStateManager;
 import com.twitchliveloadout.twitch.TwitchApi;
 import com.twitchliveloadout.twitch.TwitchSegmentType;
 import com.twitchliveloadout.twitch.TwitchState;
+import com.twitchliveloadout.twitch.TwitchStateCompressionTuner;
 import com.twitchliveloadout.twitch.TwitchStateEntry;
+import com.twitchliveloadout.twitch.TwitchSyncCoordinator;
+import com.twitchliveloadout.twitch.TwitchSyncMetric;
 import com.twitchliveloadout.ui.CanvasListener;
 import com.twitchliveloadout.utilities.AccountType;
 import lombok.Getter;
@@ -64,6 +67,7 @@ import okhttp3.OkHttpClient;
 
 import javax.inject.Inject;
 import java.awt.image.BufferedImage;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.EnumSet;
@@ -146,6 +150,7 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	/**
 	 * Twitch Configuration Service API end-point helpers.
 	 */
+	@Getter
 	private TwitchApi twitchApi;
 
 	/**
@@ -204,6 +209,16 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	 */
 	private CanvasListener canvasListener = null;
 
+	/**
+	 * The state version and cyclic slice of the last scheduled state to skip building the same state again.
+	 * It is still rebuilt after a while, because a few parts are not versioned (e.g. the connection status).
+	 */
+	private final static int MAX_UNCHANGED_STATE_DELAY = 5 * 1000; // ms
+	private long lastScheduledStateVersion = -1;
+	private TwitchStateEntry lastScheduledCyclicEntry = null;
+	private int lastScheduledCyclicSliceIndex = -1;
+	private Instant lastScheduledStateTime = null;
+
 	/**
 	 * Temporary flags to disable features while still in staging
 	 */
@@ -262,8 +277,9 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	private void initializeTwitch()
 	{
 		try {
-			twitchState = new TwitchState(this, config, canvasListener, gson);
-			twitchApi = new TwitchApi(this, client, config, chatMessageManager, httpClient);
+			final TwitchStateCompressionTuner compressionTuner = new TwitchStateCompressionTuner();
+			twitchState = new TwitchState(this, config, canvasListener, gson, compressionTuner);
+			twitchApi = new TwitchApi(this, client, config, chatMessageManager, httpClient, gson, compressionTuner, new TwitchSyncCoordinator(this, canvasListener));
 		} catch (Exception exception) {
 			log.warn("An error occurred when initializing Twitch: ", exception);
 		}
@@ -344,8 +360,8 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	private void shutDownTwitch()
 	{
 		try {
-			// only the API requires dedicated shutdown
 			twitchApi.shutDown();
+			twitchState.shutDown();
 		} catch (Exception exception) {
 			log.warn("An error occurred when shutting down Twitch: ", exception);
 		}
@@ -385,15 +401,42 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	{
 		try {
 
+			// guard: only one of the clients syncing to the same channel builds and sends the state
+			if (!twitchApi.updateSyncLeadership())
+			{
+				return;
+			}
+
+			// guard: skip building states while PubSub keeps failing
+			if (!twitchApi.isPubSubAvailable())
+			{
+				return;
+			}
+
 			// guard: check if enough time has passed and other conditions are valid
 			if (!twitchApi.canScheduleState())
 			{
 				return;
 			}
 
+			// the state version is bumped on every change, which is a lot cheaper
+			// than serializing the state twice to detect changes
+			final long stateVersion = twitchState.getStateVersion();
+			final TwitchStateEntry cyclicEntry = twitchState.getCurrentCyclicEntry();
+			final int cyclicSliceIndex = twitchState.getCurrentCyclicSliceIndex();
+
+			// guard: skip building the same state again when nothing changed and the cyclic state did not move on
+			if (stateVersion == lastScheduledStateVersion
+				&& cyclicEntry == lastScheduledCyclicEntry
+				&& cyclicSliceIndex == lastScheduledCyclicSliceIndex
+				&& Instant.now().isBefore(lastScheduledStateTime.plusMillis(MAX_UNCHANGED_STATE_DELAY)))
+			{
+				return;
+			}
+
+			final long stateBuildStartNanos = System.nanoTime();
 			final JsonObject filteredState = twitchState.getFilteredState();
-			final String filteredStateString = filteredState.toString();
-			final String newFilteredStateString = twitchState.getFilteredState().toString();
+			twitchApi.getSyncMetrics().recordSince(TwitchSyncMetric.STATE_BUILD, stateBuildStartNanos);
 
 			// we will not verify whether the set was successful here
 			// because it is possible that the request is being delayed
@@ -401,11 +444,15 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 			// also, it is safe to schedule this on the client thread, because
 			// the actual request is done on another thread!
 			twitchApi.scheduleBroadcasterState(filteredState);
+			lastScheduledStateVersion = stateVersion;
+			lastScheduledCyclicEntry = cyclicEntry;
+			lastScheduledCyclicSliceIndex = cyclicSliceIndex;
+			lastScheduledStateTime = Instant.now();
 
 			// guard: check if the state has changed in the mean time,
 			// because the request takes some time, in this case we will
 			// not acknowledge the change
-			if (!filteredStateString.equals(newFilteredStateString))
+			if (stateVersion != twitchState.getStateVersion())
 			{
 				return;
 			}
@@ -428,29 +475,20 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	public void syncFightStatisticsState()
 	{
 		try {
-			if (shouldTrackFightStatistics())
+
+			// guard: only the sync leader builds the state
+			if (!twitchApi.isSyncLeader())
 			{
-				JsonObject fightStatistics = fightStateManager.getFightStatisticsState();
-				twitchState.setFightStatistics(fightStatistics);
+				return;
 			}
-		} catch (Exception exception) {
-			logSupport("Could not update the fight statistics due to the following error: ", exception);
-		}
-	}
 
-	/**
-	 * Polling mechanism to update the quests list
-	 */
-	@Schedule(period = 30, unit = ChronoUnit.SECONDS, asynchronous = true)
-	public void updateQuests()
-	{
-		try {
-			if (config.questsEnabled())
+			if (shouldTrackFightStatistics())
 			{
-				runOnClientThread(() -> questManager.updateQuests());
+				// the state is built by the fight aggregator thread once the events before it are applied
+				fightStateManager.requestFightStatisticsState(twitchState::setFightStatistics);
 			}
 		} catch (Exception exception) {
-			logSupport("Could not sync quests due to the following error: ", exception);
+			logSupport("Could not update the fight statistics due to the following error: ", exception);
 		}
 	}
 
@@ -518,6 +556,13 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	public void updateMarketplaceStreamerProducts()
 	{
 		try {
+
+			// guard: only the sync leader sends requests to Twitch
+			if (!twitchApi.isSyncLeader())
+			{
+				return;
+			}
+
 			if (config.syncEnabled())
 			{
 				twitchApi.fetchAsyncConfigurationSegment(TwitchSegmentType.BROADCASTER);
@@ -540,6 +585,13 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	public void updateMarketplaceEbsProducts()
 	{
 		try {
+
+			// guard: only the sync leader sends requests to Twitch
+			if (!twitchApi.isSyncLeader())
+			{
+				return;
+			}
+
 			if (config.marketplaceEnabled())
 			{
 				// update the EBS products
@@ -557,6 +609,13 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	public void fetchMarketplaceTransactions()
 	{
 		try {
+
+			// guard: only the sync leader sends requests to Twitch
+			if (!twitchApi.isSyncLeader())
+			{
+				return;
+			}
+
 			if (config.marketplaceEnabled())
 			{
 				// get new transactions from Twitch
@@ -820,6 +879,11 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 				fightStateManager.onGameTick();
 			}
 
+			if (config.questsEnabled())
+			{
+				questManager.onGameTick();
+			}
+
 			pluginPanel.onGameTick();
 		} catch (Exception exception) {
 			logSupport("Could not handle game tick event: ", exception);
@@ -852,10 +916,10 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 			twitchState.setAccountHash(client.getAccountHash());
 			twitchState.setAccountType(getAccountType());
 
-			// update quests when logged in
+			// read the quests again when logged in, because it can be another account
 			if (gameStateChanged.getGameState() == GameState.LOGGED_IN)
 			{
-				updateQuests();
+				questManager.resetQuests();
 			}
 		} catch (Exception exception) {
 			log.warn("Could not handle game state event: ", exception);
@@ -909,6 +973,11 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 			{
 				invocationsManager.onScriptPostFired(scriptPostFired);
 			}
+
+			if (config.questsEnabled())
+			{
+				questManager.onScriptPostFired(scriptPostFired);
+			}
 		} catch (Exception exception) {
 			logSupport("Could not handle script post fired event:", exception);
 		}
@@ -922,11 +991,29 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 			{
 				collectionLogManager.onVarbitChanged(varbitChanged);
 			}
+
+			if (config.questsEnabled())
+			{
+				questManager.onVarbitChanged(varbitChanged);
+			}
 		} catch (Exception exception) {
 			logSupport("Could not handle varbit change event: ", exception);
 		}
 	}
 
+	@Subscribe
+	public void onWidgetLoaded(WidgetLoaded widgetLoaded)
+	{
+		try {
+			if (config.questsEnabled())
+			{
+				questManager.onWidgetLoaded(widgetLoaded);
+			}
+		} catch (Exception exception) {
+			logSupport("Could not handle widget loaded event: ", exception);
+		}
+	}
+
 	@Subscribe
 	public void onConfigChanged(ConfigChanged configChanged)
 	{
@@ -945,6 +1032,10 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 				case "syncDelay":
 					twitchApi.clearScheduledBroadcasterStates();
 					break;
+				case "deltaSyncEnabled":
+					// make sure the first message after toggling contains everything
+					twitchApi.requestStateKeyframe();
+					break;
 				case "overlayTopPosition":
 					twitchState.setOverlayTopPosition(config.overlayTopPosition());
 					break;
@@ -954,6 +1045,23 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 				case "twitchTheme":
 					twitchState.setTwitchTheme(config.twitchTheme());
 					break;
+				case "questsEnabled":
+					// the quests are not read while disabled, so read them again
+					runOnClientThread(() -> questManager.resetQuests());
+					break;
+				case "collectionLogFilter":
+				case "collectionLogSkipEmpty":
+					twitchState.compileCollectionLogFilter();
+					break;
+				case "inventoryEnabled":
+				case "equipmentEnabled":
+				case "lootingBagEnabled":
+				case "bankEnabled":
+				case "bankItemsAmount":
+				case "weightEnabled":
+					// apply the new settings on the next container change, even when its items are identical
+					itemStateManager.clearContainerItems();
+					break;
 				case "marketplaceEnabled":
 					pluginPanel.getMarketplacePanel().updateTexts();
 
@@ -966,6 +1074,9 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 					break;
 			}
 
+			// the filtered state depends on the settings, which are not part of the state version
+			lastScheduledStateVersion = -1;
+
 			// somehow when in the settings tab the focus is lost, which means
 			// that when changing configs the focus stays lost and it hard to get feedback
 			// whether a setting is changed correctly. By overriding the focus flag when
@@ -1125,9 +1236,21 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	public String getConfiguration(String configKey)
 	{
 		try {
-			String playerName = getPlayerName();
-			String accountIdentifier = getAccountIdentifier();
+			return getConfiguration(getAccountIdentifier(), getPlayerName(), configKey);
+		} catch (Exception exception) {
+			log.warn("Could not get the configuration due to the following error: ", exception);
+		}
+
+		return null;
+	}
 
+	/**
+	 * Get the configuration of a specific account, which does not access the client
+	 * so it can be used from other threads than the client thread as well.
+	 */
+	public String getConfiguration(String accountIdentifier, String playerName, String configKey)
+	{
+		try {
 			if (playerName == null)
 			{
 				playerName = "unknown";
@@ -1186,7 +1309,7 @@ public class TwitchLiveLoadoutPlugin extends Plugin
 	 * Get the account identifier based on the account hash and whether there is a world type being used
 	 * which requires the account identifier to be unique as well (in the case of a dedicated OSRS profile save).
 	 */
-	private String getAccountIdentifier() {
+	public String getAccountIdentifier() {
 		String accountHash = Long.toString(client.getAccountHash());
 		String worldTypeIdentifier = getWorldTypeIdentifier();
 
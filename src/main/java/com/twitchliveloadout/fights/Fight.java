@@ -2,12 +2,11 @@ package com.twitchliveloadout.fights;
 
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Actor;
-import net.runelite.api.GameObject;
-import net.runelite.api.NPC;
 
 import java.time.Instant;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -25,6 +24,10 @@ public class Fight {
 	private final ConcurrentHashMap<Actor, FightSession> sessions = new ConcurrentHashMap<>();
 	private final CopyOnWriteArrayList<FightSession> finishedSessions = new CopyOnWriteArrayList<>();
 
+	// The total of all the ongoing and finished sessions, which is updated along with the sessions
+	// instead of summing them again, because there can be a thousand finished sessions per fight.
+	private final FightSession totalSession = new FightSession(this, null);
+
 	// The session counter should not match the finished session list size,
 	// because some finished sessions are not kills / deaths, separate counter for this.
 	// For example when a fight expires due to time it should not register a kill / death.
@@ -36,38 +39,23 @@ public class Fight {
 	private Actor lastActor;
 	private FightSession lastSession;
 
-	public Fight(Actor actor, String actorName, boolean isLocalPlayer)
+	/**
+	 * Create a fight with the actor details that were collected on the client thread,
+	 * because fights are created on the aggregator thread where the client cannot be used.
+	 */
+	public Fight(Actor actor, String actorName, int actorId, FightStateManager.ActorType actorType, int actorCombatLevel)
 	{
 		this.lastActor = actor;
 		this.actorName = actorName;
+		this.actorId = actorId;
+		this.actorType = actorType;
+		this.actorCombatLevel = actorCombatLevel;
 		this.lastSession = ensureSession(actor);
-		this.actorCombatLevel = actor.getCombatLevel();
-
-		if (actor instanceof NPC)
-		{
-			actorId = ((NPC) actor).getId();
-			actorType = FightStateManager.ActorType.NPC;
-		}
-		else if (actor instanceof GameObject)
-		{
-			actorId = ((GameObject) actor).getId();
-			actorType = FightStateManager.ActorType.GAME_OBJECT;
-		}
-		else if (isLocalPlayer)
-		{
-			actorId = -1;
-			actorType = FightStateManager.ActorType.LOCAL_PLAYER;
-		}
-		else
-		{
-			actorId = -1;
-			actorType = FightStateManager.ActorType.PLAYER;
-		}
 	}
 
 	public void queueStatistic(Actor actor, FightStatisticEntry entry, FightStatisticProperty property, int expiryTimeMs)
 	{
-		log.debug("Adding queued statistic: {} - {} - {} - {}", actor.getName(), entry.getKey(), property.getKey(), expiryTimeMs);
+		log.debug("Adding queued statistic: {} - {} - {} - {}", actorName, entry.getKey(), property.getKey(), expiryTimeMs);
 		FightQueuedStatistic queuedStatistic = new FightQueuedStatistic(actor, entry, property, expiryTimeMs);
 		queuedStatistics.add(queuedStatistic);
 		cleanQueuedStatistics();
@@ -162,6 +150,7 @@ public class Fight {
 	public void registerQueuedIdleTicks()
 	{
 		idleTickCounter += idleQueuedTickCounter;
+		totalSession.addIdleTicks(idleQueuedTickCounter);
 		idleQueuedTickCounter = 0;
 	}
 
@@ -187,7 +176,7 @@ public class Fight {
 			return sessions.get(actor);
 		}
 
-		FightSession session = new FightSession(this);
+		FightSession session = new FightSession(this, totalSession);
 		sessions.put(actor, session);
 
 		return session;
@@ -200,51 +189,11 @@ public class Fight {
 
 	public Instant getLastUpdate(boolean updatedAtInfluencerOnly)
 	{
-		Instant maxLastUpdate = null;
-		CopyOnWriteArrayList<FightSession> allSessions = getAllSessions();
-		Iterator<FightSession> allSessionIterator = allSessions.iterator();
-
-		while (allSessionIterator.hasNext())
-		{
-			FightSession session = allSessionIterator.next();
-			Instant lastUpdate = session.getLastUpdate(updatedAtInfluencerOnly);
-
-			if (lastUpdate == null)
-			{
-				continue;
-			}
-
-			if (maxLastUpdate == null || lastUpdate.isAfter(maxLastUpdate))
-			{
-				maxLastUpdate = lastUpdate;
-			}
-		}
-
-		return maxLastUpdate;
+		return totalSession.getLastUpdate(updatedAtInfluencerOnly);
 	}
 
-	public FightSession calculateTotalSession()
+	public FightSession getTotalSession()
 	{
-		FightSession totalSession = new FightSession(this);
-		CopyOnWriteArrayList<FightSession> allSessions = getAllSessions();
-		Iterator<FightSession> allSessionIterator = allSessions.iterator();
-
-		totalSession.addIdleTicks(idleTickCounter);
-
-		while (allSessionIterator.hasNext())
-		{
-			FightSession session = allSessionIterator.next();
-			totalSession.addInteractingTicks(session.getInteractingTickCounter());
-
-			for (FightStatisticEntry statisticEntry : FightStatisticEntry.values())
-			{
-				FightStatistic totalStatistic = totalSession.getStatistic(statisticEntry);
-				FightStatistic statistic = session.getStatistic(statisticEntry);
-
-				totalStatistic.addStatistic(statistic);
-			}
-		}
-
 		return totalSession;
 	}
 
@@ -253,7 +202,7 @@ public class Fight {
 		return lastSession;
 	}
 
-	public boolean isIdling(CopyOnWriteArrayList<String> actorNames)
+	public boolean isIdling(List<String> actorNames)
 	{
 		for (String actorName : actorNames)
 		{
@@ -298,7 +247,24 @@ public class Fight {
 		if (finishedSessions.size() > MAX_FINISHED_FIGHT_SESSION_AMOUNT)
 		{
 			log.debug("Removing a finished session due to maximum amount reached...");
-			finishedSessions.remove(0);
+			removeFromTotalSession(finishedSessions.remove(0));
+		}
+	}
+
+	private void removeFromTotalSession(FightSession removedSession)
+	{
+
+		// guard: only go through the other sessions when the first or last update was of the removed session
+		if (!totalSession.removeSession(removedSession))
+		{
+			return;
+		}
+
+		totalSession.resetUpdates();
+
+		for (FightSession session : getAllSessions())
+		{
+			totalSession.addUpdates(session);
 		}
 	}
 
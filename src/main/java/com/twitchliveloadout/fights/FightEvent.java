@@ -0,0 +1,160 @@
+package com.twitchliveloadout.fights;
+
+import net.runelite.api.Actor;
+import net.runelite.api.Skill;
+
+/**
+ * Compact record of an event that changes the fight statistics. The records are allocated once by the
+ * ring buffer and filled in again for every event, so publishing an event does not allocate anything.
+ * All the information that requires the client is collected when the event is published, because the
+ * record is applied later on by the aggregator thread.
+ */
+public class FightEvent
+{
+	public static final int MAX_GRAPHIC_AMOUNT = 8;
+
+	public enum Type {
+		HITSPLAT,
+		ANIMATION,
+		GRAPHIC,
+		STAT_CHANGED,
+		FAKE_XP_DROP,
+		INTERACTING,
+		GAME_TICK,
+		ACTOR_DESPAWNED,
+		DELETE_FIGHT,
+		DELETE_ALL_FIGHTS,
+		CLEAR_SCHEDULED_UPDATES,
+		STATE_REQUEST,
+	}
+
+	/**
+	 * The position in the ring buffer, which is only used by the ring buffer itself.
+	 */
+	long position;
+
+	Type type;
+	long createdAt; // epoch ms
+	Actor actor;
+	String actorName;
+	int actorId;
+	FightStateManager.ActorType actorType;
+	int actorCombatLevel;
+	boolean localPlayer;
+	boolean localPlayerName;
+	boolean player;
+
+	// hitsplats
+	int hitsplatType;
+	int hitsplatAmount;
+	boolean hitsplatMine;
+	boolean smiteActive;
+
+	// animations and skills
+	int animationId;
+	Skill skill;
+	int skillExperience;
+
+	// graphics
+	final int[] graphicIds = new int[MAX_GRAPHIC_AMOUNT];
+	int graphicAmount;
+	boolean multiCombatArea;
+	boolean otherPlayersPresent;
+	int distance;
+
+	// game ticks
+	boolean loggedIn;
+
+	/**
+	 * Data of the event that is not a primitive, such as the actor names of a game tick,
+	 * the fight to delete or the callback of a state request.
+	 */
+	Object payload;
+
+	void reset(Type type)
+	{
+		this.type = type;
+		createdAt = System.currentTimeMillis();
+		actor = null;
+		actorName = null;
+		actorId = -1;
+		actorType = null;
+		actorCombatLevel = 0;
+		localPlayer = false;
+		localPlayerName = false;
+		player = false;
+		hitsplatType = 0;
+		hitsplatAmount = 0;
+		hitsplatMine = false;
+		smiteActive = false;
+		animationId = -1;
+		skill = null;
+		skillExperience = 0;
+		graphicAmount = 0;
+		multiCombatArea = false;
+		otherPlayersPresent = false;
+		distance = 0;
+		loggedIn = false;
+		payload = null;
+	}
+
+	/**
+	 * Clear the references of an applied event, so a slot does not keep an actor in memory.
+	 */
+	void clearReferences()
+	{
+		actor = null;
+		actorName = null;
+		skill = null;
+		payload = null;
+	}
+
+	boolean hasGraphicId(int graphicId)
+	{
+		for (int graphicIndex = 0; graphicIndex < graphicAmount; graphicIndex++)
+		{
+			if (graphicIds[graphicIndex] == graphicId)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Copy the event to keep it after its slot in the ring buffer is released, which is needed for
+	 * graphics as they are handled after a delay.
+	 */
+	FightEvent copy()
+	{
+		final FightEvent event = new FightEvent();
+
+		event.type = type;
+		event.createdAt = createdAt;
+		event.actor = actor;
+		event.actorName = actorName;
+		event.actorId = actorId;
+		event.actorType = actorType;
+		event.actorCombatLevel = actorCombatLevel;
+		event.localPlayer = localPlayer;
+		event.localPlayerName = localPlayerName;
+		event.player = player;
+		event.hitsplatType = hitsplatType;
+		event.hitsplatAmount = hitsplatAmount;
+		event.hitsplatMine = hitsplatMine;
+		event.smiteActive = smiteActive;
+		event.animationId = animationId;
+		event.skill = skill;
+		event.skillExperience = skillExperience;
+		System.arraycopy(graphicIds, 0, event.graphicIds, 0, graphicAmount);
+		event.graphicAmount = graphicAmount;
+		event.multiCombatArea = multiCombatArea;
+		event.otherPlayersPresent = otherPlayersPresent;
+		event.distance = distance;
+		event.loggedIn = loggedIn;
+		event.payload = payload;
+
+		return event;
+	}
+}
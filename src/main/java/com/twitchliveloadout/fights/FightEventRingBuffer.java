@@ -0,0 +1,107 @@
+package com.twitchliveloadout.fights;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring buffer of fight events with multiple publishers and a single consumer.
+ * Publishers claim a slot with a compare-and-set on the tail, fill in the record of that slot and
+ * then publish it by advancing the sequence of the slot. The consumer applies the records in order
+ * and releases each slot for the next lap by advancing its sequence again. The records are reused,
+ * so nothing is allocated per event and a publisher never waits on the consumer.
+ */
+public class FightEventRingBuffer
+{
+	private final FightEvent[] events;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Position of the next event to consume, which is only accessed by the consumer.
+	 */
+	private long head = 0;
+
+	public FightEventRingBuffer(int capacity)
+	{
+		if (Integer.bitCount(capacity) != 1)
+		{
+			throw new IllegalArgumentException("The capacity of the ring buffer should be a power of two.");
+		}
+
+		events = new FightEvent[capacity];
+		sequences = new AtomicLongArray(capacity);
+		mask = capacity - 1;
+
+		for (int index = 0; index < capacity; index++)
+		{
+			events[index] = new FightEvent();
+			sequences.set(index, index);
+		}
+	}
+
+	/**
+	 * Claim the record of the next slot to fill in, which should be followed by {@link #publish(FightEvent)}.
+	 * Returns null when the buffer is full.
+	 */
+	public FightEvent claim(FightEvent.Type type)
+	{
+		long position = tail.get();
+
+		while (true)
+		{
+			final int index = (int) (position & mask);
+			final long sequence = sequences.get(index);
+
+			// guard: the consumer did not release this slot of the previous lap yet
+			if (sequence < position)
+			{
+				return null;
+			}
+
+			if (sequence == position && tail.compareAndSet(position, position + 1))
+			{
+				final FightEvent event = events[index];
+				event.position = position;
+				event.reset(type);
+
+				return event;
+			}
+
+			position = tail.get();
+		}
+	}
+
+	/**
+	 * Publish a claimed record to the consumer. This is a volatile write, so a publisher can
+	 * safely check whether the consumer is waiting for events right after publishing.
+	 */
+	public void publish(FightEvent event)
+	{
+		sequences.set((int) (event.position & mask), event.position + 1);
+	}
+
+	/**
+	 * Get the next published event or null when there is none, which should be followed by
+	 * {@link #release(FightEvent)} once the event is applied.
+	 */
+	public FightEvent peek()
+	{
+		final int index = (int) (head & mask);
+
+		// guard: the next event is not published yet
+		if (sequences.get(index) != head + 1)
+		{
+			return null;
+		}
+
+		return events[index];
+	}
+
+	public void release(FightEvent event)
+	{
+		event.clearReferences();
+		sequences.lazySet((int) (head & mask), head + events.length);
+		head++;
+	}
+}
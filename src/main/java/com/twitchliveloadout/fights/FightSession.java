@@ -1,33 +1,228 @@
 package com.twitchliveloadout.fights;
 
 import java.time.Instant;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.Map;
 
 import static com.twitchliveloadout.fights.FightStateManager.*;
 
+/**
+ * The statistics of a session are stored in a single block of longs instead of an object per statistic,
+ * because a fight can keep a thousand finished sessions. The block starts with a mask of the statistic
+ * entries that were ever updated, followed by a row for each of these entries in the order of the entries.
+ * Each row has the counters, the damages and the first and last update in epoch milliseconds. Entries that
+ * were never updated do not have a row, because most sessions only have damage of the local player.
+ */
 public class FightSession {
+	private final static int HIT_COUNTER_COLUMN = 0;
+	private final static int MISS_COUNTER_COLUMN = 1;
+	private final static int HIT_DAMAGE_COLUMN = 2;
+	private final static int MISS_DAMAGE_COLUMN = 3;
+	private final static int FIRST_UPDATE_COLUMN = 4;
+	private final static int LAST_UPDATE_COLUMN = 5;
+	private final static int COLUMN_AMOUNT = 6;
+	private final static int MASK_INDEX = 0;
+	private final static int FIRST_ROW_INDEX = 1;
+	private final static long NO_UPDATE = 0;
+	private final static FightStatisticEntry[] STATISTIC_ENTRIES = FightStatisticEntry.values();
+
 	private final Fight fight;
 
-	private ConcurrentHashMap<FightStatisticEntry, FightStatistic> statistics = new ConcurrentHashMap<>();
+	/**
+	 * The running total of all the sessions of the fight or null when this is the total session.
+	 */
+	private final FightSession totalSession;
+
+	/**
+	 * Replaced by a larger block when an entry is updated for the first time, so that
+	 * another thread reading the block always sees a mask that matches the rows.
+	 */
+	private volatile long[] statistics = new long[FIRST_ROW_INDEX];
 	private long interactingTickCounter = 0;
 	private long idleTickCounter = 0;
 	private long idleQueuedTickCounter = 0;
 	private boolean finished = false;
 
-	public FightSession(Fight fight)
+	public FightSession(Fight fight, FightSession totalSession)
 	{
 		this.fight = fight;
+		this.totalSession = totalSession;
+	}
+
+	public FightStatistic getStatistic(FightStatisticEntry statisticEntry)
+	{
+		return new FightStatistic(this, statisticEntry);
+	}
+
+	public void registerHit(FightStatisticEntry statisticEntry, int damage)
+	{
+		final long now = System.currentTimeMillis();
 
-		for (FightStatisticEntry statisticEntry : FightStatisticEntry.values())
+		addStatistic(statisticEntry, HIT_COUNTER_COLUMN, HIT_DAMAGE_COLUMN, damage, now);
+		handleStatisticUpdate();
+
+		if (totalSession != null)
 		{
-			statistics.put(statisticEntry, new FightStatistic(this));
+			totalSession.addStatistic(statisticEntry, HIT_COUNTER_COLUMN, HIT_DAMAGE_COLUMN, damage, now);
 		}
 	}
 
-	public FightStatistic getStatistic(FightStatisticEntry statisticEntry)
+	public void registerMiss(FightStatisticEntry statisticEntry, int damage)
+	{
+		final long now = System.currentTimeMillis();
+
+		addStatistic(statisticEntry, MISS_COUNTER_COLUMN, MISS_DAMAGE_COLUMN, damage, now);
+		handleStatisticUpdate();
+
+		if (totalSession != null)
+		{
+			totalSession.addStatistic(statisticEntry, MISS_COUNTER_COLUMN, MISS_DAMAGE_COLUMN, damage, now);
+		}
+	}
+
+	private void addStatistic(FightStatisticEntry statisticEntry, int counterColumn, int damageColumn, int damage, long updatedAt)
+	{
+		final int rowIndex = ensureRowIndex(statisticEntry);
+		final long[] statistics = this.statistics;
+
+		statistics[rowIndex + counterColumn]++;
+		statistics[rowIndex + damageColumn] += damage;
+
+		if (statistics[rowIndex + FIRST_UPDATE_COLUMN] == NO_UPDATE)
+		{
+			statistics[rowIndex + FIRST_UPDATE_COLUMN] = updatedAt;
+		}
+
+		statistics[rowIndex + LAST_UPDATE_COLUMN] = updatedAt;
+	}
+
+	/**
+	 * Subtract the counters of a session that was added to this total session before.
+	 * Returns whether the first or last update of any entry was the one of the removed session,
+	 * in which case they should be determined again with {@link #addUpdates(FightSession)}
+	 * after {@link #resetUpdates()}.
+	 */
+	public boolean removeSession(FightSession session)
+	{
+		final long[] removedStatistics = session.statistics;
+		boolean updatesChanged = false;
+
+		addInteractingTicks(-session.getInteractingTickCounter());
+
+		for (FightStatisticEntry statisticEntry : STATISTIC_ENTRIES)
+		{
+			final int removedRowIndex = getRowIndex(removedStatistics, statisticEntry);
+
+			if (removedRowIndex < 0)
+			{
+				continue;
+			}
+
+			final int rowIndex = ensureRowIndex(statisticEntry);
+			final long[] statistics = this.statistics;
+
+			statistics[rowIndex + HIT_COUNTER_COLUMN] -= removedStatistics[removedRowIndex + HIT_COUNTER_COLUMN];
+			statistics[rowIndex + MISS_COUNTER_COLUMN] -= removedStatistics[removedRowIndex + MISS_COUNTER_COLUMN];
+			statistics[rowIndex + HIT_DAMAGE_COLUMN] -= removedStatistics[removedRowIndex + HIT_DAMAGE_COLUMN];
+			statistics[rowIndex + MISS_DAMAGE_COLUMN] -= removedStatistics[removedRowIndex + MISS_DAMAGE_COLUMN];
+
+			if (statistics[rowIndex + FIRST_UPDATE_COLUMN] == removedStatistics[removedRowIndex + FIRST_UPDATE_COLUMN]
+				|| statistics[rowIndex + LAST_UPDATE_COLUMN] == removedStatistics[removedRowIndex + LAST_UPDATE_COLUMN])
+			{
+				updatesChanged = true;
+			}
+		}
+
+		return updatesChanged;
+	}
+
+	public void resetUpdates()
+	{
+		final long[] statistics = this.statistics;
+
+		for (int rowIndex = FIRST_ROW_INDEX; rowIndex < statistics.length; rowIndex += COLUMN_AMOUNT)
+		{
+			statistics[rowIndex + FIRST_UPDATE_COLUMN] = NO_UPDATE;
+			statistics[rowIndex + LAST_UPDATE_COLUMN] = NO_UPDATE;
+		}
+	}
+
+	/**
+	 * Take the earliest first update and latest last update of each entry of another session.
+	 */
+	public void addUpdates(FightSession session)
+	{
+		final long[] otherStatistics = session.statistics;
+
+		for (FightStatisticEntry statisticEntry : STATISTIC_ENTRIES)
+		{
+			final int otherRowIndex = getRowIndex(otherStatistics, statisticEntry);
+
+			if (otherRowIndex < 0)
+			{
+				continue;
+			}
+
+			final int rowIndex = ensureRowIndex(statisticEntry);
+			final long[] statistics = this.statistics;
+			final long otherFirstUpdate = otherStatistics[otherRowIndex + FIRST_UPDATE_COLUMN];
+			final long otherLastUpdate = otherStatistics[otherRowIndex + LAST_UPDATE_COLUMN];
+
+			if (statistics[rowIndex + FIRST_UPDATE_COLUMN] == NO_UPDATE || (otherFirstUpdate != NO_UPDATE && otherFirstUpdate < statistics[rowIndex + FIRST_UPDATE_COLUMN]))
+			{
+				statistics[rowIndex + FIRST_UPDATE_COLUMN] = otherFirstUpdate;
+			}
+
+			if (otherLastUpdate > statistics[rowIndex + LAST_UPDATE_COLUMN])
+			{
+				statistics[rowIndex + LAST_UPDATE_COLUMN] = otherLastUpdate;
+			}
+		}
+	}
+
+	public long getValueByProperty(FightStatisticEntry statisticEntry, FightStatisticProperty property)
+	{
+		switch (property)
+		{
+			case HIT_COUNTERS:
+				return getValue(statisticEntry, HIT_COUNTER_COLUMN);
+			case MISS_COUNTERS:
+				return getValue(statisticEntry, MISS_COUNTER_COLUMN);
+			case HIT_DAMAGES:
+				return getValue(statisticEntry, HIT_DAMAGE_COLUMN);
+			case MISS_DAMAGES:
+				return getValue(statisticEntry, MISS_DAMAGE_COLUMN);
+			case DURATION_SECONDS:
+				return getDurationSeconds(statisticEntry);
+		}
+
+		return 0;
+	}
+
+	public long getDurationSeconds(FightStatisticEntry statisticEntry)
+	{
+		final long firstUpdate = getValue(statisticEntry, FIRST_UPDATE_COLUMN);
+		final long lastUpdate = getValue(statisticEntry, LAST_UPDATE_COLUMN);
+
+		if (firstUpdate == NO_UPDATE || lastUpdate == NO_UPDATE)
+		{
+			return 0;
+		}
+
+		return toEpochSecond(lastUpdate) - toEpochSecond(firstUpdate);
+	}
+
+	public Instant getFirstUpdate(FightStatisticEntry statisticEntry)
+	{
+		return toInstant(getValue(statisticEntry, FIRST_UPDATE_COLUMN));
+	}
+
+	public Instant getLastUpdate(FightStatisticEntry statisticEntry)
+	{
+		return toInstant(getValue(statisticEntry, LAST_UPDATE_COLUMN));
+	}
+
+	public boolean isEverUpdated(FightStatisticEntry statisticEntry)
 	{
-		return statistics.get(statisticEntry);
+		return getValue(statisticEntry, LAST_UPDATE_COLUMN) != NO_UPDATE;
 	}
 
 	public void handleStatisticUpdate()
@@ -39,6 +234,11 @@ public class FightSession {
 	public void addInteractingTicks(long amount)
 	{
 		interactingTickCounter += amount;
+
+		if (totalSession != null)
+		{
+			totalSession.addInteractingTicks(amount);
+		}
 	}
 
 	public void addIdleTicks(long amount)
@@ -74,15 +274,15 @@ public class FightSession {
 
 	public long getDurationSeconds()
 	{
-		Instant lastUpdate = getLastUpdate();
-		Instant firstUpdate = getFirstUpdate();
+		final long firstUpdate = getFirstUpdateMs();
+		final long lastUpdate = getLastUpdateMs(false);
 
-		if (lastUpdate == null || firstUpdate == null)
+		if (lastUpdate == NO_UPDATE || firstUpdate == NO_UPDATE)
 		{
 			return 0;
 		}
 
-		return getLastUpdate().getEpochSecond() - getFirstUpdate().getEpochSecond() - getIdleDuration();
+		return toEpochSecond(lastUpdate) - toEpochSecond(firstUpdate) - getIdleDuration();
 	}
 
 	public void finish()
@@ -97,20 +297,36 @@ public class FightSession {
 
 	public Instant getFirstUpdate()
 	{
-		Instant minFirstUpdate = null;
+		return toInstant(getFirstUpdateMs());
+	}
 
-		for (Map.Entry<FightStatisticEntry, FightStatistic> entry : statistics.entrySet())
+	public Instant getLastUpdate()
+	{
+		return getLastUpdate(false);
+	}
+
+	public Instant getLastUpdate(boolean updatedAtInfluencerOnly)
+	{
+		return toInstant(getLastUpdateMs(updatedAtInfluencerOnly));
+	}
+
+	private long getFirstUpdateMs()
+	{
+		final long[] statistics = this.statistics;
+		long minFirstUpdate = NO_UPDATE;
+
+		for (FightStatisticEntry statisticEntry : STATISTIC_ENTRIES)
 		{
-			final FightStatisticEntry statisticEntry = entry.getKey();
-			final FightStatistic statistic = entry.getValue();
-			final Instant firstUpdate = statistic.getFirstUpdate();
+			final int rowIndex = getRowIndex(statistics, statisticEntry);
 
-			if (!statisticEntry.isDurationInfluencer() || firstUpdate == null)
+			if (!statisticEntry.isDurationInfluencer() || rowIndex < 0)
 			{
 				continue;
 			}
 
-			if (minFirstUpdate == null || firstUpdate.isBefore(minFirstUpdate))
+			final long firstUpdate = statistics[rowIndex + FIRST_UPDATE_COLUMN];
+
+			if (firstUpdate != NO_UPDATE && (minFirstUpdate == NO_UPDATE || firstUpdate < minFirstUpdate))
 			{
 				minFirstUpdate = firstUpdate;
 			}
@@ -119,22 +335,16 @@ public class FightSession {
 		return minFirstUpdate;
 	}
 
-	public Instant getLastUpdate()
+	private long getLastUpdateMs(boolean updatedAtInfluencerOnly)
 	{
-		return getLastUpdate(false);
-	}
+		final long[] statistics = this.statistics;
+		long maxLastUpdate = NO_UPDATE;
 
-	public Instant getLastUpdate(boolean updatedAtInfluencerOnly)
-	{
-		Instant maxLastUpdate = null;
-
-		for (Map.Entry<FightStatisticEntry, FightStatistic> entry : statistics.entrySet())
+		for (FightStatisticEntry statisticEntry : STATISTIC_ENTRIES)
 		{
-			final FightStatisticEntry statisticEntry = entry.getKey();
-			final FightStatistic statistic = entry.getValue();
-			final Instant lastUpdate = statistic.getLastUpdate();
+			final int rowIndex = getRowIndex(statistics, statisticEntry);
 
-			if (!statisticEntry.isDurationInfluencer() || lastUpdate == null)
+			if (!statisticEntry.isDurationInfluencer() || rowIndex < 0)
 			{
 				continue;
 			}
@@ -144,12 +354,69 @@ public class FightSession {
 				continue;
 			}
 
-			if (maxLastUpdate == null || lastUpdate.isAfter(maxLastUpdate))
-			{
-				maxLastUpdate = lastUpdate;
-			}
+			maxLastUpdate = Math.max(maxLastUpdate, statistics[rowIndex + LAST_UPDATE_COLUMN]);
 		}
 
 		return maxLastUpdate;
 	}
+
+	private long getValue(FightStatisticEntry statisticEntry, int column)
+	{
+		final long[] statistics = this.statistics;
+		final int rowIndex = getRowIndex(statistics, statisticEntry);
+
+		return (rowIndex < 0 ? 0 : statistics[rowIndex + column]);
+	}
+
+	/**
+	 * Get the index of the row of an entry in a block or -1 when the entry was never updated.
+	 */
+	private static int getRowIndex(long[] statistics, FightStatisticEntry statisticEntry)
+	{
+		final long mask = statistics[MASK_INDEX];
+		final long entryBit = 1L << statisticEntry.ordinal();
+
+		if ((mask & entryBit) == 0)
+		{
+			return -1;
+		}
+
+		return FIRST_ROW_INDEX + Long.bitCount(mask & (entryBit - 1)) * COLUMN_AMOUNT;
+	}
+
+	/**
+	 * Get the index of the row of an entry and insert a row when the entry does not have one yet.
+	 */
+	private int ensureRowIndex(FightStatisticEntry statisticEntry)
+	{
+		final long[] statistics = this.statistics;
+		final int rowIndex = getRowIndex(statistics, statisticEntry);
+
+		if (rowIndex >= 0)
+		{
+			return rowIndex;
+		}
+
+		final long mask = statistics[MASK_INDEX];
+		final long entryBit = 1L << statisticEntry.ordinal();
+		final int newRowIndex = FIRST_ROW_INDEX + Long.bitCount(mask & (entryBit - 1)) * COLUMN_AMOUNT;
+		final long[] newStatistics = new long[statistics.length + COLUMN_AMOUNT];
+
+		System.arraycopy(statistics, 0, newStatistics, 0, newRowIndex);
+		System.arraycopy(statistics, newRowIndex, newStatistics, newRowIndex + COLUMN_AMOUNT, statistics.length - newRowIndex);
+		newStatistics[MASK_INDEX] = mask | entryBit;
+		this.statistics = newStatistics;
+
+		return newRowIndex;
+	}
+
+	private static long toEpochSecond(long epochMillis)
+	{
+		return Math.floorDiv(epochMillis, 1000L);
+	}
+
+	private static Instant toInstant(long epochMillis)
+	{
+		return (epochMillis == NO_UPDATE ? null : Instant.ofEpochMilli(epochMillis));
+	}
 }
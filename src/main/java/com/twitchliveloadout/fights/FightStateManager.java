@@ -11,13 +11,26 @@ import net.runelite.api.*;
 import net.runelite.api.events.*;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the fights of the local player. The client events are only captured into the records of a
+ * lock-free ring buffer on the client thread, after which a single aggregator thread applies them.
+ * The aggregator is the only thread changing the fights, so no locks are needed around the statistics.
+ */
 @Slf4j
 public class FightStateManager
 {
@@ -28,7 +41,14 @@ public class FightStateManager
 	private final Client client;
 
 	private static final int ON_GRAPHIC_CHANGED_DELAY = 200; // ms
-	private final ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+	private static final int EVENT_BUFFER_CAPACITY = 8192;
+	private static final int CONTROL_EVENT_RETRY_TIME = 1; // ms
+	private final FightEventRingBuffer eventBuffer = new FightEventRingBuffer(EVENT_BUFFER_CAPACITY);
+	private final ExecutorService aggregatorExecutor = Executors.newSingleThreadExecutor();
+	private final ArrayDeque<FightEvent> delayedGraphics = new ArrayDeque<>();
+	private volatile boolean aggregatorRunning = true;
+	private volatile boolean aggregatorWaiting = false;
+	private volatile Thread aggregatorThread;
 
 	public static final String HIDDEN_PLAYER_ACTOR_NAME = "__self__";
 	public static final float GAME_TICK_DURATION = 0.6f; // seconds
@@ -42,11 +62,11 @@ public class FightStateManager
 	public static final int GRAPHIC_HITSPLAT_EXPIRY_TIME_PER_SQUARE = 160; // ms, this varies for spell and enemy distance, this is an approximate
 
 	public static final int GRAPHIC_SKILL_XP_DROP_EXPIRY_TIME = ON_GRAPHIC_CHANGED_DELAY + 50; // ms, takes around 5ms
-	private final ConcurrentHashMap<Skill, Instant> lastSkillUpdates = new ConcurrentHashMap<>();
-	private final ConcurrentHashMap<Skill, Integer> lastSkillXp = new ConcurrentHashMap<>();
+	private final EnumMap<Skill, Instant> lastSkillUpdates = new EnumMap<>(Skill.class);
+	private final EnumMap<Skill, Integer> lastSkillXp = new EnumMap<>(Skill.class);
 
 	public static final int GRAPHIC_ANIMATION_EXPIRY_TIME = ON_GRAPHIC_CHANGED_DELAY + 50; // ms, takes around 5ms
-	private final ConcurrentHashMap<Integer, Instant> lastAnimationUpdates = new ConcurrentHashMap<>();
+	private final HashMap<Integer, Instant> lastAnimationUpdates = new HashMap<>();
 
 	private static final int MAX_INTERACTING_ACTORS_HISTORY = 3;
 	private static final int INTERACTING_ACTOR_EXPIRY_TIME = 3000; // ms
@@ -54,7 +74,7 @@ public class FightStateManager
 	private static final boolean DEATH_REGISTER_MIN_DAMAGE_ENABLED = false;
 	private static final float DEATH_REGISTER_MIN_DAMAGE_PERCENTAGE = 0.1f; // 0 to 1 scale
 	private static final int INCOMING_FIGHT_SESSION_AUTO_EXPIRY_TIME = 60000; // ms
-	private final ConcurrentHashMap<Actor, Instant> lastInteractingActors = new ConcurrentHashMap<>();
+	private final HashMap<Actor, Instant> lastInteractingActors = new HashMap<>();
 
 	private static final String ACTOR_NAME_KEY = "actorNames";
 	private static final String ACTOR_TYPE_KEY = "actorTypes";
@@ -178,84 +198,472 @@ public class FightStateManager
 		this.plugin = plugin;
 		this.config = config;
 		this.client = client;
+
+		aggregatorExecutor.execute(this::runAggregator);
 	}
 
 	public void shutDown()
 	{
-		clearScheduledUpdates();
-		scheduledExecutor.shutdown();
+		aggregatorRunning = false;
+		aggregatorExecutor.shutdownNow();
 	}
 
 	public void onGraphicChanged(GraphicChanged event)
 	{
 		final Actor eventActor = event.getActor();
-		final String eventActorName = getFormattedActorName(eventActor);
+		final String eventActorName = eventActor.getName();
 		final IterableHashTable<ActorSpotAnim> spotAnims = eventActor.getSpotAnims();
+		final Player localPlayer = client.getLocalPlayer();
+
+		// guard: skip invalid graphics or actors
+		if (spotAnims == null || eventActorName == null || localPlayer == null)
+		{
+			return;
+		}
 
 		// NOTE: collect this here to make sure the varbit and other things are fetched on the client thread
 		final boolean isInMultiCombatArea = isInMultiCombatArea();
 		final boolean otherPlayersPresent = otherPlayersPresent(eventActor);
+		final boolean isLocalPlayerName = isLocalPlayerName(eventActor, eventActorName);
+		final int distanceTo = Math.min(localPlayer.getWorldLocation().distanceTo(eventActor.getWorldLocation()), MAX_FIGHT_DISTANCE);
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.GRAPHIC);
 
-		// guard: skip invalid graphics or actors
-		if (spotAnims == null || eventActorName == null)
+		if (fightEvent == null)
 		{
 			return;
 		}
 
-		final ArrayList<Integer> graphicIds = new ArrayList();
-
-		// convert all the current graphic IDs to a fixed list
-		// because the spot anims will mutate over time after the delayed action
-		spotAnims.forEach((spotAnim) -> {
-			graphicIds.add(spotAnim.getId());
-		});
-
-		log.debug("Scheduling delayed onGraphicChanged, graphic amount: {}", graphicIds.size());
+		fightEvent.actor = eventActor;
+		fightEvent.actorName = eventActorName;
+		fightEvent.localPlayer = (eventActor == localPlayer);
+		fightEvent.localPlayerName = isLocalPlayerName;
+		setFightActor(fightEvent, eventActor, isLocalPlayerName);
+		fightEvent.multiCombatArea = isInMultiCombatArea;
+		fightEvent.otherPlayersPresent = otherPlayersPresent;
+		fightEvent.distance = distanceTo;
 
-		// delay the handler to make sure other events have time to also be triggered.
-		// For example some graphics are translated to statistics, but require a certain skill
-		// to receive XP for prevent various false positives when other players are around.
-		// However, the XP events come in after the graphic event.
-		scheduledExecutor.schedule(new Runnable()
+		// copy the current graphic IDs, because the spot anims will mutate
+		// before the graphic is handled by the aggregator
+		for (ActorSpotAnim spotAnim : spotAnims)
 		{
-			public void run()
+			if (fightEvent.graphicAmount >= FightEvent.MAX_GRAPHIC_AMOUNT)
 			{
-				try {
-					onGraphicChangedDelayed(eventActor, graphicIds, isInMultiCombatArea, otherPlayersPresent);
-				} catch (Exception exception) {
-					log.warn("Could not handle an delayed graphic on changed due to the following error: ", exception);
-				}
+				break;
 			}
-		}, ON_GRAPHIC_CHANGED_DELAY, TimeUnit.MILLISECONDS);
+
+			fightEvent.graphicIds[fightEvent.graphicAmount++] = spotAnim.getId();
+		}
+
+		publish(fightEvent);
 	}
 
 	public void clearScheduledUpdates()
 	{
-		scheduledExecutor.getQueue().clear();
+		publishControlEvent(FightEvent.Type.CLEAR_SCHEDULED_UPDATES, null);
+	}
+
+	public void onAnimationChanged(AnimationChanged event)
+	{
+		final Actor eventActor = event.getActor();
+
+		// guard: only the animations of the local player are used
+		if (eventActor != client.getLocalPlayer())
+		{
+			return;
+		}
+
+		final String eventActorName = eventActor.getName();
+		final int animationId = eventActor.getAnimation();
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.ANIMATION);
+
+		if (fightEvent == null)
+		{
+			return;
+		}
+
+		fightEvent.actor = eventActor;
+		fightEvent.actorName = eventActorName;
+		fightEvent.localPlayer = true;
+		fightEvent.animationId = animationId;
+		publish(fightEvent);
 	}
 
-	public void onGraphicChangedDelayed(Actor eventActor, ArrayList<Integer> graphicIds, boolean isInMultiCombatArea, boolean otherPlayersPresent)
+	public void onHitsplatApplied(HitsplatApplied event)
 	{
+		final Actor eventActor = event.getActor();
+		final Hitsplat hitsplat = event.getHitsplat();
 		final Player localPlayer = client.getLocalPlayer();
-		final boolean isLocalPlayer = (eventActor == localPlayer);
+		final int hitsplatType = hitsplat.getHitsplatType();
+
+		// guard: not worth tracking
+		if (hitsplatType == HitsplatTypeID.DISEASE)
+		{
+			return;
+		}
+
+		final String eventActorName = eventActor.getName();
+		final boolean isLocalPlayerName = isLocalPlayerName(eventActor, eventActorName);
+		final boolean isMine = hitsplat.isMine();
+		final int amount = hitsplat.getAmount();
+		final boolean smiteActive = (localPlayer.getOverheadIcon() == HeadIcon.SMITE);
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.HITSPLAT);
+
+		if (fightEvent == null)
+		{
+			return;
+		}
+
+		fightEvent.actor = eventActor;
+		fightEvent.actorName = eventActorName;
+		fightEvent.localPlayer = (eventActor == localPlayer);
+		fightEvent.localPlayerName = isLocalPlayerName;
+		setFightActor(fightEvent, eventActor, isLocalPlayerName);
+		fightEvent.player = isPlayer(eventActor);
+		fightEvent.hitsplatType = hitsplatType;
+		fightEvent.hitsplatAmount = amount;
+		fightEvent.hitsplatMine = isMine;
+		fightEvent.smiteActive = smiteActive;
+		publish(fightEvent);
+	}
+
+	public void onNpcDespawned(NpcDespawned npcDespawned)
+	{
+		final NPC npc = npcDespawned.getNpc();
+		final Actor eventActor = npcDespawned.getActor();
+
+		if (!npc.isDead())
+		{
+			return;
+		}
+
+		publishActorDespawned(eventActor);
+	}
+
+	public void onPlayerDespawned(PlayerDespawned playerDespawned)
+	{
+		final Player player = playerDespawned.getPlayer();
+		final Actor eventActor = playerDespawned.getActor();
+
+		// Guard: make sure the player died
+		if (player.getHealthRatio() != 0)
+		{
+			return;
+		}
+
+		publishActorDespawned(eventActor);
+	}
+
+	private void publishActorDespawned(Actor eventActor)
+	{
+		final String eventActorName = eventActor.getName();
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.ACTOR_DESPAWNED);
+
+		if (fightEvent == null)
+		{
+			return;
+		}
+
+		fightEvent.actor = eventActor;
+		fightEvent.actorName = eventActorName;
+		publish(fightEvent);
+	}
+
+	public void onInteractingChanged(InteractingChanged interactingChanged)
+	{
+		Actor source = interactingChanged.getSource();
+		Actor target = interactingChanged.getTarget();
+		Actor localPlayer = client.getLocalPlayer();
+
+		if (source != localPlayer)
+		{
+			return;
+		}
+
+		if (target == null)
+		{
+			return;
+		}
+
+		final String targetName = target.getName();
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.INTERACTING);
+
+		if (fightEvent == null)
+		{
+			return;
+		}
+
+		fightEvent.actor = target;
+		fightEvent.actorName = targetName;
+		publish(fightEvent);
+	}
+
+	public void onStatChanged(StatChanged event)
+	{
+		final Skill skill = event.getSkill();
+		final int experience = client.getSkillExperience(skill);
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.STAT_CHANGED);
+
+		if (fightEvent == null)
+		{
+			return;
+		}
+
+		fightEvent.skill = skill;
+		fightEvent.skillExperience = experience;
+		publish(fightEvent);
+	}
 
-		log.debug("Handling delayed onGraphicChanged, graphic amount: {}", graphicIds.size());
+	public void onFakeXpDrop(FakeXpDrop event)
+	{
+		final Skill skill = event.getSkill();
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.FAKE_XP_DROP);
+
+		if (fightEvent == null)
+		{
+			return;
+		}
+
+		fightEvent.skill = skill;
+		publish(fightEvent);
+	}
+
+	/**
+	 * Handle a game tick, which can also be a simulated one while not logged in.
+	 */
+	public void onGameTick()
+	{
+		final boolean isLoggedIn = (client.getGameState() == GameState.LOGGED_IN);
+		final Player localPlayer = client.getLocalPlayer();
+		final Actor interactingActor = (localPlayer == null ? null : localPlayer.getInteracting());
+		final String interactingActorName = (interactingActor == null ? null : interactingActor.getName());
+		final ArrayList<String> actorNames = (config.fightStatisticsAutoIdling() ? getOtherActorNames() : null);
+		final FightEvent fightEvent = claimEvent(FightEvent.Type.GAME_TICK);
 
-		if (localPlayer == null)
+		if (fightEvent == null)
 		{
 			return;
 		}
 
+		fightEvent.loggedIn = isLoggedIn;
+		fightEvent.actor = interactingActor;
+		fightEvent.actorName = interactingActorName;
+		fightEvent.payload = actorNames;
+		publish(fightEvent);
+	}
+
+	/**
+	 * Request the fight statistics state, which is built by the aggregator thread
+	 * once all the events before the request are applied.
+	 */
+	public void requestFightStatisticsState(Consumer<JsonObject> callback)
+	{
+		publishControlEvent(FightEvent.Type.STATE_REQUEST, callback);
+	}
+
+	/**
+	 * Publish an event that should never be dropped, such as deleting a fight from the panel.
+	 * These are not published on the client thread, so waiting for a free slot is fine.
+	 */
+	private void publishControlEvent(FightEvent.Type type, Object payload)
+	{
+		FightEvent fightEvent = eventBuffer.claim(type);
+
+		while (fightEvent == null)
+		{
+
+			// guard: nothing is applied anymore after shutting down
+			if (!aggregatorRunning)
+			{
+				log.debug("Skipping a fight event of type {}, because the aggregator is shut down", type);
+				return;
+			}
+
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(CONTROL_EVENT_RETRY_TIME));
+			fightEvent = eventBuffer.claim(type);
+		}
+
+		fightEvent.payload = payload;
+		publish(fightEvent);
+	}
+
+	/**
+	 * Collect the details of the actor a fight might be created for, which requires the client thread.
+	 */
+	private void setFightActor(FightEvent fightEvent, Actor actor, boolean isLocalPlayerName)
+	{
+		fightEvent.actorId = getActorId(actor);
+		fightEvent.actorType = getActorType(actor, isLocalPlayerName);
+		fightEvent.actorCombatLevel = actor.getCombatLevel();
+	}
+
+	private void publish(FightEvent fightEvent)
+	{
+		eventBuffer.publish(fightEvent);
+
+		// only wake the aggregator when it is waiting, which saves a system call for most events
+		if (aggregatorWaiting)
+		{
+			LockSupport.unpark(aggregatorThread);
+		}
+	}
+
+	private FightEvent claimEvent(FightEvent.Type type)
+	{
+		final FightEvent fightEvent = eventBuffer.claim(type);
+
+		if (fightEvent == null)
+		{
+			log.debug("Skipping a fight event of type {}, because the event buffer is full", type);
+		}
+
+		return fightEvent;
+	}
+
+	/**
+	 * Apply all the published events on the aggregator thread, which is the only thread changing the fights.
+	 */
+	private void runAggregator()
+	{
+		aggregatorThread = Thread.currentThread();
+
+		while (aggregatorRunning)
+		{
+			try {
+				if (!applyNextEvent())
+				{
+					waitForEvents();
+				}
+			} catch (Exception exception) {
+				log.warn("Could not apply a fight event due to the following error: ", exception);
+			}
+		}
+	}
+
+	/**
+	 * Park the aggregator until an event is published or the next delayed graphic is due.
+	 */
+	private void waitForEvents()
+	{
+		aggregatorWaiting = true;
+
+		try {
+
+			// guard: check again after announcing the wait, because an event
+			// published just before that did not wake up the aggregator
+			if (eventBuffer.peek() != null)
+			{
+				return;
+			}
+
+			final FightEvent delayedGraphic = delayedGraphics.peek();
+
+			if (delayedGraphic == null)
+			{
+				LockSupport.park(this);
+				return;
+			}
+
+			final long delayedGraphicWaitTime = delayedGraphic.createdAt + ON_GRAPHIC_CHANGED_DELAY - System.currentTimeMillis();
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delayedGraphicWaitTime));
+		} finally {
+			aggregatorWaiting = false;
+		}
+	}
+
+	private boolean applyNextEvent()
+	{
+		applyDelayedGraphics();
+
+		final FightEvent event = eventBuffer.peek();
+
+		// guard: skip when there is nothing to apply
+		if (event == null)
+		{
+			return false;
+		}
+
+		try {
+			applyEvent(event);
+		} finally {
+			eventBuffer.release(event);
+		}
+
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void applyEvent(FightEvent event)
+	{
+		switch (event.type)
+		{
+			case HITSPLAT:
+				applyHitsplat(event);
+				break;
+			case ANIMATION:
+				applyAnimation(event);
+				break;
+			case GRAPHIC:
+				// delay the handler to make sure other events have time to also be triggered.
+				// For example some graphics are translated to statistics, but require a certain skill
+				// to receive XP for prevent various false positives when other players are around.
+				// However, the XP events come in after the graphic event.
+				delayedGraphics.add(event.copy());
+				break;
+			case STAT_CHANGED:
+				applyStatChanged(event);
+				break;
+			case FAKE_XP_DROP:
+				registerSkillUpdate(event);
+				break;
+			case INTERACTING:
+				applyInteracting(event);
+				break;
+			case GAME_TICK:
+				registerIdleGameTick(event);
+				registerInteractingGameTick(event);
+				break;
+			case ACTOR_DESPAWNED:
+				applyActorDespawned(event);
+				break;
+			case DELETE_FIGHT:
+				removeFight((Fight) event.payload);
+				break;
+			case DELETE_ALL_FIGHTS:
+				removeAllFights();
+				break;
+			case CLEAR_SCHEDULED_UPDATES:
+				delayedGraphics.clear();
+				break;
+			case STATE_REQUEST:
+				((Consumer<JsonObject>) event.payload).accept(getFightStatisticsState());
+				break;
+		}
+	}
+
+	private void applyDelayedGraphics()
+	{
+		final long now = System.currentTimeMillis();
+
+		while (!delayedGraphics.isEmpty() && delayedGraphics.peek().createdAt + ON_GRAPHIC_CHANGED_DELAY <= now)
+		{
+			applyGraphic(delayedGraphics.poll());
+		}
+	}
+
+	private void applyGraphic(FightEvent event)
+	{
+		final Actor eventActor = event.actor;
+		final boolean isLocalPlayer = event.localPlayer;
+		final boolean isInMultiCombatArea = event.multiCombatArea;
+		final boolean otherPlayersPresent = event.otherPlayersPresent;
+		final int distanceTo = event.distance;
+
+		log.debug("Handling delayed onGraphicChanged, graphic amount: {}", event.graphicAmount);
+
 		final Instant now = Instant.now();
 		final Instant lastInteractedOn = lastInteractingActors.get(eventActor);
 		final boolean lastInteractedWithExpired = (lastInteractedOn == null || lastInteractedOn.plusMillis(INTERACTING_ACTOR_EXPIRY_TIME).isBefore(now));
 		final boolean validInteractingWith = !lastInteractedWithExpired;
-		int distanceTo = localPlayer.getWorldLocation().distanceTo(eventActor.getWorldLocation());
-
-		if (distanceTo > MAX_FIGHT_DISTANCE)
-		{
-			distanceTo = MAX_FIGHT_DISTANCE;
-		}
 
 		for (FightGraphic graphic : FightGraphic.values())
 		{
@@ -265,7 +673,7 @@ public class FightStateManager
 			FightStatisticEntry entry = graphic.getEntry();
 
 			// Guard: check if this is the correct graphic
-			if (!graphicIds.contains(fightGraphicId))
+			if (!event.hasGraphicId(fightGraphicId))
 			{
 				continue;
 			}
@@ -311,7 +719,7 @@ public class FightStateManager
 			}
 
 			// When all checks passed make sure the fight exists
-			Fight fight = ensureValidFight(eventActor);
+			Fight fight = ensureValidFight(event);
 
 			if (property == FightStatisticProperty.MISS_COUNTERS || property == FightStatisticProperty.MISS_DAMAGES)
 			{
@@ -420,122 +828,83 @@ public class FightStateManager
 		return true;
 	}
 
-	public void onAnimationChanged(AnimationChanged event)
+	private void applyAnimation(FightEvent event)
 	{
-		Actor eventActor = event.getActor();
-		int animationId = eventActor.getAnimation();
-		Player localPlayer = client.getLocalPlayer();
+		final Actor eventActor = event.actor;
+		final int animationId = event.animationId;
 
 		// Handle animation updates
-		if (eventActor == localPlayer)
-		{
-			lastAnimationUpdates.put(animationId, Instant.now());
-		}
+		lastAnimationUpdates.put(animationId, getCreatedAt(event));
 
 		// Handle local player deaths as we cannot use the despawned event
-		if (eventActor == localPlayer && animationId == DEATH_ANIMATION_ID)
+		if (animationId == DEATH_ANIMATION_ID)
 		{
-			if (!hasFight(eventActor))
+			if (!hasFight(event.actorName))
 			{
 				return;
 			}
 
-			Fight fight = getFight(eventActor);
+			Fight fight = getFight(event.actorName);
 
 			fight.finishSession(eventActor);
 			fight.increaseSessionCounter();
 		}
 	}
 
-	public void onHitsplatApplied(HitsplatApplied event)
+	private void applyHitsplat(FightEvent event)
 	{
-		Actor eventActor = event.getActor();
-		Hitsplat hitsplat = event.getHitsplat();
-		Player player = client.getLocalPlayer();
-		HeadIcon headIcon = player.getOverheadIcon();
-		int hitsplatType = hitsplat.getHitsplatType();
-		boolean isOnSelf = isLocalPlayer(eventActor);
+		final Actor eventActor = event.actor;
+		final int hitsplatType = event.hitsplatType;
+		final boolean isOnSelf = event.localPlayer;
 
 		// Guard: some hitsplats can come from other sources and we will only handle them
 		// when there is already a fight to prevent random fights to appear out of nowhere
 		// because of activity of others.
 		if (hitsplatType == HitsplatTypeID.POISON || hitsplatType == HitsplatTypeID.VENOM)
 		{
-			registerExistingFightHitsplat(eventActor, FightStatisticEntry.POISON, hitsplat);
+			registerExistingFightHitsplat(event, FightStatisticEntry.POISON);
 			return;
 		}
 
 		if (hitsplatType == HitsplatTypeID.HEAL)
 		{
-			registerExistingFightHitsplat(eventActor, FightStatisticEntry.HIT_HEAL, hitsplat);
-			return;
-		}
-
-		if (hitsplatType == HitsplatTypeID.DISEASE)
-		{
-			// not worth tracking
+			registerExistingFightHitsplat(event, FightStatisticEntry.HIT_HEAL);
 			return;
 		}
 
 		// Guard: check if the hitsplat is damage of the local player
 		// if not we will register it as a hit from an 'other' source that is also useful
 		// when showing the combat statistics
-		if (!hitsplat.isMine())
+		if (!event.hitsplatMine)
 		{
 			if (config.fightStatisticsOthersEnabled())
 			{
-				registerExistingFightHitsplat(eventActor, FightStatisticEntry.OTHER, hitsplat);
+				registerExistingFightHitsplat(event, FightStatisticEntry.OTHER);
 			}
 			return;
 		}
 
 		// TODO: later recognize what damage type was done (magic, ranged or melee).
-		registerEnsuredFightHitsplat(eventActor, FightStatisticEntry.TOTAL, hitsplat);
+		registerEnsuredFightHitsplat(event, FightStatisticEntry.TOTAL);
 
 		// Register damage done while having smite up and dealing damage to other entity
-		if (!isOnSelf && isPlayer(eventActor) && headIcon == HeadIcon.SMITE)
-		{
-			registerEnsuredFightHitsplat(eventActor, FightStatisticEntry.SMITE, hitsplat);
-		}
-	}
-
-	public void onNpcDespawned(NpcDespawned npcDespawned)
-	{
-		final NPC npc = npcDespawned.getNpc();
-		final Actor eventActor = npcDespawned.getActor();
-
-		if (!npc.isDead())
-		{
-			return;
-		}
-
-		onActorDespawned(eventActor);
-	}
-
-	public void onPlayerDespawned(PlayerDespawned playerDespawned)
-	{
-		final Player player = playerDespawned.getPlayer();
-		final Actor eventActor = playerDespawned.getActor();
-
-		// Guard: make sure the player died
-		if (player.getHealthRatio() != 0)
+		if (!isOnSelf && event.player && event.smiteActive)
 		{
-			return;
+			registerEnsuredFightHitsplat(event, FightStatisticEntry.SMITE);
 		}
-
-		onActorDespawned(eventActor);
 	}
 
-	private void onActorDespawned(Actor eventActor)
+	private void applyActorDespawned(FightEvent event)
 	{
+		final Actor eventActor = event.actor;
 
-		if (!hasFight(eventActor))
+		if (!hasFight(event.actorName))
 		{
 			return;
 		}
 
 		Instant now = Instant.now();
-		Fight fight = getFight(eventActor);
+		Fight fight = getFight(event.actorName);
 		FightSession session = fight.getSession(eventActor);
 
 		if (session == null)
@@ -544,10 +913,8 @@ public class FightStateManager
 		}
 
 		Instant lastUpdate = session.getLastUpdate(true);
-		FightStatistic totalStatistic = session.getStatistic(FightStatisticEntry.TOTAL);
-		FightStatistic otherStatistic = session.getStatistic(FightStatisticEntry.OTHER);
-		double totalDamage = totalStatistic.getHitDamage();
-		double otherDamage = otherStatistic.getHitDamage();
+		double totalDamage = session.getValueByProperty(FightStatisticEntry.TOTAL, FightStatisticProperty.HIT_DAMAGES);
+		double otherDamage = session.getValueByProperty(FightStatisticEntry.OTHER, FightStatisticProperty.HIT_DAMAGES);
 		double allDamage = totalDamage + otherDamage;
 		boolean didEnoughDamage = allDamage > 0 && ((totalDamage / allDamage) > DEATH_REGISTER_MIN_DAMAGE_PERCENTAGE);
 
@@ -566,25 +933,13 @@ public class FightStateManager
 		fight.increaseSessionCounter();
 	}
 
-	public void onInteractingChanged(InteractingChanged interactingChanged)
+	private void applyInteracting(FightEvent event)
 	{
-		Actor source = interactingChanged.getSource();
-		Actor target = interactingChanged.getTarget();
-		Actor localPlayer = client.getLocalPlayer();
+		final Actor target = event.actor;
 
-		if (source != localPlayer)
-		{
-			return;
-		}
+		log.debug("Adding last interacting target to {}", event.actorName);
 
-		if (target == null)
-		{
-			return;
-		}
-
-		log.debug("Adding last interacting target to {}", target.getName());
-
-		lastInteractingActors.put(target, Instant.now());
+		lastInteractingActors.put(target, getCreatedAt(event));
 
 		if (lastInteractingActors.size() > MAX_INTERACTING_ACTORS_HISTORY)
 		{
@@ -615,10 +970,10 @@ public class FightStateManager
 		lastInteractingActors.remove(oldestActor);
 	}
 
-	public void onStatChanged(StatChanged event)
+	private void applyStatChanged(FightEvent event)
 	{
-		Skill skill = event.getSkill();
-		Integer newExperience = client.getSkillExperience(skill);
+		Skill skill = event.skill;
+		Integer newExperience = event.skillExperience;
 		Integer lastExperience = lastSkillXp.get(skill);
 
 		// Guard: make sure experience was added
@@ -629,32 +984,21 @@ public class FightStateManager
 		}
 
 		lastSkillXp.put(skill, newExperience);
-		registerSkillUpdate(skill);
-	}
-
-	public void onFakeXpDrop(FakeXpDrop event)
-	{
-		Skill skill = event.getSkill();
-
-		registerSkillUpdate(skill);
+		registerSkillUpdate(event);
 	}
 
-	public void onGameTick()
+	@SuppressWarnings("unchecked")
+	private void registerIdleGameTick(FightEvent event)
 	{
-		registerIdleGameTick();
-		registerInteractingGameTick();
-	}
+		final List<String> actorNames = (List<String>) event.payload;
+		final boolean isLoggedIn = event.loggedIn;
 
-	private void registerIdleGameTick()
-	{
-		if (!config.fightStatisticsAutoIdling())
+		// guard: the actor names are only collected when auto idling is enabled
+		if (actorNames == null)
 		{
 			return;
 		}
 
-		final boolean isLoggedIn = (client.getGameState() == GameState.LOGGED_IN);
-		final CopyOnWriteArrayList<String> actorNames = getOtherActorNames();
-
 		for (Fight fight : fights.values())
 		{
 			if (!fight.isIdling(actorNames) && isLoggedIn)
@@ -674,16 +1018,9 @@ public class FightStateManager
 		}
 	}
 
-	private void registerInteractingGameTick()
+	private void registerInteractingGameTick(FightEvent event)
 	{
-		Player localPlayer = client.getLocalPlayer();
-
-		if (localPlayer == null)
-		{
-			return;
-		}
-
-		Actor interactingActor = localPlayer.getInteracting();
+		final Actor interactingActor = event.actor;
 
 		if (interactingActor == null)
 		{
@@ -692,16 +1029,16 @@ public class FightStateManager
 
 		// Always update the current interacting actor to make sure it doesn't expire
 		// while the local player is still interacting with them
-		lastInteractingActors.put(interactingActor, Instant.now());
+		lastInteractingActors.put(interactingActor, getCreatedAt(event));
 
 		// Guard: only handle game tick when a fight is initiated (which means one hitsplat was dealt).
 		// This is to prevent non-attackable NPC's to also count interacting game ticks.
-		if (!hasFight(interactingActor))
+		if (!hasFight(event.actorName))
 		{
 			return;
 		}
 
-		Fight fight = getFight(interactingActor);
+		Fight fight = getFight(event.actorName);
 
 		if (!fight.hasSession(interactingActor))
 		{
@@ -712,9 +1049,9 @@ public class FightStateManager
 		session.addInteractingTicks(1);
 	}
 
-	private void registerExistingFightHitsplat(Actor actor, FightStatisticEntry statisticEntry, Hitsplat hitsplat)
+	private void registerExistingFightHitsplat(FightEvent event, FightStatisticEntry statisticEntry)
 	{
-		Fight fight = getFight(actor);
+		Fight fight = getFight(event.actorName);
 
 		// Guard: check the fight is existing
 		if (fight == null)
@@ -725,22 +1062,22 @@ public class FightStateManager
 		// Guard: check if a session exists for this specific actor.
 		// This will prevent hitsplats of others / poison / venom on actors
 		// that were never attacked by the local player to be added
-		if (!config.fightStatisticsUnattackedEnabled() && !fight.hasSession(actor))
+		if (!config.fightStatisticsUnattackedEnabled() && !fight.hasSession(event.actor))
 		{
 			return;
 		}
 
-		registerFightHitsplat(fight, actor, statisticEntry, hitsplat);
+		registerFightHitsplat(fight, event, statisticEntry);
 	}
 
-	private void registerEnsuredFightHitsplat(Actor actor, FightStatisticEntry statisticEntry, Hitsplat hitsplat)
+	private void registerEnsuredFightHitsplat(FightEvent event, FightStatisticEntry statisticEntry)
 	{
-		Fight fight = ensureValidFight(actor);
+		Fight fight = ensureValidFight(event);
 
-		registerFightHitsplat(fight, actor, statisticEntry, hitsplat);
+		registerFightHitsplat(fight, event, statisticEntry);
 	}
 
-	private void registerFightHitsplat(Fight fight, Actor actor, FightStatisticEntry statisticEntry, Hitsplat hitsplat)
+	private void registerFightHitsplat(Fight fight, FightEvent event, FightStatisticEntry statisticEntry)
 	{
 		if (fight == null)
 		{
@@ -748,7 +1085,8 @@ public class FightStateManager
 		}
 
 		Instant now = Instant.now();
-		boolean isOnSelf = isLocalPlayer(actor);
+		Actor actor = event.actor;
+		boolean isOnSelf = event.localPlayer;
 
 		// check if we should automatically finish the last session for incoming damage
 		// as it is timed out. This is because the incoming fight sessions are only finishing
@@ -764,15 +1102,15 @@ public class FightStateManager
 			}
 		}
 
-		int amount = hitsplat.getAmount();
-		int hitsplatType = hitsplat.getHitsplatType();
+		int amount = event.hitsplatAmount;
+		int hitsplatType = event.hitsplatType;
 
 		// NOTE: get the statistic after the fight session was potentially ended!
 		FightStatistic statistic = fight.ensureStatistic(actor, statisticEntry);
 
 		// Only update the last actor when the damage is dealt by the local player
 		// the other hitsplats are merely for statistic purposes
-		if (hitsplat.isMine())
+		if (event.hitsplatMine)
 		{
 			fight.setLastActor(actor);
 		}
@@ -780,7 +1118,7 @@ public class FightStateManager
 		// Handle this damage as being part of the queued statistics.
 		// Note that only hitsplats by the local player are handled to
 		// prevent other player hits to trigger the queueing
-		if (hitsplat.isMine())
+		if (event.hitsplatMine)
 		{
 			fight.registerQueuedStatistics(actor, amount);
 		}
@@ -820,19 +1158,26 @@ public class FightStateManager
 		}
 	}
 
-	private void registerSkillUpdate(Skill skill)
+	private void registerSkillUpdate(FightEvent event)
+	{
+		lastSkillUpdates.put(event.skill, getCreatedAt(event));
+	}
+
+	private Instant getCreatedAt(FightEvent event)
 	{
-		lastSkillUpdates.put(skill, Instant.now());
+		return Instant.ofEpochMilli(event.createdAt);
 	}
 
-	public Fight ensureValidFight(Actor actor)
+	private Fight ensureValidFight(FightEvent event)
 	{
-		if (!hasFight(actor))
+		final String rawActorName = event.actorName;
+
+		if (!hasFight(rawActorName))
 		{
-			createFight(actor);
+			createFight(event.actor, rawActorName, event.actorId, event.actorType, event.actorCombatLevel);
 		}
 
-		Fight fight = getFight(actor);
+		Fight fight = getFight(rawActorName);
 		Instant now = Instant.now();
 		Instant lastUpdate = fight.getLastUpdate();
 		long expiryTime = config.fightStatisticsExpiryTime() * 60L;
@@ -844,12 +1189,12 @@ public class FightStateManager
 
 			if (lastUpdateDelta > expiryTime)
 			{
-				deleteFight(fight);
-				createFight(actor);
+				removeFight(fight);
+				createFight(event.actor, rawActorName, event.actorId, event.actorType, event.actorCombatLevel);
 			}
 		}
 
-		return getFight(actor);
+		return getFight(rawActorName);
 	}
 
 	public Fight getFight(Actor actor)
@@ -865,6 +1210,19 @@ public class FightStateManager
 		return fights.get(actorName);
 	}
 
+	private Fight getFight(String rawActorName)
+	{
+		String actorName = formatActorName(rawActorName);
+
+		// guard: make sure the actor is valid
+		if (actorName == null)
+		{
+			return null;
+		}
+
+		return fights.get(actorName);
+	}
+
 	public boolean hasFight(Actor actor)
 	{
 		String actorName = getFormattedActorName(actor);
@@ -878,12 +1236,34 @@ public class FightStateManager
 		return fights.containsKey(actorName);
 	}
 
+	private boolean hasFight(String rawActorName)
+	{
+		String actorName = formatActorName(rawActorName);
+
+		// guard: make sure the actor is valid
+		if (actorName == null)
+		{
+			return false;
+		}
+
+		return fights.containsKey(actorName);
+	}
+
+	/**
+	 * Create a fight directly, which should only be done when no events are published (e.g. benchmarks).
+	 */
 	public void createFight(Actor actor)
 	{
-		String localPlayerName = client.getLocalPlayer().getName();
-		boolean isLocalPlayer = (actor instanceof Player) && localPlayerName.equals(actor.getName());
-		String actorName = getFormattedActorName(actor);
-		Fight fight = new Fight(actor, actorName, isLocalPlayer);
+		final String actorName = actor.getName();
+		final ActorType actorType = getActorType(actor, isLocalPlayerName(actor, actorName));
+
+		createFight(actor, actorName, getActorId(actor), actorType, actor.getCombatLevel());
+	}
+
+	private void createFight(Actor actor, String rawActorName, int actorId, ActorType actorType, int actorCombatLevel)
+	{
+		String actorName = formatActorName(rawActorName);
+		Fight fight = new Fight(actor, actorName, actorId, actorType, actorCombatLevel);
 
 		// Rotate fights to prevent memory leaks when the client is on for a long time
 		while (fights.size() >= MAX_FIGHT_AMOUNT_IN_MEMORY)
@@ -898,6 +1278,11 @@ public class FightStateManager
 	}
 
 	public void deleteFight(Fight fight)
+	{
+		publishControlEvent(FightEvent.Type.DELETE_FIGHT, fight);
+	}
+
+	private void removeFight(Fight fight)
 	{
 
 		// guard: check if the fight is valid
@@ -913,7 +1298,7 @@ public class FightStateManager
 		updateCombatPanel();
 	}
 
-	public void rotateOldestFight()
+	private void rotateOldestFight()
 	{
 		Instant oldestLastUpdate = null;
 		Fight oldestFight = null;
@@ -934,20 +1319,32 @@ public class FightStateManager
 			return;
 		}
 
-		deleteFight(oldestFight);
+		removeFight(oldestFight);
 	}
 
 	public void deleteAllFights()
+	{
+		publishControlEvent(FightEvent.Type.DELETE_ALL_FIGHTS, null);
+	}
+
+	private void removeAllFights()
 	{
 		fights.clear();
 		updateCombatPanel();
 	}
 
+	/**
+	 * Rebuild the combat panel on the Swing thread, because the fights are changed on the aggregator thread.
+	 */
 	private void updateCombatPanel()
 	{
-		plugin.getPluginPanel().getCombatPanel().rebuild();
+		plugin.getPluginPanel().getCombatPanel().requestRebuild();
 	}
 
+	/**
+	 * Build the fight statistics state, which should be done on the aggregator thread
+	 * or when no events are published (e.g. benchmarks). Use {@link #requestFightStatisticsState(Consumer)} otherwise.
+	 */
 	public JsonObject getFightStatisticsState()
 	{
 		CopyOnWriteArrayList<Fight> includedFights = new CopyOnWriteArrayList<>();
@@ -1038,7 +1435,7 @@ public class FightStateManager
 
 		for (Fight fight : slicedFights)
 		{
-			FightSession totalSession = fight.calculateTotalSession();
+			FightSession totalSession = fight.getTotalSession();
 			FightSession lastSession = fight.getLastSession();
 			String actorName = fight.getActorName();
 			Instant lastUpdate = fight.getLastUpdate(true);
@@ -1065,14 +1462,12 @@ public class FightStateManager
 
 			for (FightStatisticEntry statisticEntry : FightStatisticEntry.values())
 			{
-				FightStatistic totalStatistic = totalSession.getStatistic(statisticEntry);
-				FightStatistic lastStatistic = lastSession.getStatistic(statisticEntry);
 				JsonObject statisticState = statistics.getAsJsonObject(statisticEntry.getKey());
 
 				for (FightStatisticProperty property : FightStatisticProperty.values())
 				{
-					long totalValue = totalStatistic.getValueByProperty(property);
-					long lastValue = lastStatistic.getValueByProperty(property);
+					long totalValue = totalSession.getValueByProperty(statisticEntry, property);
+					long lastValue = lastSession.getValueByProperty(statisticEntry, property);
 					JsonArray totalAndLastValue = new JsonArray();
 
 					// check if we need to test the maximum state
@@ -1082,7 +1477,7 @@ public class FightStateManager
 						lastValue = (int) (Math.random() * TwitchState.MAX_FIGHT_STATISTIC_VALUE);
 					}
 
-					if (totalStatistic.isEverUpdated() || lastStatistic.isEverUpdated())
+					if (totalSession.isEverUpdated(statisticEntry) || lastSession.isEverUpdated(statisticEntry))
 					{
 						if (!includedStatisticEntries.contains(statisticEntry))
 						{
@@ -1116,17 +1511,46 @@ public class FightStateManager
 		return actor instanceof Player;
 	}
 
-	private boolean isLocalPlayer(Actor actor)
+	private int getActorId(Actor actor)
 	{
-		if (!isPlayer(actor))
+		if (actor instanceof NPC)
 		{
-			return false;
+			return ((NPC) actor).getId();
 		}
 
-		Player player = (Player) actor;
-		Player localPlayer = client.getLocalPlayer();
+		if (actor instanceof GameObject)
+		{
+			return ((GameObject) actor).getId();
+		}
 
-		return player == localPlayer;
+		return -1;
+	}
+
+	private ActorType getActorType(Actor actor, boolean isLocalPlayer)
+	{
+		if (actor instanceof NPC)
+		{
+			return ActorType.NPC;
+		}
+
+		if (actor instanceof GameObject)
+		{
+			return ActorType.GAME_OBJECT;
+		}
+
+		return (isLocalPlayer ? ActorType.LOCAL_PLAYER : ActorType.PLAYER);
+	}
+
+	private boolean isLocalPlayerName(Actor actor, String actorName)
+	{
+		final Player localPlayer = client.getLocalPlayer();
+
+		if (!isPlayer(actor) || localPlayer == null)
+		{
+			return false;
+		}
+
+		return Objects.equals(localPlayer.getName(), actorName);
 	}
 
 	public String getFormattedActorName(Actor actor)
@@ -1136,13 +1560,22 @@ public class FightStateManager
 			return null;
 		}
 
-		String actorName = actor.getName();
+		return formatActorName(actor.getName());
+	}
 
+	private String formatActorName(String actorName)
+	{
 		if (actorName == null)
 		{
 			return null;
 		}
 
+		// guard: most names have no tags, which skips the regex for every event
+		if (actorName.indexOf('<') < 0)
+		{
+			return actorName;
+		}
+
 		// Remove any HTML-like tags from the actor name, this is the case
 		// for example with objects getting a <col=00ffff>name</col> tag
 		String formattedActorName = actorName.replaceAll("\\<[^>]*>","");
@@ -1170,18 +1603,20 @@ public class FightStateManager
 		return client.getPlayers().size() > allowedPlayerAmount;
 	}
 
-	public CopyOnWriteArrayList<String> getOtherActorNames()
+	public ArrayList<String> getOtherActorNames()
 	{
-		final CopyOnWriteArrayList<String> actorNames = new CopyOnWriteArrayList<>();
-		final CopyOnWriteArrayList<Actor> actors = new CopyOnWriteArrayList<>();
+		final List<NPC> npcs = client.getNpcs();
+		final List<Player> players = client.getPlayers();
+		final ArrayList<String> actorNames = new ArrayList<>(npcs.size() + players.size());
 
-		actors.addAll(client.getNpcs());
-		actors.addAll(client.getPlayers());
+		for (Actor actor : npcs)
+		{
+			actorNames.add(getFormattedActorName(actor));
+		}
 
-		for (Actor actor : actors)
+		for (Actor actor : players)
 		{
-			String actorName = getFormattedActorName(actor);
-			actorNames.add(actorName);
+			actorNames.add(getFormattedActorName(actor));
 		}
 
 		return actorNames;
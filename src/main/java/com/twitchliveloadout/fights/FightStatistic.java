@@ -2,153 +2,71 @@ package com.twitchliveloadout.fights;
 
 import java.time.Instant;
 
+/**
+ * View on a single statistic entry of a session, of which the values are stored in the session itself.
+ */
 public class FightStatistic {
 	private final FightSession session;
+	private final FightStatisticEntry entry;
 
-	private Instant firstUpdate;
-	private Instant lastUpdate;
-	private long hitDamage = 0;
-	private long missDamage = 0;
-	private long hitCounter = 0;
-	private long missCounter = 0;
-
-	public FightStatistic(FightSession session)
+	public FightStatistic(FightSession session, FightStatisticEntry entry)
 	{
 		this.session = session;
+		this.entry = entry;
 	}
 
 	public void registerHit(int damage)
 	{
-		hitDamage += damage;
-		hitCounter ++;
-		registerUpdate();
+		session.registerHit(entry, damage);
 	}
 
 	public void registerMiss(int damage)
 	{
-		missDamage += damage;
-		missCounter ++;
-		registerUpdate();
-	}
-
-	public void addStatistic(FightStatistic statistic)
-	{
-		Instant candidateFirstUpdate = statistic.getFirstUpdate();
-		Instant candidateLastUpdate = statistic.getLastUpdate();
-
-		hitDamage += statistic.getHitDamage();
-		hitCounter += statistic.getHitCounter();
-		missDamage += statistic.getMissDamage();
-		missCounter += statistic.getMissCounter();
-
-		if (firstUpdate == null || (candidateFirstUpdate != null && candidateFirstUpdate.isBefore(firstUpdate)))
-		{
-			firstUpdate = candidateFirstUpdate;
-		}
-
-		if (lastUpdate == null || (candidateLastUpdate != null && candidateLastUpdate.isAfter(lastUpdate)))
-		{
-			lastUpdate = candidateLastUpdate;
-		}
-	}
-
-	public void registerUpdate()
-	{
-		final Instant now = Instant.now();
-
-		if (firstUpdate == null)
-		{
-			firstUpdate = now;
-		}
-
-		lastUpdate = now;
-		session.handleStatisticUpdate();
+		session.registerMiss(entry, damage);
 	}
 
 	public long getDurationSeconds()
 	{
-		Instant lastUpdate = getLastUpdate();
-		Instant firstUpdate = getFirstUpdate();
-
-		if (lastUpdate == null || firstUpdate == null)
-		{
-			return 0;
-		}
-
-		return getLastUpdate().getEpochSecond() - getFirstUpdate().getEpochSecond();
+		return session.getDurationSeconds(entry);
 	}
 
 	public long getHitDamage()
 	{
-		return hitDamage;
+		return session.getValueByProperty(entry, FightStatisticProperty.HIT_DAMAGES);
 	}
 
 	public long getMissDamage()
 	{
-		return missDamage;
+		return session.getValueByProperty(entry, FightStatisticProperty.MISS_DAMAGES);
 	}
 
 	public long getHitCounter()
 	{
-		return hitCounter;
+		return session.getValueByProperty(entry, FightStatisticProperty.HIT_COUNTERS);
 	}
 
 	public long getMissCounter()
 	{
-		return missCounter;
+		return session.getValueByProperty(entry, FightStatisticProperty.MISS_COUNTERS);
 	}
 
 	public Instant getLastUpdate()
 	{
-		return lastUpdate;
+		return session.getLastUpdate(entry);
 	}
 
 	public Instant getFirstUpdate()
 	{
-		return firstUpdate;
+		return session.getFirstUpdate(entry);
 	}
 
 	public boolean isEverUpdated()
 	{
-		return lastUpdate != null || firstUpdate != null;
+		return session.isEverUpdated(entry);
 	}
 
 	public long getValueByProperty(FightStatisticProperty property)
 	{
-		final String key = property.getKey();
-
-		if (key.equals(FightStatisticProperty.HIT_DAMAGES.getKey()))
-		{
-			return getHitDamage();
-		}
-		else if (key.equals(FightStatisticProperty.HIT_COUNTERS.getKey()))
-		{
-			return getHitCounter();
-		}
-		else if (key.equals(FightStatisticProperty.MISS_DAMAGES.getKey()))
-		{
-			return getMissDamage();
-		}
-		else if (key.equals(FightStatisticProperty.MISS_COUNTERS.getKey()))
-		{
-			return getMissCounter();
-		}
-		else if (key.equals(FightStatisticProperty.DURATION_SECONDS.getKey()))
-		{
-			return getDurationSeconds();
-		}
-
-		return 0;
-	}
-
-	public void reset()
-	{
-		hitDamage = 0;
-		missDamage = 0;
-		hitCounter = 0;
-		missCounter = 0;
-
-		firstUpdate = null;
-		lastUpdate = null;
+		return session.getValueByProperty(entry, property);
 	}
 }
@@ -0,0 +1,209 @@
+package com.twitchliveloadout.items;
+
+import net.runelite.api.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Index of the bank items ordered by price, which is updated by comparing a new bank container
+ * with the previous one. Only the slots that changed are priced again and moved in the ordering,
+ * so depositing a single item does not require pricing and sorting the whole bank again. When the
+ * item prices expire all the slots are priced again, so the prices do not drift from the market. The most
+ * valuable items and the total price are available without sorting. The tabs are kept as prefix
+ * sums of their item amounts to look up the tab of a slot with a binary search.
+ */
+public class BankItemIndex
+{
+	private final static Comparator<PricedItem> PRICE_ORDER = new ItemPriceSorter().thenComparing(new ItemSlotIdSorter());
+
+	private final ItemStateManager itemStateManager;
+
+	/**
+	 * The items per slot as they were in the previous container to detect which slots changed.
+	 */
+	private int[] itemIds = new int[0];
+	private int[] itemQuantities = new int[0];
+	private PricedItem[] pricedItems = new PricedItem[0];
+
+	private final TreeSet<PricedItem> priceOrderedItems = new TreeSet<>(PRICE_ORDER);
+	private final BitSet selectedSlots = new BitSet();
+	private int[] tabEndSlots = new int[0];
+	private long totalPrice = 0;
+	private int priceGeneration = -1;
+
+	public BankItemIndex(ItemStateManager itemStateManager)
+	{
+		this.itemStateManager = itemStateManager;
+	}
+
+	public void update(Item[] items, int[] tabAmounts)
+	{
+		updateTabs(tabAmounts);
+		resize(items.length);
+		updatePriceGeneration();
+
+		for (int slotId = 0; slotId < items.length; slotId++)
+		{
+			final Item item = items[slotId];
+			final int itemId = item.getId();
+			final int itemQuantity = item.getQuantity();
+
+			// guard: skip the slots that did not change
+			if (pricedItems[slotId] != null && itemIds[slotId] == itemId && itemQuantities[slotId] == itemQuantity)
+			{
+				continue;
+			}
+
+			removeSlot(slotId);
+
+			final PricedItem pricedItem = itemStateManager.getPricedItem(item, slotId, -1);
+			itemIds[slotId] = itemId;
+			itemQuantities[slotId] = itemQuantity;
+			pricedItems[slotId] = pricedItem;
+			priceOrderedItems.add(pricedItem);
+			totalPrice += pricedItem.getPrice();
+		}
+	}
+
+	public long getTotalPrice()
+	{
+		return totalPrice;
+	}
+
+	/**
+	 * Get the most valuable items in the order of their slots.
+	 */
+	public List<PricedItem> getHighestPricedItems(int maxAmount)
+	{
+		int selectedAmount = 0;
+		selectedSlots.clear();
+
+		for (PricedItem pricedItem : priceOrderedItems)
+		{
+			if (selectedAmount >= maxAmount)
+			{
+				break;
+			}
+
+			selectedSlots.set(pricedItem.getSlotId());
+			selectedAmount++;
+		}
+
+		final List<PricedItem> highestPricedItems = new ArrayList<>(selectedAmount);
+
+		for (int slotId = selectedSlots.nextSetBit(0); slotId >= 0; slotId = selectedSlots.nextSetBit(slotId + 1))
+		{
+			highestPricedItems.add(pricedItems[slotId]);
+		}
+
+		return highestPricedItems;
+	}
+
+	/**
+	 * Get the tab of a slot or -1 when it is not in one of the tabs.
+	 */
+	public int getTabId(int slotId)
+	{
+		int lowTabId = 0;
+		int highTabId = tabEndSlots.length;
+
+		// find the first tab that ends after the slot
+		while (lowTabId < highTabId)
+		{
+			final int middleTabId = (lowTabId + highTabId) >>> 1;
+
+			if (slotId < tabEndSlots[middleTabId])
+			{
+				highTabId = middleTabId;
+			}
+			else
+			{
+				lowTabId = middleTabId + 1;
+			}
+		}
+
+		return (lowTabId < tabEndSlots.length ? lowTabId : -1);
+	}
+
+	/**
+	 * Get whether the items are priced with expired prices and should be updated again, even when they did not change.
+	 */
+	public boolean isPriceExpired()
+	{
+		return priceGeneration != itemStateManager.getPriceGeneration();
+	}
+
+	private void updatePriceGeneration()
+	{
+
+		// guard: the current prices are still valid
+		if (!isPriceExpired())
+		{
+			return;
+		}
+
+		// price all the slots again as they all have an expired price
+		for (int slotId = 0; slotId < pricedItems.length; slotId++)
+		{
+			removeSlot(slotId);
+		}
+
+		priceGeneration = itemStateManager.getPriceGeneration();
+	}
+
+	private void updateTabs(int[] tabAmounts)
+	{
+		if (tabEndSlots.length != tabAmounts.length)
+		{
+			tabEndSlots = new int[tabAmounts.length];
+		}
+
+		int totalAmount = 0;
+
+		for (int tabId = 0; tabId < tabAmounts.length; tabId++)
+		{
+			totalAmount += tabAmounts[tabId];
+			tabEndSlots[tabId] = totalAmount;
+		}
+	}
+
+	private void resize(int slotAmount)
+	{
+
+		// guard: nothing to do when the bank size is the same
+		if (slotAmount == pricedItems.length)
+		{
+			return;
+		}
+
+		// remove the slots that do not exist anymore
+		for (int slotId = slotAmount; slotId < pricedItems.length; slotId++)
+		{
+			removeSlot(slotId);
+		}
+
+		itemIds = Arrays.copyOf(itemIds, slotAmount);
+		itemQuantities = Arrays.copyOf(itemQuantities, slotAmount);
+		pricedItems = Arrays.copyOf(pricedItems, slotAmount);
+	}
+
+	private void removeSlot(int slotId)
+	{
+		final PricedItem pricedItem = pricedItems[slotId];
+
+		// guard: skip empty slots
+		if (pricedItem == null)
+		{
+			return;
+		}
+
+		priceOrderedItems.remove(pricedItem);
+		totalPrice -= pricedItem.getPrice();
+		pricedItems[slotId] = null;
+	}
+}
@@ -158,22 +158,11 @@ public class CollectionLogManager {
 			final JsonObject counters = getCurrentCounters();
 			final String categoryTitle = getCategoryTitle();
 			final String tabTitle = getTabTitle();
-			JsonObject collectionLog = twitchState.getCollectionLog();
-
-			if (collectionLog == null) {
-				collectionLog = new JsonObject();
-			}
 
 			if (items == null || categoryTitle == null || tabTitle == null) {
 				return;
 			}
 
-			if (!collectionLog.has(tabTitle)) {
-				collectionLog.add(tabTitle, new JsonObject());
-			}
-
-			final JsonObject tabLog = collectionLog.getAsJsonObject(tabTitle);
-
 			// always overwrite with new category log to make sure
 			// new data structures in versioning are directly supported
 			final JsonObject categoryLog = new JsonObject();
@@ -190,10 +179,9 @@ public class CollectionLogManager {
 
 			categoryLog.add(COUNTERS_KEY_NAME, counters);
 			categoryLog.add(ITEMS_KEY_NAME, serializedItems);
-			tabLog.add(categoryTitle, categoryLog);
 
-			// update the twitch state
-			twitchState.setCollectionLog(collectionLog);
+			// update the twitch state, which skips categories that did not change
+			twitchState.setCollectionLogCategory(tabTitle, categoryTitle, categoryLog);
 		} catch (Exception exception) {
 			log.warn("Could not update the collection log due to the following error: ", exception);
 		}
@@ -0,0 +1,177 @@
+package com.twitchliveloadout.items;
+
+import net.runelite.api.ItemComposition;
+import net.runelite.client.game.ItemManager;
+
+import java.util.Arrays;
+
+/**
+ * Cache of the price and placeholder mapping per item, which are looked up for every slot of
+ * every changed container. The entries are stored in primitive arrays with open addressing to
+ * not box the item IDs or allocate an object per entry. RuneLite refreshes the prices periodically
+ * without an event, so the prices expire after the same interval. Every refresh starts a new price
+ * generation, so prices that are stored elsewhere can be priced again. The placeholder mappings are
+ * kept, because the item definitions do not change while the client is running.
+ */
+public class ItemPriceCache
+{
+	private final static int INITIAL_CAPACITY = 1024; // power of two
+	private final static int PRICE_EXPIRY_MS = 30 * 60 * 1000;
+	private final static int EMPTY_ITEM_ID = Integer.MIN_VALUE;
+	private final static int NO_PLACEHOLDER = Integer.MIN_VALUE;
+	private final static long UNKNOWN_PRICE = -1;
+
+	private final ItemManager itemManager;
+
+	private int[] itemIds = createItemIds(INITIAL_CAPACITY);
+	private int[] placeholderItemIds = new int[INITIAL_CAPACITY];
+	private long[] prices = new long[INITIAL_CAPACITY];
+	private int size = 0;
+	private long pricesExpireAtMs = 0;
+	private int priceGeneration = 0;
+
+	public ItemPriceCache(ItemManager itemManager)
+	{
+		this.itemManager = itemManager;
+	}
+
+	public boolean isPlaceholder(int itemId)
+	{
+		return getPlaceholderItemId(itemId) != NO_PLACEHOLDER;
+	}
+
+	/**
+	 * Get the actual item of a placeholder.
+	 */
+	public int getPlaceholderItemId(int itemId)
+	{
+
+		// get the index first, because adding the item can replace the arrays
+		final int index = getIndex(itemId);
+
+		return placeholderItemIds[index];
+	}
+
+	public long getPrice(int itemId)
+	{
+		refreshExpiredPrices();
+
+		final int index = getIndex(itemId);
+
+		if (prices[index] == UNKNOWN_PRICE)
+		{
+			prices[index] = itemManager.getItemPrice(itemId);
+		}
+
+		return prices[index];
+	}
+
+	/**
+	 * Get the generation of the current prices, which changes when the prices expired.
+	 */
+	public int getPriceGeneration()
+	{
+		refreshExpiredPrices();
+
+		return priceGeneration;
+	}
+
+	private void refreshExpiredPrices()
+	{
+		final long now = System.currentTimeMillis();
+
+		// guard: the prices are still valid
+		if (now < pricesExpireAtMs)
+		{
+			return;
+		}
+
+		// refresh all the prices at once, just like RuneLite does
+		Arrays.fill(prices, UNKNOWN_PRICE);
+		pricesExpireAtMs = now + PRICE_EXPIRY_MS;
+		priceGeneration++;
+	}
+
+	/**
+	 * Get the index of an item and add it when it is not cached yet.
+	 */
+	private int getIndex(int itemId)
+	{
+		int index = findIndex(itemIds, itemId);
+
+		// guard: check if the item is already cached
+		if (itemIds[index] == itemId)
+		{
+			return index;
+		}
+
+		// keep at least half of the entries empty to keep the probing short
+		if ((size + 1) * 2 > itemIds.length)
+		{
+			grow();
+			index = findIndex(itemIds, itemId);
+		}
+
+		final ItemComposition itemComposition = itemManager.getItemComposition(itemId);
+		final boolean isPlaceholder = itemComposition.getPlaceholderTemplateId() != -1;
+
+		itemIds[index] = itemId;
+		placeholderItemIds[index] = (isPlaceholder ? itemComposition.getPlaceholderId() : NO_PLACEHOLDER);
+		prices[index] = UNKNOWN_PRICE;
+		size++;
+
+		return index;
+	}
+
+	private void grow()
+	{
+		final int[] oldItemIds = itemIds;
+		final int[] oldPlaceholderItemIds = placeholderItemIds;
+		final long[] oldPrices = prices;
+		final int capacity = oldItemIds.length * 2;
+
+		itemIds = createItemIds(capacity);
+		placeholderItemIds = new int[capacity];
+		prices = new long[capacity];
+
+		for (int oldIndex = 0; oldIndex < oldItemIds.length; oldIndex++)
+		{
+			final int itemId = oldItemIds[oldIndex];
+
+			if (itemId == EMPTY_ITEM_ID)
+			{
+				continue;
+			}
+
+			final int index = findIndex(itemIds, itemId);
+			itemIds[index] = itemId;
+			placeholderItemIds[index] = oldPlaceholderItemIds[oldIndex];
+			prices[index] = oldPrices[oldIndex];
+		}
+	}
+
+	/**
+	 * Get the index where the item is or where it should be added with linear probing.
+	 */
+	private static int findIndex(int[] itemIds, int itemId)
+	{
+		final int mask = itemIds.length - 1;
+		final int hash = itemId * 0x9E3779B9;
+		int index = (hash ^ (hash >>> 16)) & mask;
+
+		while (itemIds[index] != itemId && itemIds[index] != EMPTY_ITEM_ID)
+		{
+			index = (index + 1) & mask;
+		}
+
+		return index;
+	}
+
+	private static int[] createItemIds(int capacity)
+	{
+		final int[] itemIds = new int[capacity];
+		Arrays.fill(itemIds, EMPTY_ITEM_ID);
+
+		return itemIds;
+	}
+}
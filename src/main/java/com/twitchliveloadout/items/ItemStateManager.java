@@ -7,10 +7,12 @@ import net.runelite.api.*;
 import net.runelite.api.events.ItemContainerChanged;
 import net.runelite.client.game.ItemManager;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ItemStateManager {
 
@@ -22,6 +24,20 @@ public class ItemStateManager {
 	private final Client client;
 	private final ItemManager itemManager;
 	private final TwitchLiveLoadoutConfig config;
+	private final BankItemIndex bankItemIndex = new BankItemIndex(this);
+	private final ItemPriceCache itemPriceCache;
+
+	/**
+	 * The items per container of the previous event to skip identical events,
+	 * which happen multiple times per tick for the inventory while skilling.
+	 */
+	private final Map<Integer, ContainerItems> containerItems = new ConcurrentHashMap<>();
+
+	private static class ContainerItems
+	{
+		private int[] itemIds = new int[0];
+		private int[] itemQuantities = new int[0];
+	}
 
 	private static final List<Integer> BANK_TAB_VARBITS = Arrays.asList(
 			Varbits.BANK_TAB_ONE_COUNT,
@@ -42,6 +58,7 @@ public class ItemStateManager {
 		this.client = client;
 		this.itemManager = itemManager;
 		this.config = config;
+		this.itemPriceCache = new ItemPriceCache(itemManager);
 	}
 
 	public void onItemContainerChanged(ItemContainerChanged event)
@@ -59,23 +76,30 @@ public class ItemStateManager {
 		}
 
 		final Item[] items = container.getItems();
-		long totalPrice = getTotalPrice(items);
+		final boolean isSameItems = updateContainerItems(event.getContainerId(), items);
+
+		// guard: skip when the items are identical to the previous event of this container,
+		// unless the bank was priced with expired prices and should be priced again
+		if (isSameItems && !(isBank && bankItemIndex.isPriceExpired()))
+		{
+			return;
+		}
 
 		if (config.inventoryEnabled() && isInventory)
 		{
-			twitchState.setInventoryItems(items, totalPrice);
+			twitchState.setInventoryItems(items, getTotalPrice(items));
 		}
 		else if (config.equipmentEnabled() && isEquipment)
 		{
-			twitchState.setEquipmentItems(items, totalPrice);
+			twitchState.setEquipmentItems(items, getTotalPrice(items));
 		}
 		else if (config.bankEnabled() && isBank)
 		{
-			setSlicedBankItems(items, totalPrice);
+			setSlicedBankItems(items);
 		}
 		else if (config.lootingBagEnabled() && isLootingBag)
 		{
-			twitchState.setLootingBagItems(items, totalPrice);
+			twitchState.setLootingBagItems(items, getTotalPrice(items));
 		}
 
 		// update the weight for specific container changes
@@ -87,6 +111,14 @@ public class ItemStateManager {
 		}
 	}
 
+	/**
+	 * Handle the next event of every container, even when its items are identical, to apply changed settings.
+	 */
+	public void clearContainerItems()
+	{
+		containerItems.clear();
+	}
+
 	public int[] getBankTabAmounts()
 	{
 		final int tabAmount = BANK_TAB_VARBITS.size();
@@ -112,11 +144,15 @@ public class ItemStateManager {
 		return eventContainerId == containerId;
 	}
 
-	public void setSlicedBankItems(Item[] items, long totalPrice)
+	public void setSlicedBankItems(Item[] items)
 	{
 		final int[] tabAmounts = getBankTabAmounts();
 		final int maxItemAmount = getMaxBankItemAmount();
-		final List<PricedItem> highestPricedItems = getHighestPricedItems(items, tabAmounts, maxItemAmount);
+
+		// only the slots that changed since the previous bank are priced again
+		bankItemIndex.update(items, tabAmounts);
+
+		final List<PricedItem> highestPricedItems = bankItemIndex.getHighestPricedItems(maxItemAmount);
 		final Item[] selectedItems = new Item[highestPricedItems.size()];
 		final int[] selectedTabAmounts = new int[tabAmounts.length];
 
@@ -126,7 +162,7 @@ public class ItemStateManager {
 		{
 			PricedItem pricedItem = highestPricedItems.get(pricedItemIndex);
 			final Item selectedItem = pricedItem.getItem();
-			final int tabId = pricedItem.getTabId();
+			final int tabId = bankItemIndex.getTabId(pricedItem.getSlotId());
 
 			selectedItems[pricedItemIndex] = selectedItem;
 
@@ -136,45 +172,69 @@ public class ItemStateManager {
 		}
 
 		twitchState.setBankItems(selectedItems, selectedTabAmounts);
-		twitchState.setBankItemsPrice(totalPrice);
+		twitchState.setBankItemsPrice(bankItemIndex.getTotalPrice());
 	}
 
-	public CopyOnWriteArrayList<PricedItem> getPricedItems(Item[] items)
+	public List<PricedItem> getPricedItems(Item[] items)
 	{
 		return getPricedItems(items, new int[0]);
 	}
 
-	public CopyOnWriteArrayList<PricedItem> getPricedItems(Item[] items, int[] tabAmounts)
+	public List<PricedItem> getPricedItems(Item[] items, int[] tabAmounts)
 	{
-		final CopyOnWriteArrayList<PricedItem> pricedItems = new CopyOnWriteArrayList<>();
+		final List<PricedItem> pricedItems = new ArrayList<>(items.length);
 
 		for (int slotId = 0; slotId < items.length; slotId++)
 		{
-			Item item = items[slotId];
-			int itemId = item.getId();
-			int itemQuantity = item.getQuantity();
-
-			// translate placeholder IDs to their actual items
-			if (isPlaceholderItem(itemId))
-			{
-				itemId = itemManager.getItemComposition(itemId).getPlaceholderId();
-				itemQuantity = 0;
-				item = new Item(itemId, itemQuantity);
-			}
-
-			final long itemPrice = ((long) itemManager.getItemPrice(itemId)) * itemQuantity;
 			final int tabId = getItemTabId(slotId, tabAmounts);
-			final PricedItem pricedItem = new PricedItem(item, itemPrice, slotId, tabId);
 
-			pricedItems.add(pricedItem);
+			pricedItems.add(getPricedItem(items[slotId], slotId, tabId));
 		}
 
 		return pricedItems;
 	}
 
+	public PricedItem getPricedItem(Item item, int slotId, int tabId)
+	{
+		final int itemId = item.getId();
+
+		// translate placeholder IDs to their actual items
+		if (isPlaceholderItem(itemId))
+		{
+			item = new Item(itemPriceCache.getPlaceholderItemId(itemId), 0);
+		}
+
+		return new PricedItem(item, getItemPrice(item), slotId, tabId);
+	}
+
+	/**
+	 * Get the price of all the items in a slot, where placeholders are always worthless.
+	 */
+	public long getItemPrice(Item item)
+	{
+		final int itemId = item.getId();
+		final int itemQuantity = item.getQuantity();
+
+		// guard: skip the lookup of empty slots and placeholders
+		if (itemQuantity == 0 || isPlaceholderItem(itemId))
+		{
+			return 0;
+		}
+
+		return itemPriceCache.getPrice(itemId) * itemQuantity;
+	}
+
+	/**
+	 * Get the generation of the item prices, which changes when the prices expired and items should be priced again.
+	 */
+	public int getPriceGeneration()
+	{
+		return itemPriceCache.getPriceGeneration();
+	}
+
 	public boolean isPlaceholderItem(int itemId)
 	{
-		return itemManager.getItemComposition(itemId).getPlaceholderTemplateId() != -1;
+		return itemPriceCache.isPlaceholder(itemId);
 	}
 
 	public int getItemTabId(int slotId, int[] tabAmounts)
@@ -198,31 +258,55 @@ public class ItemStateManager {
 	public long getTotalPrice(Item[] items)
 	{
 		long totalPrice = 0;
-		final CopyOnWriteArrayList<PricedItem> pricedItems = getPricedItems(items);
 
-		for (PricedItem pricedItem : pricedItems)
+		for (Item item : items)
 		{
-			totalPrice += pricedItem.getPrice();
+			totalPrice += getItemPrice(item);
 		}
 
 		return totalPrice;
 	}
 
-	public List<PricedItem> getHighestPricedItems(Item[] items, int[] tabAmounts, int maxAmount)
+	/**
+	 * Store the items of a container and get whether they are identical to the previous event of the container.
+	 * The items are compared exactly and copied into the arrays of the previous event, so nothing is allocated
+	 * unless the amount of slots changed.
+	 */
+	private boolean updateContainerItems(int containerId, Item[] items)
 	{
-		final CopyOnWriteArrayList<PricedItem> pricedItems = getPricedItems(items, tabAmounts);
-		pricedItems.sort(new ItemPriceSorter());
-		final int itemAmount = pricedItems.size();
+		ContainerItems previousItems = containerItems.get(containerId);
+		boolean isSameItems = true;
 
-		if (maxAmount > itemAmount)
+		// guard: handle the first event of a container as a change
+		if (previousItems == null)
 		{
-			maxAmount = itemAmount;
+			previousItems = new ContainerItems();
+			containerItems.put(containerId, previousItems);
+			isSameItems = false;
 		}
 
-		final List<PricedItem> highestPricedItems = pricedItems.subList(0, maxAmount);
-		highestPricedItems.sort(new ItemSlotIdSorter());
+		if (previousItems.itemIds.length != items.length)
+		{
+			previousItems.itemIds = new int[items.length];
+			previousItems.itemQuantities = new int[items.length];
+			isSameItems = false;
+		}
+
+		for (int slotId = 0; slotId < items.length; slotId++)
+		{
+			final Item item = items[slotId];
+			final int itemId = item.getId();
+			final int itemQuantity = item.getQuantity();
+
+			if (previousItems.itemIds[slotId] != itemId || previousItems.itemQuantities[slotId] != itemQuantity)
+			{
+				previousItems.itemIds[slotId] = itemId;
+				previousItems.itemQuantities[slotId] = itemQuantity;
+				isSameItems = false;
+			}
+		}
 
-		return highestPricedItems;
+		return isSameItems;
 	}
 
 	public int getMaxBankItemAmount()
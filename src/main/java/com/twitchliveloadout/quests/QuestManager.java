@@ -5,12 +5,27 @@ import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
 import com.twitchliveloadout.twitch.TwitchState;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
+import net.runelite.api.events.ScriptPostFired;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.api.events.WidgetLoaded;
 import net.runelite.api.widgets.Widget;
 
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Tracks the quest list based on the events that can change it instead of reading it periodically.
+ * The client redraws the quest list with a script when the progress of a quest changes and the
+ * quest points change when a quest is completed, so these events mark the quest list as changed.
+ * On the next game tick the list is compared with the previous one and the quests are only set
+ * again when any of them actually changed.
+ */
 @Slf4j
 public class QuestManager {
 	private static final int QUEST_LIST_GROUP_ID = 399;
 	private static final int QUEST_LIST_CHILD_ID = 7;
+	private static final int QUEST_LIST_DRAW_SCRIPT_ID = 1340;
+	private static final int QUEST_POINTS_VARP_ID = 101;
 
 	private static final int CATEGORY_QUEST_TEXT_COLOR = 16750623; // free / member / mini quests title
 	private static final int INVALID_QUEST_TEXT_COLOR = 0; // recipe for disaster subquests
@@ -19,6 +34,13 @@ public class QuestManager {
 	private final TwitchState twitchState;
 	private final Client client;
 
+	/**
+	 * The quests as they were last set to compare the quest list with.
+	 */
+	private String[] questTexts = new String[0];
+	private int[] questTextColors = new int[0];
+	private boolean questListChanged = true;
+
 	public QuestManager(TwitchLiveLoadoutPlugin plugin, TwitchState twitchState, Client client)
 	{
 		this.plugin = plugin;
@@ -26,25 +48,87 @@ public class QuestManager {
 		this.client = client;
 	}
 
+	public void onVarbitChanged(VarbitChanged varbitChanged)
+	{
+
+		// the progress of other quests is handled by the script redrawing the quest list
+		if (varbitChanged.getVarpId() == QUEST_POINTS_VARP_ID)
+		{
+			questListChanged = true;
+		}
+	}
+
+	public void onScriptPostFired(ScriptPostFired scriptPostFired)
+	{
+		if (scriptPostFired.getScriptId() == QUEST_LIST_DRAW_SCRIPT_ID)
+		{
+			questListChanged = true;
+		}
+	}
+
+	public void onWidgetLoaded(WidgetLoaded widgetLoaded)
+	{
+		if (widgetLoaded.getGroupId() == QUEST_LIST_GROUP_ID)
+		{
+			questListChanged = true;
+		}
+	}
+
+	/**
+	 * Read the quest list again, even when it is the same as the last set quests.
+	 * This should be done when another account logs in or the quests are enabled again.
+	 */
+	public void resetQuests()
+	{
+		questTexts = new String[0];
+		questTextColors = new int[0];
+		questListChanged = true;
+	}
+
+	public void onGameTick()
+	{
+
+		// guard: skip when nothing could have changed
+		if (!questListChanged)
+		{
+			return;
+		}
+
+		updateQuests();
+	}
+
 	public void updateQuests()
 	{
 		Widget questListWidget = client.getWidget(QUEST_LIST_GROUP_ID, QUEST_LIST_CHILD_ID);
-		JsonArray questsState = new JsonArray();
 
-		// guard: check if the quest list is valid
+		// guard: check if the quest list is valid, which is checked again next tick
 		if (questListWidget == null)
 		{
 			return;
 		}
 
-		for (Widget questWidget : questListWidget.getDynamicChildren())
+		questListChanged = false;
+		Widget[] questWidgets = questListWidget.getDynamicChildren();
+
+		// guard: skip when no quest changed, which is the case for most varbit changes
+		if (hasQuests(questWidgets))
+		{
+			return;
+		}
+
+		JsonArray questsState = new JsonArray();
+		String[] newQuestTexts = new String[questWidgets.length];
+		int[] newQuestTextColors = new int[questWidgets.length];
+		int questAmount = 0;
+
+		for (Widget questWidget : questWidgets)
 		{
 			String text = questWidget.getText();
 			int textColor = questWidget.getTextColor();
 			JsonArray questEntryState = new JsonArray();
 
 			// guard: skip invalid text colors
-			if (textColor == CATEGORY_QUEST_TEXT_COLOR || textColor == INVALID_QUEST_TEXT_COLOR)
+			if (!isQuest(textColor))
 			{
 				continue;
 			}
@@ -56,8 +140,54 @@ public class QuestManager {
 			questEntryState.add(text);
 			questEntryState.add(textColor);
 			questsState.add(questEntryState);
+
+			newQuestTexts[questAmount] = text;
+			newQuestTextColors[questAmount] = textColor;
+			questAmount++;
 		}
 
+		// guard: the quest list is not drawn yet, which should not clear the quests of the account
+		if (questAmount <= 0)
+		{
+			return;
+		}
+
+		questTexts = Arrays.copyOf(newQuestTexts, questAmount);
+		questTextColors = Arrays.copyOf(newQuestTextColors, questAmount);
 		twitchState.setQuests(questsState);
 	}
+
+	/**
+	 * Get whether the quest widgets are the same as the last set quests without allocating anything.
+	 */
+	private boolean hasQuests(Widget[] questWidgets)
+	{
+		int questIndex = 0;
+
+		for (Widget questWidget : questWidgets)
+		{
+			int textColor = questWidget.getTextColor();
+
+			if (!isQuest(textColor))
+			{
+				continue;
+			}
+
+			if (questIndex >= questTexts.length
+				|| questTextColors[questIndex] != textColor
+				|| !Objects.equals(questTexts[questIndex], questWidget.getText()))
+			{
+				return false;
+			}
+
+			questIndex++;
+		}
+
+		return questIndex == questTexts.length;
+	}
+
+	private boolean isQuest(int textColor)
+	{
+		return textColor != CATEGORY_QUEST_TEXT_COLOR && textColor != INVALID_QUEST_TEXT_COLOR;
+	}
 }
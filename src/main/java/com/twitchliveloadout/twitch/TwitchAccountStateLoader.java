@@ -0,0 +1,143 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads the persisted state of an account, such as the bank and collection log, on a pool
+ * of worker threads where all keys are loaded in parallel. The state of the last few accounts
+ * is kept in memory, which makes switching back to a recent account instant. Accounts that were
+ * stored before the snapshots existed are loaded from the configuration and migrated.
+ */
+public class TwitchAccountStateLoader
+{
+	private final static int LOADER_THREAD_AMOUNT = 4;
+	private final static int MAX_CACHED_ACCOUNT_AMOUNT = 4;
+
+	private final TwitchLiveLoadoutPlugin plugin;
+	private final TwitchStateSnapshotStore snapshotStore;
+	private final ExecutorService loaderExecutor = Executors.newFixedThreadPool(LOADER_THREAD_AMOUNT);
+
+	/**
+	 * The most recently used accounts with their state per key, the least recently used is evicted first.
+	 */
+	private final LinkedHashMap<String, Map<String, JsonElement>> cachedAccountStates = new LinkedHashMap<String, Map<String, JsonElement>>(MAX_CACHED_ACCOUNT_AMOUNT, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Map<String, JsonElement>> eldestEntry)
+		{
+			return size() > MAX_CACHED_ACCOUNT_AMOUNT;
+		}
+	};
+
+	public TwitchAccountStateLoader(TwitchLiveLoadoutPlugin plugin, TwitchStateSnapshotStore snapshotStore)
+	{
+		this.plugin = plugin;
+		this.snapshotStore = snapshotStore;
+	}
+
+	/**
+	 * Get the state of an account with only the keys that were found. The player name is
+	 * required because it is not accessible outside of the client thread.
+	 */
+	public CompletableFuture<Map<String, JsonElement>> load(String accountIdentifier, String playerName, List<String> keys)
+	{
+		final Map<String, JsonElement> cachedAccountState = getCachedAccountState(accountIdentifier);
+
+		// guard: use the cached state when switching back to a recent account
+		if (cachedAccountState != null)
+		{
+			return CompletableFuture.completedFuture(cachedAccountState);
+		}
+
+		final Map<String, CompletableFuture<JsonElement>> loadingKeys = new LinkedHashMap<>();
+
+		for (String key : keys)
+		{
+			loadingKeys.put(key, CompletableFuture.supplyAsync(() -> loadKey(accountIdentifier, playerName, key), loaderExecutor));
+		}
+
+		return CompletableFuture
+			.allOf(loadingKeys.values().toArray(new CompletableFuture[0]))
+			.thenApply((ignored) -> {
+				final Map<String, JsonElement> accountState = new HashMap<>();
+
+				loadingKeys.forEach((key, loadingKey) -> {
+					final JsonElement value = loadingKey.join();
+
+					if (value != null)
+					{
+						accountState.put(key, value);
+					}
+				});
+
+				return accountState;
+			});
+	}
+
+	/**
+	 * Keep the state of an account in memory, for example when switching to another account.
+	 */
+	public synchronized void cache(String accountIdentifier, Map<String, JsonElement> accountState)
+	{
+		cachedAccountStates.put(accountIdentifier, accountState);
+	}
+
+	public void shutDown()
+	{
+		loaderExecutor.shutdownNow();
+
+		synchronized (this)
+		{
+			cachedAccountStates.clear();
+		}
+	}
+
+	private synchronized Map<String, JsonElement> getCachedAccountState(String accountIdentifier)
+	{
+		return cachedAccountStates.get(accountIdentifier);
+	}
+
+	private JsonElement loadKey(String accountIdentifier, String playerName, String key)
+	{
+		try {
+			final JsonElement snapshot = snapshotStore.load(accountIdentifier, key);
+
+			// guard: the snapshot is always the most recent when it exists
+			if (snapshot != null)
+			{
+				return snapshot;
+			}
+		} catch (Exception exception) {
+			plugin.logSupport("Could not load the snapshot '"+ key +"' due to the following error: ", exception);
+		}
+
+		try {
+			final String rawData = plugin.getConfiguration(accountIdentifier, playerName, key);
+
+			// guard: check if any data was found
+			if (rawData == null || rawData.trim().isEmpty())
+			{
+				return null;
+			}
+
+			// migrate to a snapshot, the configuration is kept as is for older versions of the plugin
+			final JsonElement data = new JsonParser().parse(rawData);
+			snapshotStore.save(accountIdentifier, key, data);
+
+			return data;
+		} catch (Exception exception) {
+			plugin.logSupport("Could not load the configuration '"+ key +"' due to the following error: ", exception);
+		}
+
+		return null;
+	}
+}
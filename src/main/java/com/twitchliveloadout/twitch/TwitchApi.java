@@ -1,5 +1,6 @@
 package com.twitchliveloadout.twitch;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -19,62 +20,61 @@ import okhttp3.*;
 
 import static net.runelite.http.api.RuneLiteAPI.JSON;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Base64;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class TwitchApi
 {
 	public final static int MAX_PAYLOAD_SIZE = 5120; // bytes
 
-	// this delay supports two clients to sync fast enough while not exceeding the rate limit (1000ms)
-	public final static int MIN_SCHEDULE_DEFAULT_DELAY = 1300; // ms
+	// the delay while logged in is determined by the rate limiter
 	public final static int MIN_SCHEDULE_LOGGED_OUT_DELAY = 6000; // ms
 	public final static int MIN_SCHEDULE_GROUP_DELAY = 6000; // ms
-	public final static int MAX_SCHEDULED_STATE_AMOUNT = 50;
 
 	public final static String DEFAULT_EXTENSION_CLIENT_ID = "cuhr4y87yiqd92qebs1mlrj3z5xfp6";
 	public final static String DEFAULT_TWITCH_EBS_BASE_URL = "https://liveloadout.com";
 	public final static String DEFAULT_TWITCH_BASE_URL = "https://api.twitch.tv/helix/extensions";
-	private final static String RATE_LIMIT_REMAINING_HEADER = "Ratelimit-Remaining";
 
 	public final static int MIN_SYNC_DELAY = 0; // ms
 	public final static int BASE_SYNC_DELAY = 1000; // ms
-	public final static double LOW_RATE_LIMIT_DELAY_MULTIPLIER = 2d;
-	public final static int LOW_RATE_LIMIT_REMAINING = 50;
-	public final static double HIGH_RATE_LIMIT_DELAY_MULTIPLIER = 0.5d;
-	public final static int HIGH_RATE_LIMIT_REMAINING = 90;
 
 	public final static boolean NOTIFY_IN_CHAT_ENABLED = true;
-	private final static int SEND_PUBSUB_TIMEOUT_MS = 10 * 1000;
-	private final static int GET_CONFIGURATION_SERVICE_TIMEOUT_MS = 5 * 1000;
-	private final static int GET_EBS_PRODUCTS_TIMEOUT_MS = 10 * 1000;
-	private final static int GET_EBS_TRANSACTIONS_TIMEOUT_MS = 10 * 1000;
 	private final static int ERROR_CHAT_MESSAGE_THROTTLE = 15 * 60 * 1000; // in ms
 	private final static String USER_AGENT = "RuneLite";
 
 	/**
-	 * Dedicated scheduler for sending the new state with a stream delay
+	 * Dedicated scheduler for compressing the new state and sending it after the stream delay
 	 */
 	private final ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+	private final static int DELAY_LINE_POLL_INTERVAL_MS = 100;
 
 	/**
-	 * Dedicated HTTP clients for every type of request
+	 * Compressed states waiting for the stream delay, the generation is
+	 * increased when cleared to skip states that are still being compressed
 	 */
-	private final OkHttpClient httpClientTemplate;
-	private final OkHttpClient ebsTransactionsHttpClient;
-	private final OkHttpClient configurationSegmentHttpClient;
-	private final OkHttpClient pubSubHttpClient;
-	final OkHttpClient ebsProductsHttpClient;
+	private final TwitchStateDelayLine delayLine = new TwitchStateDelayLine();
+	private final AtomicInteger delayLineGeneration = new AtomicInteger();
+
+	/**
+	 * Shared HTTP transport with the timeouts, retries and limits of every endpoint
+	 */
+	private final TwitchHttpTransport httpTransport;
+	private final TwitchJournal journal;
+
+	/**
+	 * Counters and latency histograms of every stage of the sync pipeline
+	 */
+	@Getter
+	private final TwitchSyncMetrics syncMetrics;
 
 	private final TwitchLiveLoadoutPlugin plugin;
 	private final Client client;
@@ -86,7 +86,17 @@ public class TwitchApi
 	private String lastCompressedState = "";
 
 	@Getter
-	private int lastRateLimitRemaining = 100;
+	private int lastCompressedStateSize = 0;
+
+	/**
+	 * Budget of requests shared by all clients syncing to the same channel
+	 */
+	private final TwitchRateLimiter rateLimiter = new TwitchRateLimiter();
+
+	/**
+	 * Elects a single client to sync when multiple clients sync to the same channel
+	 */
+	private final TwitchSyncCoordinator syncCoordinator;
 
 	@Getter
 	private String lastResponseMessage = "Unknown status";
@@ -99,25 +109,41 @@ public class TwitchApi
 
 	private final ConcurrentHashMap<TwitchSegmentType, JsonObject> configurationSegmentContents = new ConcurrentHashMap<>();
 
-	public TwitchApi(TwitchLiveLoadoutPlugin plugin, Client client, TwitchLiveLoadoutConfig config, ChatMessageManager chatMessageManager, OkHttpClient httpClientTemplate)
+	/**
+	 * Last state accepted by Twitch to only send the changes when delta syncing is enabled
+	 */
+	private final TwitchStateDelta stateDelta = new TwitchStateDelta();
+
+	/**
+	 * Reused serializer and compressor to prevent allocating the full state multiple times per send
+	 */
+	private final TwitchStateCompressor stateCompressor;
+
+	public TwitchApi(TwitchLiveLoadoutPlugin plugin, Client client, TwitchLiveLoadoutConfig config, ChatMessageManager chatMessageManager, OkHttpClient httpClientTemplate, Gson gson, TwitchStateCompressionTuner compressionTuner, TwitchSyncCoordinator syncCoordinator)
 	{
 		this.plugin = plugin;
 		this.client = client;
 		this.config = config;
 		this.chatMessageManager = chatMessageManager;
-		this.httpClientTemplate = httpClientTemplate;
-
-		// instantiate a HTTP client for every call with a different timeout
-		ebsTransactionsHttpClient = createHttpClient(GET_EBS_TRANSACTIONS_TIMEOUT_MS);
-		configurationSegmentHttpClient = createHttpClient(GET_CONFIGURATION_SERVICE_TIMEOUT_MS);
-		pubSubHttpClient = createHttpClient(SEND_PUBSUB_TIMEOUT_MS);
-		ebsProductsHttpClient = createHttpClient(GET_EBS_PRODUCTS_TIMEOUT_MS);
+		this.journal = new TwitchJournal(plugin, config);
+		this.httpTransport = new TwitchHttpTransport(plugin, httpClientTemplate, journal);
+		this.syncMetrics = new TwitchSyncMetrics(plugin);
+		this.stateCompressor = new TwitchStateCompressor(gson, compressionTuner);
+		this.syncCoordinator = syncCoordinator;
+
+		scheduledExecutor.scheduleWithFixedDelay(this::sendDueStates, DELAY_LINE_POLL_INTERVAL_MS, DELAY_LINE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		syncMetrics.register();
 	}
 
 	public void shutDown()
 	{
 		clearScheduledBroadcasterStates();
 		scheduledExecutor.shutdown();
+		syncCoordinator.shutDown();
+		httpTransport.shutDown();
+		journal.shutDown();
+		stateCompressor.shutDown();
+		syncMetrics.unregister();
 	}
 
 	public void scheduleBroadcasterState(final JsonObject state)
@@ -136,33 +162,69 @@ public class TwitchApi
 			delay = MIN_SYNC_DELAY;
 		}
 
-		// schedule in the future, this also makes sure the HTTP requests are done on their own thread.
-		scheduledExecutor.schedule(new Runnable()
-		{
-			public void run()
-			{
-				try {
-					sendAsyncPubSubState(state);
-				} catch (Exception exception) {
-					plugin.logSupport("Could not send the pub sub state due to the following error: ", exception);
+		final Instant dueTime = Instant.now().plusMillis(delay);
+		final int generation = delayLineGeneration.get();
+
+		// compress right away on another thread so only the compressed
+		// state is kept in memory while waiting for the stream delay
+		scheduledExecutor.execute(() -> {
+			try {
+
+				// guard: skip states that were scheduled before the delay line was cleared
+				if (generation != delayLineGeneration.get())
+				{
+					syncMetrics.increment(TwitchSyncCounter.DISCARDED);
+					return;
 				}
+
+				delayState(state, dueTime);
+			} catch (Exception exception) {
+				plugin.logSupport("Could not delay the pub sub state due to the following error: ", exception);
 			}
-		}, delay, TimeUnit.MILLISECONDS);
+		});
 
+		rateLimiter.acquire();
 		lastScheduleStateTime = Instant.now();
 	}
 
-	public boolean canScheduleState()
+	/**
+	 * Update whether this client is the one syncing to the channel, when taking over
+	 * the rate limit budget that was last shared by the previous leader is used.
+	 */
+	public boolean updateSyncLeadership()
 	{
+		final boolean wasLeader = syncCoordinator.isLeader();
+		final boolean isLeader = syncCoordinator.heartbeat(getChannelId());
+		final int sharedRemaining = syncCoordinator.getSharedRateLimitRemaining();
+		final Instant sharedResetTime = syncCoordinator.getSharedRateLimitResetTime();
 
-		// guard: if the scheduler is shutdown block all future requests
-		if (scheduledExecutor.isShutdown())
+		if (isLeader && !wasLeader && sharedRemaining >= 0 && sharedResetTime != null)
 		{
-			return false;
+			rateLimiter.update(null, Integer.toString(sharedRemaining), Long.toString(sharedResetTime.getEpochSecond()));
+		}
+
+		// followers should not send anything that was scheduled before losing the leadership
+		if (!isLeader && wasLeader)
+		{
+			clearScheduledBroadcasterStates();
 		}
 
-		// guard: check if the queue is too large
-		if (scheduledExecutor.getQueue().size() >= MAX_SCHEDULED_STATE_AMOUNT)
+		return isLeader;
+	}
+
+	/**
+	 * Get whether this client was the leader at the last heartbeat, followers should not build states or send requests.
+	 */
+	public boolean isSyncLeader()
+	{
+		return syncCoordinator.isLeader();
+	}
+
+	public boolean canScheduleState()
+	{
+
+		// guard: if the scheduler is shutdown block all future requests
+		if (scheduledExecutor.isShutdown())
 		{
 			return false;
 		}
@@ -173,40 +235,100 @@ public class TwitchApi
 			return true;
 		}
 
-		boolean isLoggedIn = plugin.isLoggedIn(true);
-		Instant now = Instant.now();
-		int delayMs = isLoggedIn ? MIN_SCHEDULE_DEFAULT_DELAY : MIN_SCHEDULE_LOGGED_OUT_DELAY;
-
-		// multiply the delay time if the rate limit is decreasing too fast
-		// this can be the case with many accounts logged in
-		if (lastRateLimitRemaining < LOW_RATE_LIMIT_REMAINING)
+		// guard: only send updates sporadically when logged out
+		if (!plugin.isLoggedIn(true) && Instant.now().isBefore(lastScheduleStateTime.plusMillis(MIN_SCHEDULE_LOGGED_OUT_DELAY)))
 		{
-			delayMs *= LOW_RATE_LIMIT_DELAY_MULTIPLIER;
+			return false;
 		}
 
-		// decrease the delay when there are enough requests available
-		// this can be the case with only one RL client open
-		if (lastRateLimitRemaining > HIGH_RATE_LIMIT_REMAINING)
+		return rateLimiter.canAcquire();
+	}
+
+	/**
+	 * Get the moments the next states can be sent without exceeding the rate limit.
+	 */
+	public List<Instant> getPredictedStateSlots(int amount)
+	{
+		return rateLimiter.getPredictedSlots(amount);
+	}
+
+	public int getLastRateLimitRemaining()
+	{
+		return rateLimiter.getRemaining();
+	}
+
+	public void clearScheduledBroadcasterStates()
+	{
+		delayLineGeneration.incrementAndGet();
+		syncMetrics.add(TwitchSyncCounter.DISCARDED, delayLine.clear());
+
+		// the cleared states might have contained the keyframe
+		stateDelta.requestKeyframe();
+	}
+
+	public void requestStateKeyframe()
+	{
+		stateDelta.requestKeyframe();
+	}
+
+	private void delayState(JsonObject state, Instant dueTime)
+	{
+
+		// only send the changed entries when delta syncing is enabled
+		final boolean isDeltaSyncEnabled = config.deltaSyncEnabled();
+		final long serializationStartNanos = System.nanoTime();
+		final JsonObject message = (isDeltaSyncEnabled ? stateDelta.encode(state, config.deltaSyncKeyframeInterval() * 1000) : state);
+		final JsonObject wireMessage = encodeWireFormat(message);
+		syncMetrics.recordSince(TwitchSyncMetric.SERIALIZATION, serializationStartNanos);
+
+		final long compressionStartNanos = System.nanoTime();
+		final String compressedState = compressState(wireMessage);
+		syncMetrics.recordSince(TwitchSyncMetric.COMPRESSION, compressionStartNanos);
+
+		// guard: make sure the state could be compressed
+		if (compressedState == null)
 		{
-			delayMs *= HIGH_RATE_LIMIT_DELAY_MULTIPLIER;
+			syncMetrics.increment(TwitchSyncCounter.DISCARDED);
+			stateDelta.requestKeyframe();
+			return;
 		}
 
-		Instant minTime = lastScheduleStateTime.plusMillis(delayMs);
+		// the message is only needed afterwards to acknowledge the delta
+		final JsonObject acknowledgeMessage = (isDeltaSyncEnabled ? message : null);
+		final boolean isKeyframe = isDeltaSyncEnabled && message.get(TwitchStateEntry.SYNC_KEYFRAME.getKey()).getAsBoolean();
 
-		return now.isAfter(minTime);
+		if (delayLine.add(new TwitchStateDelayLine.DelayedState(compressedState, message, acknowledgeMessage, isKeyframe, dueTime)))
+		{
+			syncMetrics.increment(TwitchSyncCounter.REPLACED);
+		}
 	}
 
-	public void clearScheduledBroadcasterStates()
+	private void sendDueStates()
 	{
-		scheduledExecutor.getQueue().clear();
+		try {
+			for (TwitchStateDelayLine.DelayedState delayedState : delayLine.pollDue(Instant.now()))
+			{
+				syncMetrics.recordSince(TwitchSyncMetric.QUEUE_WAIT, delayedState.getCreatedNanos());
+
+				if (!sendAsyncPubSubState(delayedState))
+				{
+					syncMetrics.increment(TwitchSyncCounter.DISCARDED);
+				}
+			}
+		} catch (Exception exception) {
+			// catch everything, because an exception would stop the periodic polling
+			plugin.logSupport("Could not send the pub sub state due to the following error: ", exception);
+		}
 	}
 
-	private boolean sendAsyncPubSubState(JsonObject state)
+	private boolean sendAsyncPubSubState(TwitchStateDelayLine.DelayedState delayedState)
 	{
 		try {
 			final JsonObject data = new JsonObject();
 			final JsonArray targets = new JsonArray();
 			final String channelId = getChannelId();
+			final String compressedState = delayedState.getCompressedState();
+			final JsonObject acknowledgeMessage = delayedState.getMessage();
 
 			// guard: make sure the channel ID is valid
 			if (channelId == null)
@@ -215,19 +337,39 @@ public class TwitchApi
 			}
 
 			targets.add(TwitchPubSubTargetType.BROADCAST.getTarget());
-			String compressedState = compressState(state);
 
 			data.addProperty("message", compressedState);
 			data.addProperty("broadcaster_id", channelId);
 			data.add("target", targets);
 
+			final long sendStartNanos = System.nanoTime();
 			sendAsyncPubSubMessage(data, (Response response) -> {
-				verifyStateUpdateResponse("PubSub", response, compressedState);
+				syncMetrics.recordSince(TwitchSyncMetric.HTTP_ROUND_TRIP, sendStartNanos);
+
+				try {
+					verifyStateUpdateResponse("PubSub", response, compressedState);
+				} catch (Exception exception) {
+					// viewers might have missed changes, so send everything again
+					syncMetrics.increment(TwitchSyncCounter.REJECTED);
+					stateDelta.requestKeyframe();
+					throw exception;
+				}
+
+				syncMetrics.increment(TwitchSyncCounter.SENT);
+
+				if (acknowledgeMessage != null)
+				{
+					stateDelta.acknowledge(acknowledgeMessage);
+				}
 			}, (exception) -> {
+				syncMetrics.increment(TwitchSyncCounter.FAILED);
+				stateDelta.requestKeyframe();
 				plugin.logSupport("Could not send pub sub state due to the following error: ", exception);
 			});
 
 			lastCompressedState = compressedState;
+			lastCompressedStateSize = compressedState.length();
+			syncMetrics.record(TwitchSyncMetric.PAYLOAD_SIZE, lastCompressedStateSize);
 		} catch (Exception exception) {
 			plugin.logSupport("Could not send pub sub state due to the following error: ", exception);
 			return false;
@@ -241,7 +383,7 @@ public class TwitchApi
 		final String url = DEFAULT_TWITCH_BASE_URL +"/pubsub";
 
 		// Documentation: https://dev.twitch.tv/docs/extensions/reference/#send-extension-pubsub-message
-		performPostRequest(url, data, pubSubHttpClient, responseHandler, errorHandler);
+		performPostRequest(url, data, TwitchHttpEndpoint.PUBSUB, responseHandler, errorHandler);
 	}
 
 	public void fetchAsyncEbsProducts(HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
@@ -249,7 +391,7 @@ public class TwitchApi
 		String url = DEFAULT_TWITCH_EBS_BASE_URL +"/api/marketplace-products";
 		final JsonObject data = new JsonObject();
 
-		performPostRequest(url, data, ebsProductsHttpClient, responseHandler, errorHandler);
+		performPostRequest(url, data, TwitchHttpEndpoint.EBS_PRODUCTS, responseHandler, errorHandler);
 	}
 
 	public void fetchAsyncEbsTransactions(String lastTransactionId, HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
@@ -263,7 +405,7 @@ public class TwitchApi
 			data.addProperty("lastTransactionId", lastTransactionId);
 		}
 
-		performPostRequest(url, data, ebsTransactionsHttpClient, responseHandler, errorHandler);
+		performPostRequest(url, data, TwitchHttpEndpoint.EBS_TRANSACTIONS, responseHandler, errorHandler);
 	}
 
 	public void fetchAsyncConfigurationSegment(TwitchSegmentType segmentType) throws Exception
@@ -281,7 +423,7 @@ public class TwitchApi
 		final String url = baseUrl +"?broadcaster_id="+ channelId +"&extension_id="+ clientId +"&segment="+ segmentType.getKey();
 
 		// documentation: https://dev.twitch.tv/docs/api/reference#get-extension-configuration-segment
-		performGetRequest(url, configurationSegmentHttpClient, (Response response) -> {
+		performGetRequest(url, TwitchHttpEndpoint.CONFIGURATION_SEGMENT, (Response response) -> {
 
 			// there is a fair chance the configuration segment is empty when nothing is configured yet
 			// for this reason we silently ignore the error
@@ -310,7 +452,8 @@ public class TwitchApi
 	{
 		final int responseCode = response.code();
 		final String responseText = response.body().string();
-		final int compressesStateSize = compressedState.getBytes("UTF-8").length;
+		// Base64 only contains single byte characters
+		final int compressesStateSize = compressedState.length();
 		final long now = Instant.now().getEpochSecond();
 		final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
 		final String nowFormatted = Instant.ofEpochSecond(now).atZone(ZoneId.systemDefault()).format(dateFormatter);
@@ -344,7 +487,9 @@ public class TwitchApi
 		response.close();
 		lastResponseMessage = responseCodeMessage;
 		lastResponseCode = responseCode;
-		lastRateLimitRemaining = Integer.parseInt(response.header(RATE_LIMIT_REMAINING_HEADER, "100"));
+		rateLimiter.handleResponse(responseCode, response.headers());
+
+		syncCoordinator.shareRateLimit(rateLimiter.getRemaining(), rateLimiter.getResetTime());
 
 		if (isErrorResponseCode(responseCode))
 		{
@@ -393,7 +538,7 @@ public class TwitchApi
 	{
 		String[] parts = splitToken(getToken());
 		String payloadBase64String = parts[1];
-		String payloadString = new String(Base64.getDecoder().decode(payloadBase64String), StandardCharsets.UTF_8);;
+		String payloadString = new String(Base64.getDecoder().decode(payloadBase64String), StandardCharsets.UTF_8);
 		JsonObject payload = parseJson(payloadString);
 
 		return payload;
@@ -420,14 +565,24 @@ public class TwitchApi
 		return parts;
 	}
 
+	/**
+	 * Convert the state to the wire format that is enabled, which is only done
+	 * right before sending so the state itself always stays in the regular format.
+	 */
+	public JsonObject encodeWireFormat(JsonObject state)
+	{
+		if (!config.compactWireFormatEnabled())
+		{
+			return state;
+		}
+
+		return TwitchStateWireFormat.encode(state);
+	}
+
 	public String compressState(JsonObject state)
 	{
 		try {
-			String jsonString = state.toString();
-			byte[] compressedState = compress(jsonString);
-			String compressedStateString = new String(Base64.getEncoder().encode(compressedState), StandardCharsets.UTF_8);
-
-			return compressedStateString;
+			return stateCompressor.compressToBase64(state, TwitchStateCodec.fromConfig(config));
 		} catch (Exception exception) {
 			// empty?
 		}
@@ -435,20 +590,18 @@ public class TwitchApi
 		return null;
 	}
 
-	public static byte[] compress(final String str) throws IOException
+	/**
+	 * Get the size of the compressed state in bytes without keeping the compressed string.
+	 */
+	public int measureCompressedStateSize(JsonObject state)
 	{
-		if ((str == null) || (str.length() == 0))
-		{
-			return null;
+		try {
+			return stateCompressor.measureCompressedSize(state, TwitchStateCodec.fromConfig(config));
+		} catch (Exception exception) {
+			// empty?
 		}
 
-		// Source: https://stackoverflow.com/questions/16351668/compression-and-decompression-of-string-data-in-java
-		ByteArrayOutputStream obj = new ByteArrayOutputStream();
-		GZIPOutputStream gzip = new GZIPOutputStream(obj);
-		gzip.write(str.getBytes("UTF-8"));
-		gzip.flush();
-		gzip.close();
-		return obj.toByteArray();
+		return -1;
 	}
 
 	public boolean isAuthErrorResponseCode(int responseCode)
@@ -475,7 +628,7 @@ public class TwitchApi
 	/**
 	 * Perform a generic GET request to the Twitch API.
 	 */
-	public void performGetRequest(String url, OkHttpClient httpClient, HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
+	public void performGetRequest(String url, TwitchHttpEndpoint endpoint, HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
 	{
 		final String token = config.twitchToken();
 		final Request request = new Request.Builder()
@@ -487,13 +640,13 @@ public class TwitchApi
 			.url(url)
 			.build();
 
-		performRequest(request, httpClient, responseHandler, errorHandler);
+		performRequest(request, endpoint, responseHandler, errorHandler);
 	}
 
 	/**
 	 * Perform a generic POST request to the Twitch API.
 	 */
-	public void performPostRequest(String url, JsonObject data, OkHttpClient httpClient, HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
+	public void performPostRequest(String url, JsonObject data, TwitchHttpEndpoint endpoint, HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
 	{
 		final String token = config.twitchToken();
 		final Request request = new Request.Builder()
@@ -505,50 +658,32 @@ public class TwitchApi
 			.url(url)
 			.build();
 
-		performRequest(request, httpClient, responseHandler, errorHandler);
+		performRequest(request, endpoint, responseHandler, errorHandler);
 	}
 
 	/**
 	 * Perform a generic request to the Twitch API.
 	 */
-	public void performRequest(Request request, OkHttpClient httpClient, HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
-	{
-		final HttpUrl url = request.url();
-
-		// queue the request on the OkHttp thread pool to prevent blocking other threads
-		httpClient.newCall(request).enqueue(new Callback() {
-			@Override
-			public void onFailure(Call call, IOException exception) {
-				plugin.logSupport("Could not send request to: "+ url);
-				plugin.logSupport("The error that occurred was: ");
-				plugin.logSupport(exception.getMessage());
-				errorHandler.execute(exception);
-			}
-
-			@Override
-			public void onResponse(Call call, Response response) {
-				try {
-					responseHandler.execute(response);
-				} catch (Exception exception) {
-					plugin.logSupport("Could not handle the response that was received from: "+ url);
-					plugin.logSupport(exception.getMessage());
-				}
+	public void performRequest(Request request, TwitchHttpEndpoint endpoint, HttpResponseHandler responseHandler, HttpErrorHandler errorHandler)
+	{
+		httpTransport.execute(endpoint, request, responseHandler, errorHandler);
+	}
 
-				// always close the response to be sure there are no memory leaks
-				response.close();
-			}
-		});
+	/**
+	 * Send all requests to another host, which is used to replay a journal against a local stand-in for Twitch.
+	 */
+	public void setBaseUrlOverride(HttpUrl baseUrlOverride)
+	{
+		httpTransport.setBaseUrlOverride(baseUrlOverride);
 	}
 
 	/**
-	 * Create a new HTTP client instance with a specific timeout
+	 * Check whether states can be sent or whether PubSub is failing repeatedly,
+	 * in which case there is no need to build new states for now.
 	 */
-	public OkHttpClient createHttpClient(int timeoutMs)
+	public boolean isPubSubAvailable()
 	{
-		return httpClientTemplate
-			.newBuilder()
-			.callTimeout(timeoutMs, TimeUnit.MILLISECONDS)
-			.build();
+		return httpTransport.isAvailable(TwitchHttpEndpoint.PUBSUB);
 	}
 
 	public interface HttpResponseHandler {
@@ -0,0 +1,76 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+/**
+ * The collection log filter of the settings that is parsed once when the settings change,
+ * instead of trimming and splitting the filter again for every category on every sync.
+ */
+public class TwitchCollectionLogFilter
+{
+	private final static String FILTER_SEPARATOR = ",";
+
+	private final boolean empty;
+	private final String[] filterPieces;
+	private final boolean skipEmptyCategories;
+
+	public TwitchCollectionLogFilter(String rawFilter, boolean skipEmptyCategories)
+	{
+		final String filter = rawFilter.trim().toLowerCase();
+		final String[] rawFilterPieces = filter.split(FILTER_SEPARATOR);
+
+		this.empty = filter.equals("");
+		this.filterPieces = new String[rawFilterPieces.length];
+		this.skipEmptyCategories = skipEmptyCategories;
+
+		for (int pieceIndex = 0; pieceIndex < rawFilterPieces.length; pieceIndex++)
+		{
+			filterPieces[pieceIndex] = rawFilterPieces[pieceIndex].trim();
+		}
+	}
+
+	public boolean isIncluded(String tabTitle, String categoryTitle, JsonArray items)
+	{
+
+		// guard: when none is obtained skip this log page
+		if (skipEmptyCategories && !hasObtainedItem(items))
+		{
+			return false;
+		}
+
+		if (empty)
+		{
+			return true;
+		}
+
+		final String trimmedTabTitle = tabTitle.trim().toLowerCase();
+		final String trimmedCategoryTitle = categoryTitle.trim().toLowerCase();
+
+		for (final String filterPiece : filterPieces)
+		{
+			if (trimmedTabTitle.contains(filterPiece) || trimmedCategoryTitle.contains(filterPiece))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean hasObtainedItem(JsonArray items)
+	{
+		for (JsonElement rawItem : items)
+		{
+			final JsonArray item = rawItem.getAsJsonArray();
+			final int itemQuantity = item.get(1).getAsInt();
+
+			if (itemQuantity > 0)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
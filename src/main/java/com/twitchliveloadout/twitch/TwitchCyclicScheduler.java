@@ -0,0 +1,171 @@
+package com.twitchliveloadout.twitch;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Scheduler of the cyclic state entries that are too large to send in every message. Instead of
+ * rotating through the entries in a fixed order, the entry of which the content is the oldest goes
+ * first, where an entry that changed since it was sent gets a head start. Entries that are sent in
+ * multiple slices, such as the bank, keep their position when another entry goes first, so a changed
+ * quest list does not wait for all slices of the bank. Because the head start is limited and the age
+ * of an entry keeps growing until all of it is sent, no entry is skipped forever.
+ */
+public class TwitchCyclicScheduler
+{
+	public final static List<TwitchStateEntry> CYCLIC_ENTRIES = Arrays.asList(
+		TwitchStateEntry.BANK_TABBED_ITEMS,
+		TwitchStateEntry.COLLECTION_LOG,
+		TwitchStateEntry.QUESTS,
+		TwitchStateEntry.INVOCATIONS
+	);
+	private final static int CHANGED_PRIORITY = 60 * 1000; // ms
+
+	private final EnumMap<TwitchStateEntry, ScheduledEntry> scheduledEntries = new EnumMap<>(TwitchStateEntry.class);
+	private TwitchStateEntry currentEntry = TwitchStateEntry.BANK_TABBED_ITEMS;
+
+	/**
+	 * The entries of which all slices were sent since the last full refresh started.
+	 */
+	private final Set<TwitchStateEntry> refreshedEntries = EnumSet.noneOf(TwitchStateEntry.class);
+	private long fullRefreshStartNanos = System.nanoTime();
+
+	public TwitchCyclicScheduler()
+	{
+		for (TwitchStateEntry entry : CYCLIC_ENTRIES)
+		{
+			scheduledEntries.put(entry, new ScheduledEntry());
+		}
+	}
+
+	public TwitchStateEntry getCurrentEntry()
+	{
+		return currentEntry;
+	}
+
+	public int getCurrentSliceIndex()
+	{
+		return scheduledEntries.get(currentEntry).sliceIndex;
+	}
+
+	/**
+	 * Mark the entry that a state entry is sent with as changed, so it is sent sooner.
+	 */
+	public void markChanged(TwitchStateEntry entry)
+	{
+		final ScheduledEntry scheduledEntry = scheduledEntries.get(getScheduledEntry(entry));
+
+		// guard: skip entries that are sent in every message
+		if (scheduledEntry == null)
+		{
+			return;
+		}
+
+		scheduledEntry.changed = true;
+	}
+
+	/**
+	 * Move past the slice that was sent and select the entry to send next. The eligible entries
+	 * are the ones that currently have something to send. Returns when the full refresh that
+	 * just completed was started in nanoseconds or -1 when no full refresh completed.
+	 */
+	public long completeSlice(int nextSliceIndex, boolean isRotationCompleted, Predicate<TwitchStateEntry> isEligible)
+	{
+		final ScheduledEntry scheduledEntry = scheduledEntries.get(currentEntry);
+		long completedFullRefreshStartNanos = -1;
+		scheduledEntry.sliceIndex = nextSliceIndex;
+
+		if (isRotationCompleted)
+		{
+			scheduledEntry.sliceIndex = 0;
+			scheduledEntry.refreshedAtMs = System.currentTimeMillis();
+			scheduledEntry.changed = false;
+			refreshedEntries.add(currentEntry);
+
+			if (isFullRefreshCompleted(isEligible))
+			{
+				completedFullRefreshStartNanos = fullRefreshStartNanos;
+				fullRefreshStartNanos = System.nanoTime();
+				refreshedEntries.clear();
+			}
+		}
+
+		currentEntry = selectNextEntry(isEligible);
+
+		return completedFullRefreshStartNanos;
+	}
+
+	/**
+	 * Get the entry with the highest score, which is the time since all of it was last sent
+	 * with a head start when it changed since then. On a tie the order of the entries is kept.
+	 * The age of an entry that is partially sent keeps growing, so it continues with its next
+	 * slice unless another entry changed.
+	 */
+	private TwitchStateEntry selectNextEntry(Predicate<TwitchStateEntry> isEligible)
+	{
+		final long now = System.currentTimeMillis();
+		TwitchStateEntry nextEntry = currentEntry;
+		long highestScore = -1;
+
+		for (TwitchStateEntry entry : CYCLIC_ENTRIES)
+		{
+			final ScheduledEntry scheduledEntry = scheduledEntries.get(entry);
+
+			if (!isEligible.test(entry))
+			{
+				continue;
+			}
+
+			final long ageMs = Math.max(0, now - scheduledEntry.refreshedAtMs);
+			final long score = (scheduledEntry.changed ? ageMs + CHANGED_PRIORITY : ageMs);
+
+			if (score > highestScore)
+			{
+				nextEntry = entry;
+				highestScore = score;
+			}
+		}
+
+		return nextEntry;
+	}
+
+	private boolean isFullRefreshCompleted(Predicate<TwitchStateEntry> isEligible)
+	{
+		for (TwitchStateEntry entry : CYCLIC_ENTRIES)
+		{
+			if (isEligible.test(entry) && !refreshedEntries.contains(entry))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the cyclic entry that a state entry is sent along with.
+	 */
+	private static TwitchStateEntry getScheduledEntry(TwitchStateEntry entry)
+	{
+		switch (entry)
+		{
+			case BANK_PRICE:
+				return TwitchStateEntry.BANK_TABBED_ITEMS;
+			case INVOCATIONS_RAID_LEVEL:
+				return TwitchStateEntry.INVOCATIONS;
+			default:
+				return entry;
+		}
+	}
+
+	private static class ScheduledEntry
+	{
+		private int sliceIndex = 0;
+		private long refreshedAtMs = 0;
+		private boolean changed = false;
+	}
+}
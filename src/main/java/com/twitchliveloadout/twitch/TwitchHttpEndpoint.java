@@ -0,0 +1,29 @@
+package com.twitchliveloadout.twitch;
+
+import lombok.Getter;
+
+/**
+ * All the endpoints that are requested with their own limits. PubSub messages are never retried,
+ * because a retried state could arrive after a newer one and it would bypass the rate limiter.
+ */
+public enum TwitchHttpEndpoint {
+	PUBSUB(10 * 1000, 2, 0),
+	CONFIGURATION_SEGMENT(5 * 1000, 1, 2),
+	EBS_PRODUCTS(10 * 1000, 1, 2),
+	EBS_TRANSACTIONS(10 * 1000, 1, 2),
+	;
+
+	@Getter
+	private final int timeoutMs;
+	@Getter
+	private final int maxConcurrentRequests;
+	@Getter
+	private final int maxRetries;
+
+	TwitchHttpEndpoint(int timeoutMs, int maxConcurrentRequests, int maxRetries)
+	{
+		this.timeoutMs = timeoutMs;
+		this.maxConcurrentRequests = maxConcurrentRequests;
+		this.maxRetries = maxRetries;
+	}
+}
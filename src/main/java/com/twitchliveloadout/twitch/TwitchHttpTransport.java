@@ -0,0 +1,244 @@
+package com.twitchliveloadout.twitch;
+
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single HTTP transport for all requests, sharing one client with its connection pool
+ * and dispatcher. Every endpoint has its own limit of concurrent requests, timeout and
+ * retries with a jittered exponential backoff for server errors and timeouts. A circuit
+ * breaker per endpoint stops requests for a while after consecutive failures, which
+ * allows callers to skip the work of preparing requests that would be dropped anyways.
+ */
+public class TwitchHttpTransport
+{
+	private final static int RETRY_BASE_DELAY_MS = 500;
+	private final static int CIRCUIT_FAILURE_THRESHOLD = 5;
+	private final static int CIRCUIT_OPEN_DURATION_MS = 30 * 1000;
+
+	private final TwitchLiveLoadoutPlugin plugin;
+	private final OkHttpClient httpClient;
+	private final TwitchJournal journal;
+	private final ScheduledThreadPoolExecutor retryExecutor = new ScheduledThreadPoolExecutor(1);
+	private final EnumMap<TwitchHttpEndpoint, Semaphore> concurrencyLimits = new EnumMap<>(TwitchHttpEndpoint.class);
+	private final EnumMap<TwitchHttpEndpoint, CircuitBreaker> circuitBreakers = new EnumMap<>(TwitchHttpEndpoint.class);
+
+	/**
+	 * Send all requests to another host instead, for example a local stand-in for Twitch when replaying a journal.
+	 */
+	private volatile HttpUrl baseUrlOverride = null;
+
+	public TwitchHttpTransport(TwitchLiveLoadoutPlugin plugin, OkHttpClient httpClient, TwitchJournal journal)
+	{
+		this.plugin = plugin;
+		this.httpClient = httpClient;
+		this.journal = journal;
+
+		for (TwitchHttpEndpoint endpoint : TwitchHttpEndpoint.values())
+		{
+			concurrencyLimits.put(endpoint, new Semaphore(endpoint.getMaxConcurrentRequests()));
+			circuitBreakers.put(endpoint, new CircuitBreaker());
+		}
+	}
+
+	public void shutDown()
+	{
+		retryExecutor.getQueue().clear();
+		retryExecutor.shutdown();
+	}
+
+	public void setBaseUrlOverride(HttpUrl baseUrlOverride)
+	{
+		this.baseUrlOverride = baseUrlOverride;
+	}
+
+	/**
+	 * Check whether requests to the endpoint are currently allowed by its circuit breaker.
+	 */
+	public boolean isAvailable(TwitchHttpEndpoint endpoint)
+	{
+		return circuitBreakers.get(endpoint).isClosed();
+	}
+
+	/**
+	 * Queue the request on the OkHttp thread pool to prevent blocking other threads.
+	 * The response handler receives the final response after any retries, which is closed afterwards.
+	 */
+	public void execute(TwitchHttpEndpoint endpoint, Request request, TwitchApi.HttpResponseHandler responseHandler, TwitchApi.HttpErrorHandler errorHandler)
+	{
+		final Semaphore concurrencyLimit = concurrencyLimits.get(endpoint);
+
+		// guard: skip when the endpoint is failing
+		if (!isAvailable(endpoint))
+		{
+			errorHandler.execute(new Exception("Requests to "+ endpoint +" are paused due to repeated failures."));
+			return;
+		}
+
+		// guard: apply backpressure when too many requests are in flight
+		if (!concurrencyLimit.tryAcquire())
+		{
+			errorHandler.execute(new Exception("Too many concurrent requests to "+ endpoint +"."));
+			return;
+		}
+
+		final AtomicBoolean released = new AtomicBoolean(false);
+		final Runnable release = () -> {
+			if (released.compareAndSet(false, true))
+			{
+				concurrencyLimit.release();
+			}
+		};
+
+		attempt(endpoint, overrideBaseUrl(request), 0, responseHandler, errorHandler, release);
+	}
+
+	private Request overrideBaseUrl(Request request)
+	{
+		final HttpUrl override = baseUrlOverride;
+
+		// guard: keep the request as is by default
+		if (override == null)
+		{
+			return request;
+		}
+
+		final HttpUrl url = request.url()
+			.newBuilder()
+			.scheme(override.scheme())
+			.host(override.host())
+			.port(override.port())
+			.build();
+
+		return request.newBuilder().url(url).build();
+	}
+
+	private void attempt(TwitchHttpEndpoint endpoint, Request request, int attempt, TwitchApi.HttpResponseHandler responseHandler, TwitchApi.HttpErrorHandler errorHandler, Runnable release)
+	{
+		final HttpUrl url = request.url();
+		final CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+		final Call call = httpClient.newCall(request);
+		call.timeout().timeout(endpoint.getTimeoutMs(), TimeUnit.MILLISECONDS);
+
+		call.enqueue(new Callback() {
+			@Override
+			public void onFailure(Call call, IOException exception) {
+
+				// only timeouts are retried, other errors are not likely to be resolved
+				if (exception instanceof InterruptedIOException && scheduleRetry(endpoint, request, attempt, responseHandler, errorHandler, release))
+				{
+					return;
+				}
+
+				circuitBreaker.recordFailure();
+				release.run();
+				journal.recordFailure(endpoint, request, exception);
+				plugin.logSupport("Could not send request to: "+ url);
+				plugin.logSupport("The error that occurred was: ");
+				plugin.logSupport(exception.getMessage());
+				errorHandler.execute(exception);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) {
+				final boolean isServerError = response.code() >= 500;
+
+				if (isServerError && scheduleRetry(endpoint, request, attempt, responseHandler, errorHandler, release))
+				{
+					response.close();
+					return;
+				}
+
+				if (isServerError)
+				{
+					circuitBreaker.recordFailure();
+				}
+				else
+				{
+					circuitBreaker.recordSuccess();
+				}
+
+				release.run();
+				journal.record(endpoint, request, response);
+
+				try {
+					responseHandler.execute(response);
+				} catch (Exception exception) {
+					plugin.logSupport("Could not handle the response that was received from: "+ url);
+					plugin.logSupport(exception.getMessage());
+				}
+
+				// always close the response to be sure there are no memory leaks
+				response.close();
+			}
+		});
+	}
+
+	private boolean scheduleRetry(TwitchHttpEndpoint endpoint, Request request, int attempt, TwitchApi.HttpResponseHandler responseHandler, TwitchApi.HttpErrorHandler errorHandler, Runnable release)
+	{
+
+		// guard: check if there are retries left
+		if (attempt >= endpoint.getMaxRetries() || retryExecutor.isShutdown())
+		{
+			return false;
+		}
+
+		// spread the retries of multiple clients to not hit a recovering server all at once
+		final double jitter = 0.5d + ThreadLocalRandom.current().nextDouble();
+		final long delayMs = (long) (RETRY_BASE_DELAY_MS * Math.pow(2, attempt) * jitter);
+
+		try {
+			retryExecutor.schedule(() -> {
+				attempt(endpoint, request, attempt + 1, responseHandler, errorHandler, release);
+			}, delayMs, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException exception) {
+			// the transport was shut down in the meantime, which is handled as a failed request
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Opens after a number of consecutive failures and closes again after a successful request.
+	 * When the open duration has passed requests are allowed again, where a new failure
+	 * immediately opens the circuit again.
+	 */
+	private static class CircuitBreaker
+	{
+		private int consecutiveFailures = 0;
+		private Instant openUntil = null;
+
+		synchronized boolean isClosed()
+		{
+			return openUntil == null || Instant.now().isAfter(openUntil);
+		}
+
+		synchronized void recordSuccess()
+		{
+			consecutiveFailures = 0;
+			openUntil = null;
+		}
+
+		synchronized void recordFailure()
+		{
+			consecutiveFailures++;
+
+			if (consecutiveFailures >= CIRCUIT_FAILURE_THRESHOLD)
+			{
+				openUntil = Instant.now().plusMillis(CIRCUIT_OPEN_DURATION_MS);
+			}
+		}
+	}
+}
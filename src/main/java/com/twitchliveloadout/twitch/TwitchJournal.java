@@ -0,0 +1,170 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonObject;
+import com.twitchliveloadout.TwitchLiveLoadoutConfig;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import net.runelite.client.RuneLite;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Appends every sent PubSub message, every received marketplace and configuration response and
+ * every failed request to a local journal file when enabled. Each line is a JSON object with the moment of the response,
+ * which allows to replay a session against a local stand-in for Twitch to reproduce load without
+ * a live Twitch account. Writing is done on a dedicated thread to not delay the responses.
+ */
+public class TwitchJournal
+{
+	public final static String FILE_NAME = "twitch-live-loadout-journal.jsonl";
+	public final static String TIME_KEY = "time";
+	public final static String ENDPOINT_KEY = "endpoint";
+	public final static String PATH_KEY = "path";
+	public final static String REQUEST_KEY = "request";
+	public final static String RESPONSE_CODE_KEY = "responseCode";
+	public final static String RESPONSE_KEY = "response";
+	public final static String ERROR_KEY = "error";
+	public final static int FAILED_RESPONSE_CODE = -1;
+
+	private final static long MAX_BODY_SIZE = 1024 * 1024; // bytes
+	private final static long MAX_FILE_SIZE = 256 * 1024 * 1024; // bytes
+
+	private final TwitchLiveLoadoutPlugin plugin;
+	private final TwitchLiveLoadoutConfig config;
+	private final ScheduledThreadPoolExecutor writeExecutor = new ScheduledThreadPoolExecutor(1);
+	private final File file = new File(RuneLite.RUNELITE_DIR, FILE_NAME);
+	private BufferedWriter writer = null;
+
+	public TwitchJournal(TwitchLiveLoadoutPlugin plugin, TwitchLiveLoadoutConfig config)
+	{
+		this.plugin = plugin;
+		this.config = config;
+	}
+
+	public boolean isEnabled()
+	{
+		return config.journalEnabled() && !writeExecutor.isShutdown();
+	}
+
+	/**
+	 * Record the final response of a request, where the body of outgoing PubSub messages is kept
+	 * and the body of the responses of all other endpoints, because only those are replayed.
+	 */
+	public void record(TwitchHttpEndpoint endpoint, Request request, Response response)
+	{
+
+		// guard: skip when not recording
+		if (!isEnabled())
+		{
+			return;
+		}
+
+		try {
+			final JsonObject entry = createEntry(endpoint, request, response.code());
+			final boolean isPubSub = endpoint == TwitchHttpEndpoint.PUBSUB;
+
+			if (isPubSub && request.body() != null)
+			{
+				final Buffer requestBody = new Buffer();
+				request.body().writeTo(requestBody);
+				entry.addProperty(REQUEST_KEY, requestBody.readUtf8());
+			}
+			else
+			{
+				entry.addProperty(RESPONSE_KEY, response.peekBody(MAX_BODY_SIZE).string());
+			}
+
+			writeExecutor.execute(() -> write(entry.toString()));
+		} catch (Exception exception) {
+			plugin.logSupport("Could not record the response in the journal due to the following error: ", exception);
+		}
+	}
+
+	/**
+	 * Record a request that did not receive a response, for example due to a timeout. The bodies
+	 * are not kept, because the message never reached Twitch and there is nothing to replay.
+	 */
+	public void recordFailure(TwitchHttpEndpoint endpoint, Request request, Exception error)
+	{
+
+		// guard: skip when not recording
+		if (!isEnabled())
+		{
+			return;
+		}
+
+		try {
+			final JsonObject entry = createEntry(endpoint, request, FAILED_RESPONSE_CODE);
+			entry.addProperty(ERROR_KEY, String.valueOf(error.getMessage()));
+
+			writeExecutor.execute(() -> write(entry.toString()));
+		} catch (Exception exception) {
+			plugin.logSupport("Could not record the failed request in the journal due to the following error: ", exception);
+		}
+	}
+
+	public void shutDown()
+	{
+		writeExecutor.execute(this::closeWriter);
+		writeExecutor.shutdown();
+	}
+
+	private JsonObject createEntry(TwitchHttpEndpoint endpoint, Request request, int responseCode)
+	{
+		final JsonObject entry = new JsonObject();
+
+		entry.addProperty(TIME_KEY, Instant.now().toEpochMilli());
+		entry.addProperty(ENDPOINT_KEY, endpoint.name());
+		entry.addProperty(PATH_KEY, request.url().encodedPath());
+		entry.addProperty(RESPONSE_CODE_KEY, responseCode);
+
+		return entry;
+	}
+
+	private void write(String line)
+	{
+		try {
+
+			// guard: stop recording when the journal is getting too large
+			if (file.length() > MAX_FILE_SIZE)
+			{
+				closeWriter();
+				return;
+			}
+
+			if (writer == null)
+			{
+				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+			}
+
+			writer.write(line);
+			writer.newLine();
+			writer.flush();
+		} catch (Exception exception) {
+			plugin.logSupport("Could not write to the journal due to the following error: ", exception);
+			closeWriter();
+		}
+	}
+
+	private void closeWriter()
+	{
+		try {
+			if (writer != null)
+			{
+				writer.close();
+			}
+		} catch (Exception exception) {
+			// empty
+		}
+
+		writer = null;
+	}
+}
@@ -0,0 +1,210 @@
+package com.twitchliveloadout.twitch;
+
+import lombok.Getter;
+import okhttp3.Headers;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token bucket that spends the Twitch rate limit evenly until the moment it resets.
+ * The bucket is refilled with the remaining points divided by the time until the reset.
+ * Every response corrects the remaining points and reset time, because other clients
+ * syncing to the same channel share the same budget.
+ *
+ * Documentation: https://dev.twitch.tv/docs/api/guide/#twitch-rate-limits
+ */
+public class TwitchRateLimiter
+{
+	private final static String LIMIT_HEADER = "Ratelimit-Limit";
+	private final static String REMAINING_HEADER = "Ratelimit-Remaining";
+	private final static String RESET_HEADER = "Ratelimit-Reset";
+	private final static int DEFAULT_LIMIT = 100;
+	private final static int DEFAULT_WINDOW_MS = 60 * 1000;
+
+	// leave some points for requests of other clients that have not been taken into account yet
+	private final static int RESERVED_POINTS = 5;
+	private final static double MAX_TOKENS = 2;
+	private final static int RATE_LIMITED_RESPONSE_CODE = 429;
+
+	private final Clock clock;
+
+	@Getter
+	private int limit = DEFAULT_LIMIT;
+
+	@Getter
+	private int remaining = DEFAULT_LIMIT;
+
+	@Getter
+	private Instant resetTime = null;
+
+	private double tokens = 1;
+	private Instant lastRefillTime;
+
+	public TwitchRateLimiter()
+	{
+		this(Clock.systemUTC());
+	}
+
+	TwitchRateLimiter(Clock clock)
+	{
+		this.clock = clock;
+		this.lastRefillTime = clock.instant();
+	}
+
+	/**
+	 * Update the budget with the rate limit headers of a response and stop sending when it was rate limited.
+	 */
+	public synchronized void handleResponse(int responseCode, Headers headers)
+	{
+		update(headers);
+
+		if (responseCode == RATE_LIMITED_RESPONSE_CODE)
+		{
+			handleRateLimited();
+		}
+	}
+
+	public void update(Headers headers)
+	{
+		update(headers.get(LIMIT_HEADER), headers.get(REMAINING_HEADER), headers.get(RESET_HEADER));
+	}
+
+	/**
+	 * Update the budget with the raw rate limit header values, any of them can be missing.
+	 */
+	public synchronized void update(String rawLimit, String rawRemaining, String rawReset)
+	{
+		final Instant now = clock.instant();
+		refill(now);
+
+		try {
+			if (rawLimit != null)
+			{
+				limit = Integer.parseInt(rawLimit.trim());
+			}
+
+			if (rawRemaining != null)
+			{
+				remaining = Integer.parseInt(rawRemaining.trim());
+			}
+
+			if (rawReset != null)
+			{
+				resetTime = Instant.ofEpochSecond(Long.parseLong(rawReset.trim()));
+			}
+		} catch (NumberFormatException exception) {
+			// empty, keep the last known budget
+		}
+	}
+
+	/**
+	 * Stop sending until the reset after Twitch rejected a request due to the rate limit.
+	 */
+	public synchronized void handleRateLimited()
+	{
+		remaining = 0;
+		tokens = 0;
+
+		if (resetTime == null || resetTime.isBefore(clock.instant()))
+		{
+			resetTime = clock.instant().plusMillis(DEFAULT_WINDOW_MS);
+		}
+	}
+
+	public synchronized boolean canAcquire()
+	{
+		refill(clock.instant());
+
+		return tokens >= 1;
+	}
+
+	/**
+	 * Spend a point, which is also subtracted from the remaining points
+	 * until the next response tells the actual remaining points.
+	 */
+	public synchronized void acquire()
+	{
+		refill(clock.instant());
+		tokens = Math.max(0, tokens - 1);
+		remaining = Math.max(0, remaining - 1);
+	}
+
+	/**
+	 * Get the moments the next requests can be sent when the budget is spent evenly.
+	 */
+	public synchronized List<Instant> getPredictedSlots(int amount)
+	{
+		final List<Instant> slots = new ArrayList<>();
+		final Instant now = clock.instant();
+		refill(now);
+
+		double predictedTokens = tokens;
+		double refillRate = getRefillRate(now);
+		Instant slotTime = now;
+
+		while (slots.size() < amount)
+		{
+
+			// when the budget is depleted the next points become available after the reset
+			if (predictedTokens < 1 && refillRate <= 0)
+			{
+				slotTime = (resetTime == null || resetTime.isBefore(slotTime) ? slotTime : resetTime);
+				predictedTokens = 1;
+				refillRate = getWindowRefillRate();
+			}
+
+			if (predictedTokens < 1)
+			{
+				final long waitMs = (long) Math.ceil((1 - predictedTokens) / refillRate);
+				slotTime = slotTime.plusMillis(waitMs);
+				predictedTokens = 1;
+			}
+
+			slots.add(slotTime);
+			predictedTokens -= 1;
+		}
+
+		return slots;
+	}
+
+	private void refill(Instant now)
+	{
+
+		// the bucket is full again after the reset
+		if (resetTime != null && !now.isBefore(resetTime))
+		{
+			remaining = limit;
+			resetTime = null;
+		}
+
+		final long elapsedMs = Math.max(0, now.toEpochMilli() - lastRefillTime.toEpochMilli());
+		tokens = Math.min(MAX_TOKENS, tokens + elapsedMs * getRefillRate(now));
+		lastRefillTime = now;
+	}
+
+	/**
+	 * Get the amount of points per millisecond that can be spent.
+	 */
+	private double getRefillRate(Instant now)
+	{
+
+		// guard: without a known reset assume a full budget per window
+		if (resetTime == null)
+		{
+			return getWindowRefillRate();
+		}
+
+		final long msUntilReset = Math.max(1, resetTime.toEpochMilli() - now.toEpochMilli());
+		final int spendablePoints = Math.max(0, remaining - RESERVED_POINTS);
+
+		return ((double) spendablePoints) / msUntilReset;
+	}
+
+	private double getWindowRefillRate()
+	{
+		return ((double) Math.max(1, limit - RESERVED_POINTS)) / DEFAULT_WINDOW_MS;
+	}
+}
@@ -11,9 +11,19 @@ import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 
 import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 import static com.twitchliveloadout.TwitchLiveLoadoutConfig.*;
 import static com.twitchliveloadout.items.CollectionLogManager.ITEMS_KEY_NAME;
@@ -59,19 +69,112 @@ public class TwitchState {
 	 */
 	private final JsonObject currentState = new JsonObject();
 
+	/**
+	 * The entries of the current state that change often, which are stored as
+	 * typed values instead of JSON until the state is sent. See TwitchStateValue.
+	 */
+	private final Map<TwitchStateEntry, TwitchStateValue> typedState = new ConcurrentHashMap<>();
+
+	/**
+	 * Version of the state that is bumped on every change of an entry. This allows
+	 * the syncing to check whether anything changed without serializing the state.
+	 */
+	private final AtomicLong stateVersion = new AtomicLong();
+	private final Set<TwitchStateEntry> dirtyEntries = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Copy of the current state where only the dirty entries are copied again
+	 * when a new filtered state is requested.
+	 */
+	private final JsonObject currentStateSnapshot = new JsonObject();
+
 	/**
 	 * An additional cyclic state that cannot be sent out at once
 	 * due to Twitch limitations, currently the bank and the collection log
-	 * are sent in smaller parts via this state.
-	 * NOTE: keep a minimum of 20% reserved for combat fights.
+	 * are sent in smaller parts via this state. Each slice is packed with as
+	 * many bank items or collection log categories as fit in the payload, measured
+	 * by compressing the state. A margin is reserved for the entries that are added
+	 * after the cyclic state and for changes in the time between packing and sending.
 	 */
-	private final static int MAX_BANK_ITEMS_PER_SLICE = 250;
-	private final static int MAX_COLLECTION_LOG_ITEMS_PER_SLICE = 250;
-	private final static String COLLECTION_LOG_FILTER_SEPARATOR = ",";
+	private final static int CYCLIC_STATE_PAYLOAD_MARGIN = 512; // bytes
+	private final static int MIN_CYCLIC_SLICE_PACKING_AMOUNT = 32;
 	private final JsonObject cyclicState = new JsonObject();
-	@Getter
-	private TwitchStateEntry currentCyclicEntry = TwitchStateEntry.BANK_TABBED_ITEMS;
-	private int currentCyclicSliceIndex = 0;
+
+	/**
+	 * Amount of elements per cyclic entry that were limited by the payload size the last time,
+	 * which is tried first to prevent searching again with multiple compressions every sync.
+	 */
+	private final Map<String, Integer> lastPackedSliceAmounts = new HashMap<>();
+
+	/**
+	 * The tab and category titles of the collection log categories that changed since they were sent
+	 * and the ones that are packed in the state that is currently being sent.
+	 */
+	private final Set<Map.Entry<String, String>> dirtyCollectionLogCategories = new LinkedHashSet<>();
+	private List<Map.Entry<String, String>> packedDirtyCollectionLogCategories = new ArrayList<>();
+
+	/**
+	 * The included collection log categories in order, which are only determined again when the
+	 * collection log or the filter changed instead of on every sync. The index of a category in
+	 * this list is the index of the rotation, which allows seeking to a slice directly.
+	 */
+	private volatile TwitchCollectionLogFilter collectionLogFilter;
+	private JsonObject includedCollectionLogCategoriesSource = null;
+	private TwitchCollectionLogFilter includedCollectionLogCategoriesFilter = null;
+	private List<Map.Entry<String, String>> includedCollectionLogCategoryTitles = new ArrayList<>();
+
+	/**
+	 * Index of the bank to build the slices, which is only determined again when the bank changed.
+	 * Tabs outside of a slice share an array of empty items to keep the position of each item.
+	 */
+	private final JsonArray emptyBankItem = new JsonArray();
+	private JsonArray bankSliceIndexSource = null;
+	private int[] bankTabStartIndexes = new int[0];
+	private JsonArray[] emptyBankTabs = new JsonArray[0];
+	private int bankItemAmount = 0;
+
+	/**
+	 * Scheduler deciding which cyclic entry is sent next, based on how long it waited and whether it changed.
+	 */
+	private final TwitchCyclicScheduler cyclicScheduler = new TwitchCyclicScheduler();
+	private int currentCyclicSliceSize = 0;
+
+	/**
+	 * Separate compressor from the one sending the state, because packing
+	 * is done on the client thread while sending is done on another thread.
+	 * Both share the tuner so the slices are measured with the candidate they are sent with.
+	 */
+	private final TwitchStateCompressor stateCompressor;
+
+	/**
+	 * Binary snapshots of the persisted state per account, such as the bank and collection log.
+	 */
+	private final TwitchStateSnapshotStore snapshotStore;
+	private final TwitchAccountStateLoader accountStateLoader;
+
+	/**
+	 * All the entries that are stored per account with the key of their snapshot.
+	 */
+	private final static Map<String, TwitchStateEntry> PERSISTED_ENTRIES = new LinkedHashMap<>();
+	static {
+		PERSISTED_ENTRIES.put(COLLECTION_LOG_CONFIG_KEY, TwitchStateEntry.COLLECTION_LOG);
+		PERSISTED_ENTRIES.put(BANK_TABBED_ITEMS_CONFIG_KEY, TwitchStateEntry.BANK_TABBED_ITEMS);
+		PERSISTED_ENTRIES.put(BANK_PRICE_CONFIG_KEY, TwitchStateEntry.BANK_PRICE);
+		PERSISTED_ENTRIES.put(QUESTS_CONFIG_KEY, TwitchStateEntry.QUESTS);
+		PERSISTED_ENTRIES.put(LOOTING_BAG_ITEMS_CONFIG_KEY, TwitchStateEntry.LOOTING_BAG_ITEMS);
+		PERSISTED_ENTRIES.put(LOOTING_BAG_PRICE_CONFIG_KEY, TwitchStateEntry.LOOTING_BAG_PRICE);
+		PERSISTED_ENTRIES.put(INVOCATIONS_CONFIG_KEY, TwitchStateEntry.INVOCATIONS);
+		PERSISTED_ENTRIES.put(INVOCATIONS_RAID_LEVEL_CONFIG_KEY, TwitchStateEntry.INVOCATIONS_RAID_LEVEL);
+	}
+
+	/**
+	 * The account of which the persisted state is active. The generation is bumped on every
+	 * switch to discard states that finished loading after switching to yet another account.
+	 */
+	private String accountIdentifier = null;
+	private final AtomicLong accountGeneration = new AtomicLong();
+	private boolean isAccountStatePublished = false;
+	private final Set<String> changedPersistedKeys = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Additional state variables not synced to the client but can determine syncing behaviour
@@ -79,12 +182,19 @@ public class TwitchState {
 	private final static int WAS_IN_TOA_DEBOUNCE = 20 * 1000; // ms
 	private Instant lastWasInToA;
 
-	public TwitchState(TwitchLiveLoadoutPlugin plugin, TwitchLiveLoadoutConfig config, CanvasListener canvasListener, Gson gson)
+	public TwitchState(TwitchLiveLoadoutPlugin plugin, TwitchLiveLoadoutConfig config, CanvasListener canvasListener, Gson gson, TwitchStateCompressionTuner compressionTuner)
 	{
 		this.plugin = plugin;
 		this.config = config;
 		this.canvasListener = canvasListener;
 		this.gson = gson;
+		this.stateCompressor = new TwitchStateCompressor(gson, compressionTuner);
+		this.snapshotStore = new TwitchStateSnapshotStore(plugin);
+		this.accountStateLoader = new TwitchAccountStateLoader(plugin, snapshotStore);
+
+		emptyBankItem.add(-1); // item ID
+		emptyBankItem.add(-1); // item quantity
+		compileCollectionLogFilter();
 
 		// initialize the states that are not directly synced with events
 		setOverlayTopPosition(config.overlayTopPosition());
@@ -102,14 +212,19 @@ public class TwitchState {
 		return currentState;
 	}
 
+	public long getStateVersion()
+	{
+		return stateVersion.get();
+	}
+
 	public void setPlayerName(String playerName)
 	{
-		currentState.addProperty(TwitchStateEntry.PLAYER_NAME.getKey(), playerName);
+		setState(TwitchStateEntry.PLAYER_NAME, toJson(playerName));
 	}
 
 	public void setAccountHash(Long accountHash)
 	{
-		currentState.addProperty(TwitchStateEntry.ACCOUNT_HASH.getKey(), accountHash);
+		setState(TwitchStateEntry.ACCOUNT_HASH, toJson(accountHash));
 	}
 
 	public void setAccountType(AccountType accountType)
@@ -122,7 +237,7 @@ public class TwitchState {
 			return;
 		}
 
-		currentState.addProperty(TwitchStateEntry.ACCOUNT_TYPE.getKey(), accountType.getKey());
+		setState(TwitchStateEntry.ACCOUNT_TYPE, toJson(accountType.getKey()));
 	}
 
 	public void setOverlayTopPosition(int overlayTopPosition)
@@ -136,77 +251,80 @@ public class TwitchState {
 			overlayTopPosition = MAX_OVERLAY_TOP_POSITION;
 		}
 
-		currentState.addProperty(TwitchStateEntry.TOP_POSITION.getKey(), overlayTopPosition);
+		setState(TwitchStateEntry.TOP_POSITION, toJson(overlayTopPosition));
 	}
 
 	public void setTwitchTheme(TwitchThemeEntry twitchTheme)
 	{
-		currentState.addProperty(TwitchStateEntry.THEME_TYPE.getKey(), twitchTheme.getKey());
+		setState(TwitchStateEntry.THEME_TYPE, toJson(twitchTheme.getKey()));
 	}
 
 	public void setWeight(Integer weight)
 	{
-		currentState.addProperty(TwitchStateEntry.WEIGHT.getKey(), weight);
+		setTypedState(TwitchStateEntry.WEIGHT, weight == null ? TwitchStateValue.Scalar.EMPTY : new TwitchStateValue.Scalar(weight));
 	}
 
 	public void setSkillExperiences(int[] skillExperiences)
 	{
-		currentState.add(TwitchStateEntry.SKILL_EXPERIENCES.getKey(), convertToJson(skillExperiences, MAX_SKILL_EXPERIENCE));
+		setIntArrayState(TwitchStateEntry.SKILL_EXPERIENCES, skillExperiences, MAX_SKILL_EXPERIENCE);
 	}
 
 	public void setBoostedSkillLevels(int[] boostedSkillLevels)
 	{
-		currentState.add(TwitchStateEntry.BOOSTED_SKILL_LEVELS.getKey(), convertToJson(boostedSkillLevels, MAX_SKILL_LEVEL));
+		setIntArrayState(TwitchStateEntry.BOOSTED_SKILL_LEVELS, boostedSkillLevels, MAX_SKILL_LEVEL);
 	}
 
 	public void setVirtualLevelsEnabled(boolean virtualLevelsEnabled)
 	{
-		currentState.addProperty(TwitchStateEntry.VIRTUAL_LEVELS_ENABLED.getKey(), virtualLevelsEnabled);
+		setState(TwitchStateEntry.VIRTUAL_LEVELS_ENABLED, toJson(virtualLevelsEnabled));
 	}
 
 	public void setFightStatistics(JsonObject fightStatistics)
 	{
-		currentState.add(TwitchStateEntry.FIGHT_STATISTICS.getKey(), fightStatistics);
+		setState(TwitchStateEntry.FIGHT_STATISTICS, fightStatistics);
 	}
 
 	public void setInventoryItems(Item[] items, long totalPrice)
 	{
-		setItems(TwitchStateEntry.INVENTORY_ITEMS.getKey(), items);
-		setItemsPrice(TwitchStateEntry.INVENTORY_PRICE.getKey(), totalPrice);
+		setItemArrayState(TwitchStateEntry.INVENTORY_ITEMS, items);
+		setTypedState(TwitchStateEntry.INVENTORY_PRICE, new TwitchStateValue.Scalar(totalPrice));
 	}
 
 	public void setEquipmentItems(Item[] items, long totalPrice)
 	{
-		setItems(TwitchStateEntry.EQUIPMENT_ITEMS.getKey(), items);
-		setItemsPrice(TwitchStateEntry.EQUIPMENT_PRICE.getKey(), totalPrice);
+		setItemArrayState(TwitchStateEntry.EQUIPMENT_ITEMS, items);
+		setTypedState(TwitchStateEntry.EQUIPMENT_PRICE, new TwitchStateValue.Scalar(totalPrice));
 	}
 
 	public void setLootingBagItems(Item[] items, long totalPrice)
 	{
-		setItems(TwitchStateEntry.LOOTING_BAG_ITEMS.getKey(), items);
-		setItemsPrice(TwitchStateEntry.LOOTING_BAG_PRICE.getKey(), totalPrice);
-		plugin.setConfiguration(LOOTING_BAG_ITEMS_CONFIG_KEY, convertToJson(items));
-		plugin.setConfiguration(LOOTING_BAG_PRICE_CONFIG_KEY, totalPrice);
-	}
+		final JsonArray itemsJson = convertToJson(items);
 
-	private void setItems(String itemsKey, Item[] items)
-	{
-		setItems(itemsKey, convertToJson(items));
+		// only persist the looting bag when something changed
+		if (setItems(TwitchStateEntry.LOOTING_BAG_ITEMS, itemsJson))
+		{
+			persist(LOOTING_BAG_ITEMS_CONFIG_KEY, itemsJson);
+		}
+
+		if (setItemsPrice(TwitchStateEntry.LOOTING_BAG_PRICE, totalPrice))
+		{
+			persist(LOOTING_BAG_PRICE_CONFIG_KEY, toJson(totalPrice));
+		}
 	}
 
-	private void setItems(String itemsKey, JsonArray items)
+	private boolean setItems(TwitchStateEntry itemsEntry, JsonArray items)
 	{
-		currentState.add(itemsKey, items);
+		return setState(itemsEntry, items);
 	}
 
-	private void setItemsPrice(String priceKey, String totalPrice)
+	private boolean setItemsPrice(TwitchStateEntry priceEntry, String totalPrice)
 	{
-		setItemsPrice(priceKey, Long.parseLong(totalPrice));
+		return setItemsPrice(priceEntry, Long.parseLong(totalPrice));
 	}
 
-	private void setItemsPrice(String priceKey, long totalPrice)
+	private boolean setItemsPrice(TwitchStateEntry priceEntry, long totalPrice)
 	{
-		currentState.addProperty(priceKey, totalPrice);
+		return setState(priceEntry, toJson(totalPrice));
 	}
 
 	public void setCurrentProductCooldowns(ConcurrentHashMap<String, Instant> cooldownsUntil)
@@ -227,7 +345,7 @@ public class TwitchState {
 			currentProductCooldowns.addProperty(streamerProductId, cooldownUntil.toString());
 		});
 
-		currentState.add(TwitchStateEntry.CURRENT_PRODUCT_COOLDOWNS.getKey(), currentProductCooldowns);
+		setState(TwitchStateEntry.CURRENT_PRODUCT_COOLDOWNS, currentProductCooldowns);
 	}
 
 	public void setCurrentSharedCooldown(Instant sharedCooldownUntil)
@@ -240,21 +358,25 @@ public class TwitchState {
 			return;
 		}
 
-		currentState.addProperty(TwitchStateEntry.CURRENT_SHARED_COOLDOWN.getKey(), sharedCooldownUntil.toString());
+		setState(TwitchStateEntry.CURRENT_SHARED_COOLDOWN, toJson(sharedCooldownUntil.toString()));
 	}
 
 	public void setInvocations(JsonArray invocations)
 	{
-		cyclicState.add(TwitchStateEntry.INVOCATIONS.getKey(), invocations);
-		plugin.setConfiguration(INVOCATIONS_CONFIG_KEY, invocations);
+		if (setCyclicState(TwitchStateEntry.INVOCATIONS, invocations))
+		{
+			persist(INVOCATIONS_CONFIG_KEY, invocations);
+		}
 	}
 
 	public void setInvocationsRaidLevel(String raidLevel)
 	{
 		try {
 			int parsedRaidLevel = Integer.parseInt(raidLevel);
-			cyclicState.addProperty(TwitchStateEntry.INVOCATIONS_RAID_LEVEL.getKey(), parsedRaidLevel);
-			plugin.setConfiguration(INVOCATIONS_RAID_LEVEL_CONFIG_KEY, parsedRaidLevel);
+			if (setCyclicState(TwitchStateEntry.INVOCATIONS_RAID_LEVEL, toJson(parsedRaidLevel)))
+			{
+				persist(INVOCATIONS_RAID_LEVEL_CONFIG_KEY, toJson(parsedRaidLevel));
+			}
 		} catch (Exception exception) {
 			plugin.logSupport("Could not set invocations raid level due to the following error:", exception);
 		}
@@ -284,31 +406,100 @@ public class TwitchState {
 
 	public void setBankItems(JsonArray tabbedBankItems)
 	{
-		cyclicState.add(TwitchStateEntry.BANK_TABBED_ITEMS.getKey(), tabbedBankItems);
-		plugin.setConfiguration(BANK_TABBED_ITEMS_CONFIG_KEY, tabbedBankItems);
+		if (setCyclicState(TwitchStateEntry.BANK_TABBED_ITEMS, tabbedBankItems))
+		{
+			persist(BANK_TABBED_ITEMS_CONFIG_KEY, tabbedBankItems);
+		}
 	}
 
 	public void setBankItemsPrice(long totalPrice)
 	{
-		cyclicState.addProperty(TwitchStateEntry.BANK_PRICE.getKey(), totalPrice);
-		plugin.setConfiguration(BANK_PRICE_CONFIG_KEY, totalPrice);
+		if (setCyclicState(TwitchStateEntry.BANK_PRICE, toJson(totalPrice)))
+		{
+			persist(BANK_PRICE_CONFIG_KEY, toJson(totalPrice));
+		}
+	}
+
+	/**
+	 * Parse the collection log filter of the settings again, which should be done when they change.
+	 */
+	public void compileCollectionLogFilter()
+	{
+		collectionLogFilter = new TwitchCollectionLogFilter(config.collectionLogFilter(), config.collectionLogSkipEmpty());
 	}
 
 	public void setCollectionLog(JsonObject collectionLog)
 	{
-		cyclicState.add(TwitchStateEntry.COLLECTION_LOG.getKey(), collectionLog);
-		plugin.setConfiguration(COLLECTION_LOG_CONFIG_KEY, collectionLog);
+
+		// the same instance can be mutated in place, so always determine the included categories again
+		includedCollectionLogCategoriesSource = null;
+
+		if (setCyclicState(TwitchStateEntry.COLLECTION_LOG, collectionLog))
+		{
+			persist(COLLECTION_LOG_CONFIG_KEY, collectionLog);
+		}
+	}
+
+	/**
+	 * Set a single category of the collection log, which is only stored and marked
+	 * dirty when its items or counters are different from the stored category.
+	 */
+	public void setCollectionLogCategory(String tabTitle, String categoryTitle, JsonObject categoryLog)
+	{
+		final JsonObject collectionLog = getCollectionLog();
+		final JsonObject tabLog = (collectionLog == null ? null : collectionLog.getAsJsonObject(tabTitle));
+		final JsonObject storedCategoryLog = (tabLog == null ? null : tabLog.getAsJsonObject(categoryTitle));
+
+		// guard: skip when nothing changed, which is the case for most redraws of the collection log
+		if (categoryLog.equals(storedCategoryLog))
+		{
+			return;
+		}
+
+		// copy the changed tab instead of mutating the log in place,
+		// because the previous log can still be written as a snapshot
+		final JsonObject newTabLog = copyCollectionLogLevel(tabLog);
+		final JsonObject newCollectionLog = copyCollectionLogLevel(collectionLog);
+		newTabLog.add(categoryTitle, categoryLog);
+		newCollectionLog.add(tabTitle, newTabLog);
+		dirtyCollectionLogCategories.add(new AbstractMap.SimpleEntry<>(tabTitle, categoryTitle));
+
+		// not marked as changed for the scheduler, because the changed category
+		// is already sent separately instead of the whole collection log
+		if (setEntry(cyclicState, TwitchStateEntry.COLLECTION_LOG, newCollectionLog))
+		{
+			persist(COLLECTION_LOG_CONFIG_KEY, newCollectionLog);
+		}
+	}
+
+	private JsonObject copyCollectionLogLevel(JsonObject level)
+	{
+		final JsonObject copiedLevel = new JsonObject();
+
+		if (level == null)
+		{
+			return copiedLevel;
+		}
+
+		for (Map.Entry<String, JsonElement> entry : level.entrySet())
+		{
+			copiedLevel.add(entry.getKey(), entry.getValue());
+		}
+
+		return copiedLevel;
 	}
 
 	public void setQuests(JsonArray quests)
 	{
-		cyclicState.add(TwitchStateEntry.QUESTS.getKey(), quests);
-		plugin.setConfiguration(QUESTS_CONFIG_KEY, quests);
+		if (setCyclicState(TwitchStateEntry.QUESTS, quests))
+		{
+			persist(QUESTS_CONFIG_KEY, quests);
+		}
 	}
 
 	public void setSeasonalItems(JsonArray seasonalItems)
 	{
-		currentState.add(TwitchStateEntry.SEASONAL_ITEMS.getKey(), seasonalItems);
+		setState(TwitchStateEntry.SEASONAL_ITEMS, seasonalItems);
 	}
 
 	public JsonObject getCollectionLog()
@@ -321,9 +512,177 @@ public class TwitchState {
 		return cyclicState.getAsJsonArray(TwitchStateEntry.BANK_TABBED_ITEMS.getKey());
 	}
 
+	/**
+	 * Set an entry of the current state and mark it dirty when the value actually changed.
+	 * Returns whether the entry was changed.
+	 */
+	private boolean setState(TwitchStateEntry entry, JsonElement value)
+	{
+		return setEntry(currentState, entry, value);
+	}
+
+	/**
+	 * Set an entry of the cyclic state and mark it dirty when the value actually changed.
+	 * Returns whether the entry was changed.
+	 */
+	private boolean setCyclicState(TwitchStateEntry entry, JsonElement value)
+	{
+		final boolean isChanged = setEntry(cyclicState, entry, value);
+
+		if (isChanged)
+		{
+			cyclicScheduler.markChanged(entry);
+		}
+
+		return isChanged;
+	}
+
+	/**
+	 * Set an entry that is stored as a typed value and mark it dirty when the value actually changed.
+	 * Returns whether the entry was changed.
+	 */
+	private boolean setTypedState(TwitchStateEntry entry, TwitchStateValue value)
+	{
+
+		// guard: skip when the value is equal to the current one
+		if (value.equals(typedState.get(entry)))
+		{
+			return false;
+		}
+
+		typedState.put(entry, value);
+		markDirty(entry);
+
+		return true;
+	}
+
+	private void setIntArrayState(TwitchStateEntry entry, int[] values, int maxValue)
+	{
+		final TwitchStateValue currentValue = typedState.get(entry);
+
+		// guard: compare before copying, because most events do not change these values
+		if (currentValue instanceof TwitchStateValue.IntArray && ((TwitchStateValue.IntArray) currentValue).hasValues(values))
+		{
+			return;
+		}
+
+		setTypedState(entry, new TwitchStateValue.IntArray(values, maxValue));
+	}
+
+	private void setItemArrayState(TwitchStateEntry entry, Item[] items)
+	{
+		final TwitchStateValue currentValue = typedState.get(entry);
+
+		// guard: compare before copying, because most events do not change these items
+		if (currentValue instanceof TwitchStateValue.ItemArray && ((TwitchStateValue.ItemArray) currentValue).hasItems(items))
+		{
+			return;
+		}
+
+		setTypedState(entry, new TwitchStateValue.ItemArray(items));
+	}
+
+	private void removeCyclicState(TwitchStateEntry entry)
+	{
+		if (cyclicState.remove(entry.getKey()) != null)
+		{
+			markDirty(entry);
+			cyclicScheduler.markChanged(entry);
+		}
+	}
+
+	private boolean setEntry(JsonObject state, TwitchStateEntry entry, JsonElement value)
+	{
+		final String key = entry.getKey();
+		final JsonElement newValue = (value == null ? JsonNull.INSTANCE : value);
+		final JsonElement oldValue = state.get(key);
+
+		// guard: skip when the value is equal to the current one, note that the same instance
+		// is always considered a change as it can be mutated in place (e.g. the collection log)
+		if (oldValue != null && oldValue != newValue && oldValue.equals(newValue))
+		{
+			return false;
+		}
+
+		state.add(key, newValue);
+		markDirty(entry);
+
+		return true;
+	}
+
+	private void markDirty(TwitchStateEntry entry)
+	{
+		dirtyEntries.add(entry);
+		stateVersion.incrementAndGet();
+	}
+
+	private JsonElement toJson(Number value)
+	{
+		return (value == null ? JsonNull.INSTANCE : new JsonPrimitive(value));
+	}
+
+	private JsonElement toJson(String value)
+	{
+		return (value == null ? JsonNull.INSTANCE : new JsonPrimitive(value));
+	}
+
+	private JsonElement toJson(Boolean value)
+	{
+		return (value == null ? JsonNull.INSTANCE : new JsonPrimitive(value));
+	}
+
+	/**
+	 * Get a copy of the current state where only the entries that changed since
+	 * the previous call are copied again instead of copying the whole state.
+	 */
+	private JsonObject getCurrentStateCopy()
+	{
+		synchronized (currentStateSnapshot)
+		{
+			final Iterator<TwitchStateEntry> dirtyEntryIterator = dirtyEntries.iterator();
+
+			while (dirtyEntryIterator.hasNext())
+			{
+				final TwitchStateEntry dirtyEntry = dirtyEntryIterator.next();
+				final String key = dirtyEntry.getKey();
+				final TwitchStateValue typedValue = typedState.get(dirtyEntry);
+				final JsonElement value = currentState.get(key);
+
+				// remove before copying, so a change in the mean time will be copied next time
+				dirtyEntryIterator.remove();
+
+				// typed values are immutable and only converted to JSON here
+				if (typedValue != null)
+				{
+					currentStateSnapshot.add(key, typedValue.toJson());
+					continue;
+				}
+
+				if (value == null)
+				{
+					currentStateSnapshot.remove(key);
+					continue;
+				}
+
+				currentStateSnapshot.add(key, value.deepCopy());
+			}
+
+			// the entries of the snapshot are never mutated, only replaced,
+			// which makes it safe to share them with the filtered state
+			final JsonObject stateCopy = new JsonObject();
+
+			for (Map.Entry<String, JsonElement> entry : currentStateSnapshot.entrySet())
+			{
+				stateCopy.add(entry.getKey(), entry.getValue());
+			}
+
+			return stateCopy;
+		}
+	}
+
 	public JsonObject getFilteredState()
 	{
-		JsonObject filteredState = getState().deepCopy();
+		JsonObject filteredState = getCurrentStateCopy();
 
 		// add the state that is too big to sync at once
 		filteredState = addCyclicState(filteredState);
@@ -369,6 +728,18 @@ public class TwitchState {
 
 	public JsonObject addCyclicState(JsonObject state)
 	{
+		currentCyclicSliceSize = 0;
+		packedDirtyCollectionLogCategories = new ArrayList<>();
+
+		// changed categories are sent before continuing the rotation,
+		// so a new drop reaches the viewers in the next message
+		if (addDirtyCollectionLogCategories(state))
+		{
+			return state;
+		}
+
+		final TwitchStateEntry currentCyclicEntry = cyclicScheduler.getCurrentEntry();
+		final int currentCyclicSliceIndex = cyclicScheduler.getCurrentSliceIndex();
 
 		// add the bank items when in this mode
 		if (currentCyclicEntry == TwitchStateEntry.BANK_TABBED_ITEMS)
@@ -381,40 +752,20 @@ public class TwitchState {
 				return state;
 			}
 
-			AtomicInteger currentItemAmount = new AtomicInteger();
-			final JsonArray allTabbedBankItems = cyclicState.getAsJsonArray(bankTabbedItemsKey);
-			final JsonArray slicedTabbedBankItems = new JsonArray();
-			final JsonArray emptyItem = new JsonArray();
-			emptyItem.add(-1); // item ID
-			emptyItem.add(-1); // item quantity
-
-			// loop all the bank items until we find the item where we need to start syncing
-			for (int tabIndex = 0; tabIndex < allTabbedBankItems.size(); tabIndex++)
+			// guard: skip packing when the bank is cleared later on anyways
+			if (!config.bankEnabled())
 			{
-				JsonArray tabItems = allTabbedBankItems.get(tabIndex).getAsJsonArray();
-				JsonArray slicedTabItems = new JsonArray();
-
-				for (int itemIndex = 0; itemIndex < tabItems.size(); itemIndex++)
-				{
-					final boolean afterSliceStart = currentItemAmount.get() >= currentCyclicSliceIndex;
-					final boolean beforeSliceEnd = currentItemAmount.get() < (currentCyclicSliceIndex + MAX_BANK_ITEMS_PER_SLICE);
-					currentItemAmount.addAndGet(1);
-
-					// guard: add empty item when we are not in range
-					if (!afterSliceStart || !beforeSliceEnd) {
-						slicedTabItems.add(emptyItem);
-						continue;
-					}
-
-					slicedTabItems.add(tabItems.get(itemIndex));
-				}
-
-				// add each sliced tab
-				slicedTabbedBankItems.add(slicedTabItems);
+				return state;
 			}
 
-			state.add(bankTabbedItemsKey, slicedTabbedBankItems);
+			final JsonArray allTabbedBankItems = cyclicState.getAsJsonArray(bankTabbedItemsKey);
+			final int sliceStartIndex = currentCyclicSliceIndex;
+
+			// add the price first so it is taken into account when packing
 			state.addProperty(bankPriceKey, cyclicState.get(bankPriceKey).getAsLong());
+			currentCyclicSliceSize = packCyclicSlice(state, bankTabbedItemsKey, getBankItemAmount() - sliceStartIndex, (itemAmount) ->
+				getSlicedTabbedBankItems(allTabbedBankItems, sliceStartIndex, itemAmount)
+			);
 
 			return state;
 		}
@@ -422,69 +773,25 @@ public class TwitchState {
 		if (currentCyclicEntry == TwitchStateEntry.COLLECTION_LOG)
 		{
 			final JsonObject collectionLog = getCollectionLog();
-			final JsonObject slicedCollectionLog = new JsonObject();
-			AtomicInteger skippedItemAmount = new AtomicInteger();
-			AtomicInteger includedItemAmount = new AtomicInteger();
 
 			if (collectionLog == null)
 			{
 				return state;
 			}
 
-			collectionLog.keySet().forEach(tabTitle ->
+			// guard: skip packing when the collection log is cleared later on anyways
+			if (!config.collectionLogEnabled())
 			{
-				JsonObject categories = collectionLog.getAsJsonObject(tabTitle);
+				return state;
+			}
 
-				categories.keySet().forEach(categoryTitle ->
-				{
-					JsonObject category = categories.getAsJsonObject(categoryTitle);
-					JsonArray items = category.getAsJsonArray(ITEMS_KEY_NAME);
-
-					if (items == null)
-					{
-						return;
-					}
-
-					// guard: skip any categories that should not be included because of the filter
-					if (!shouldIncludeInCollectionLog(tabTitle, categoryTitle, items))
-					{
-						return;
-					}
-
-					int itemAmount = items.size();
-
-					// guard: check if we already passed the amount of items that were included
-					// in the last slice that is synced to the viewers
-					if (skippedItemAmount.get() < currentCyclicSliceIndex)
-					{
-						skippedItemAmount.addAndGet(itemAmount);
-						return;
-					}
-
-					// guard: check if we exceeded the maximum amount of items
-					// TODO: check if overflow in items might cause the max payload to exceed.
-					// this can for example happen with large categories, perhaps wise to set the
-					// max log items per slice to a fairly safe maximum so this cannot happen?
-					if (includedItemAmount.get() > MAX_COLLECTION_LOG_ITEMS_PER_SLICE)
-					{
-						return;
-					}
-
-					// now we can include this category
-					includedItemAmount.addAndGet(itemAmount);
-
-					// make sure the tab exists
-					if (!slicedCollectionLog.has(tabTitle))
-					{
-						slicedCollectionLog.add(tabTitle, new JsonObject());
-					}
-
-					JsonObject tabLog = slicedCollectionLog.getAsJsonObject(tabTitle);
-					tabLog.add(categoryTitle, category);
-				});
-			});
+			final List<Map.Entry<String, String>> categoryTitles = getIncludedCollectionLogCategoryTitles();
+			final int sliceStartIndex = Math.min(currentCyclicSliceIndex, categoryTitles.size());
 
-			state.add(TwitchStateEntry.COLLECTION_LOG.getKey(), slicedCollectionLog);
+			// the collection log is sliced per category so that a category is never partially synced
+			currentCyclicSliceSize = packCyclicSlice(state, TwitchStateEntry.COLLECTION_LOG.getKey(), categoryTitles.size() - sliceStartIndex, (categoryAmount) ->
+				getSlicedCollectionLog(collectionLog, categoryTitles.subList(sliceStartIndex, sliceStartIndex + categoryAmount))
+			);
 		}
 
 		if (currentCyclicEntry == TwitchStateEntry.QUESTS)
@@ -507,111 +814,314 @@ public class TwitchState {
 		return state;
 	}
 
-	public JsonObject addContentId(JsonObject state)
+	/**
+	 * Add as many of the changed collection log categories as fit in the payload
+	 * and get whether any were added.
+	 */
+	private boolean addDirtyCollectionLogCategories(JsonObject state)
 	{
-		state.addProperty(TwitchStateEntry.CONTENT_ID.getKey(), Long.toString(Instant.now().toEpochMilli()));
+		final JsonObject collectionLog = getCollectionLog();
 
-		return state;
+		// guard: skip when there is nothing to send
+		if (dirtyCollectionLogCategories.isEmpty() || collectionLog == null || !config.collectionLogEnabled())
+		{
+			return false;
+		}
+
+		final List<Map.Entry<String, String>> dirtyCategoryTitles = new ArrayList<>();
+
+		for (Map.Entry<String, String> categoryTitle : getIncludedCollectionLogCategoryTitles())
+		{
+			if (dirtyCollectionLogCategories.contains(categoryTitle))
+			{
+				dirtyCategoryTitles.add(categoryTitle);
+			}
+		}
+
+		// categories that are excluded by the filter are never sent
+		dirtyCollectionLogCategories.retainAll(dirtyCategoryTitles);
+
+		if (dirtyCategoryTitles.isEmpty())
+		{
+			return false;
+		}
+
+		final int packedAmount = packCyclicSlice(state, TwitchStateEntry.COLLECTION_LOG.getKey(), dirtyCategoryTitles.size(), (categoryAmount) ->
+			getSlicedCollectionLog(collectionLog, dirtyCategoryTitles.subList(0, categoryAmount))
+		);
+		packedDirtyCollectionLogCategories = new ArrayList<>(dirtyCategoryTitles.subList(0, packedAmount));
+
+		return true;
 	}
 
-	private boolean shouldIncludeInCollectionLog(String tabTitle, String categoryTitle, JsonArray items)
+	/**
+	 * Add the largest slice that fits in the payload to the state and get its amount of elements.
+	 * The amount of the previous slice is tried first and is kept as long as it fits. Otherwise
+	 * the amount is doubled until it does not fit anymore and then binary searched, which only
+	 * requires a few compressions of the state. At least one element is always included to
+	 * guarantee the cyclic state moves on, even when it exceeds the payload.
+	 */
+	private int packCyclicSlice(JsonObject state, String key, int remainingAmount, IntFunction<JsonElement> sliceBuilder)
 	{
-		final String filter = config.collectionLogFilter().trim().toLowerCase();
-		final String[] filterPieces = filter.split(COLLECTION_LOG_FILTER_SEPARATOR);
-		final String trimmedTabTitle = tabTitle.trim().toLowerCase();
-		final String trimmedCategoryTitle = categoryTitle.trim().toLowerCase();
+		final int maxSize = TwitchApi.MAX_PAYLOAD_SIZE - CYCLIC_STATE_PAYLOAD_MARGIN;
+		final Integer lastPackedAmount = lastPackedSliceAmounts.get(key);
+		int fittingAmount = 0;
+		int exceedingAmount = remainingAmount + 1;
+		int candidateAmount = Math.min(MIN_CYCLIC_SLICE_PACKING_AMOUNT, remainingAmount);
+
+		// guard: nothing left to pack, which still clears the previous slice for the viewers
+		if (remainingAmount <= 0)
+		{
+			state.add(key, sliceBuilder.apply(0));
+			return 0;
+		}
 
-		if (config.collectionLogSkipEmpty())
+		if (lastPackedAmount != null)
 		{
-			boolean foundItem = false;
+			final int lastCandidateAmount = Math.min(lastPackedAmount, remainingAmount);
+			state.add(key, sliceBuilder.apply(lastCandidateAmount));
 
-			// check all items whether something is obtained
-			for (JsonElement rawItem : items)
+			// keep the previous amount while it fits, which only took a single compression
+			if (measureStateSize(state) <= maxSize)
 			{
-				JsonArray item = rawItem.getAsJsonArray();
-				int itemQuantity = item.get(1).getAsInt();
+				return lastCandidateAmount;
+			}
 
-				if (itemQuantity > 0)
-				{
-					foundItem = true;
-				}
+			// only search below the amount that does not fit anymore
+			exceedingAmount = lastCandidateAmount;
+			candidateAmount = 0;
+		}
+
+		while (candidateAmount > fittingAmount)
+		{
+			state.add(key, sliceBuilder.apply(candidateAmount));
+
+			if (measureStateSize(state) > maxSize)
+			{
+				exceedingAmount = candidateAmount;
+				break;
 			}
 
-			// guard: when none is found skip this log page
-			if (!foundItem)
+			fittingAmount = candidateAmount;
+			candidateAmount = Math.min(candidateAmount * 2, remainingAmount);
+		}
+
+		while (exceedingAmount - fittingAmount > 1)
+		{
+			final int middleAmount = (fittingAmount + exceedingAmount) >>> 1;
+			state.add(key, sliceBuilder.apply(middleAmount));
+
+			if (measureStateSize(state) > maxSize)
 			{
-				return false;
+				exceedingAmount = middleAmount;
+			}
+			else
+			{
+				fittingAmount = middleAmount;
 			}
 		}
 
-		if (filter.equals(""))
+		final int packedAmount = Math.max(fittingAmount, 1);
+		state.add(key, sliceBuilder.apply(packedAmount));
+
+		// only remember amounts limited by the payload and not by the remaining elements
+		if (packedAmount < remainingAmount)
 		{
-			return true;
+			lastPackedSliceAmounts.put(key, packedAmount);
+		}
+
+		return packedAmount;
+	}
+
+	private int measureStateSize(JsonObject state)
+	{
+		try {
+			final JsonObject encodedState = (config.compactWireFormatEnabled() ? TwitchStateWireFormat.encode(state) : state);
+			return stateCompressor.measureCompressedSize(encodedState, TwitchStateCodec.fromConfig(config));
+		} catch (Exception exception) {
+			plugin.logSupport("Could not measure the state size due to the following error: ", exception);
 		}
 
-		for (final String filterPiece : filterPieces)
+		return Integer.MAX_VALUE;
+	}
+
+	private JsonArray getSlicedTabbedBankItems(JsonArray allTabbedBankItems, int sliceStartIndex, int itemAmount)
+	{
+		final JsonArray slicedTabbedBankItems = new JsonArray(allTabbedBankItems.size());
+		final int sliceEndIndex = sliceStartIndex + itemAmount;
+		updateBankSliceIndex(allTabbedBankItems);
+
+		// replace all the items outside of the slice with an empty item,
+		// so the viewers are still able to know the position of each item
+		for (int tabIndex = 0; tabIndex < allTabbedBankItems.size(); tabIndex++)
 		{
-			final String trimmedFilterPiece = filterPiece.trim();
+			final JsonArray tabItems = allTabbedBankItems.get(tabIndex).getAsJsonArray();
+			final int tabStartIndex = bankTabStartIndexes[tabIndex];
+			final int tabEndIndex = tabStartIndex + tabItems.size();
+
+			// whole tabs outside or inside of the slice are shared instead of copying each item
+			if (tabEndIndex <= sliceStartIndex || tabStartIndex >= sliceEndIndex)
+			{
+				slicedTabbedBankItems.add(emptyBankTabs[tabIndex]);
+				continue;
+			}
 
-			if (trimmedTabTitle.contains((trimmedFilterPiece)) || trimmedCategoryTitle.contains((trimmedFilterPiece)))
+			if (tabStartIndex >= sliceStartIndex && tabEndIndex <= sliceEndIndex)
 			{
-				return true;
+				slicedTabbedBankItems.add(tabItems);
+				continue;
 			}
+
+			final JsonArray slicedTabItems = new JsonArray(tabItems.size());
+
+			for (int itemIndex = 0; itemIndex < tabItems.size(); itemIndex++)
+			{
+				final int currentItemIndex = tabStartIndex + itemIndex;
+				final boolean inSlice = currentItemIndex >= sliceStartIndex && currentItemIndex < sliceEndIndex;
+
+				slicedTabItems.add(inSlice ? tabItems.get(itemIndex) : emptyBankItem);
+			}
+
+			slicedTabbedBankItems.add(slicedTabItems);
 		}
 
-		return false;
+		return slicedTabbedBankItems;
 	}
 
-	public void nextCyclicState()
+	/**
+	 * Determine the first item index of each tab and the empty tabs again when the bank changed.
+	 */
+	private void updateBankSliceIndex(JsonArray allTabbedBankItems)
 	{
 
-		// after bank items are synced we move to the collection log
-		// we cannot sync the bank in one go either so we go through the slices
-		if (currentCyclicEntry == TwitchStateEntry.BANK_TABBED_ITEMS)
+		// guard: the index is still valid for the same bank
+		if (allTabbedBankItems == bankSliceIndexSource)
 		{
-			final int itemAmount = getBankItemAmount();
-			final int newSliceIndex = currentCyclicSliceIndex + MAX_BANK_ITEMS_PER_SLICE;
-			currentCyclicSliceIndex = newSliceIndex;
+			return;
+		}
+
+		final int tabAmount = allTabbedBankItems.size();
+		int itemAmount = 0;
+		bankTabStartIndexes = new int[tabAmount];
+		emptyBankTabs = new JsonArray[tabAmount];
 
-			// if the current slices were already exceeding the current items
-			// we can move to syncing the collection log once again
-			if (!config.bankEnabled() || currentCyclicSliceIndex >= itemAmount)
+		for (int tabIndex = 0; tabIndex < tabAmount; tabIndex++)
+		{
+			final int tabItemAmount = allTabbedBankItems.get(tabIndex).getAsJsonArray().size();
+			final JsonArray emptyBankTab = new JsonArray(tabItemAmount);
+
+			for (int itemIndex = 0; itemIndex < tabItemAmount; itemIndex++)
 			{
-				currentCyclicEntry = TwitchStateEntry.COLLECTION_LOG;
-				currentCyclicSliceIndex = 0;
+				emptyBankTab.add(emptyBankItem);
 			}
+
+			bankTabStartIndexes[tabIndex] = itemAmount;
+			emptyBankTabs[tabIndex] = emptyBankTab;
+			itemAmount += tabItemAmount;
 		}
 
-		// the collection log is a bit more complex as we cannot sync 1351+ items
-		// in one go, for this reason we move across the object category by category
-		// after this we go to the quests
-		else if (currentCyclicEntry == TwitchStateEntry.COLLECTION_LOG)
+		bankItemAmount = itemAmount;
+		bankSliceIndexSource = allTabbedBankItems;
+	}
+
+	private JsonObject getSlicedCollectionLog(JsonObject collectionLog, List<Map.Entry<String, String>> categoryTitles)
+	{
+		final JsonObject slicedCollectionLog = new JsonObject();
+
+		for (Map.Entry<String, String> categoryTitle : categoryTitles)
 		{
-			final int itemAmount = getCollectionLogItemAmount();
-			final int newSliceIndex = currentCyclicSliceIndex + MAX_COLLECTION_LOG_ITEMS_PER_SLICE;
-			currentCyclicSliceIndex = newSliceIndex;
+			final String tabTitle = categoryTitle.getKey();
+			final JsonObject category = collectionLog.getAsJsonObject(tabTitle).getAsJsonObject(categoryTitle.getValue());
 
-			// if the current slices were already exceeding the current items
-			// we can move to syncing the bank once again
-			if (!config.collectionLogEnabled() || currentCyclicSliceIndex >= itemAmount)
+			// make sure the tab exists
+			if (!slicedCollectionLog.has(tabTitle))
 			{
-				currentCyclicEntry = TwitchStateEntry.QUESTS;
-				currentCyclicSliceIndex = 0;
+				slicedCollectionLog.add(tabTitle, new JsonObject());
 			}
+
+			JsonObject tabLog = slicedCollectionLog.getAsJsonObject(tabTitle);
+			tabLog.add(categoryTitle.getValue(), category);
+		}
+
+		return slicedCollectionLog;
+	}
+
+	public JsonObject addContentId(JsonObject state)
+	{
+		state.addProperty(TwitchStateEntry.CONTENT_ID.getKey(), Long.toString(Instant.now().toEpochMilli()));
+
+		return state;
+	}
+
+	public void nextCyclicState()
+	{
+
+		// guard: the changed collection log categories were sent instead of the
+		// current slice, which means the rotation continues where it was
+		if (!packedDirtyCollectionLogCategories.isEmpty())
+		{
+			dirtyCollectionLogCategories.removeAll(packedDirtyCollectionLogCategories);
+			packedDirtyCollectionLogCategories = new ArrayList<>();
+			return;
 		}
 
-		// after quests we go to invocations
-		else if (currentCyclicEntry == TwitchStateEntry.QUESTS)
+		final TwitchStateEntry currentCyclicEntry = cyclicScheduler.getCurrentEntry();
+		final int newSliceIndex = cyclicScheduler.getCurrentSliceIndex() + currentCyclicSliceSize;
+		boolean isRotationCompleted = true;
+
+		// the bank and the collection log cannot be synced in one go,
+		// so their rotation is only completed after the last slice
+		if (currentCyclicEntry == TwitchStateEntry.BANK_TABBED_ITEMS)
 		{
-			currentCyclicEntry = TwitchStateEntry.INVOCATIONS;
-			currentCyclicSliceIndex = 0;
+			isRotationCompleted = (!config.bankEnabled() || newSliceIndex >= getBankItemAmount());
+		}
+		else if (currentCyclicEntry == TwitchStateEntry.COLLECTION_LOG)
+		{
+			isRotationCompleted = (!config.collectionLogEnabled() || newSliceIndex >= getIncludedCollectionLogCategoryTitles().size());
 		}
 
-		// after invocations we go back to the bank
-		else if (currentCyclicEntry == TwitchStateEntry.INVOCATIONS)
+		// search the slice amount again each rotation to grow with contents that compress better
+		if (isRotationCompleted)
 		{
-			currentCyclicEntry = TwitchStateEntry.BANK_TABBED_ITEMS;
-			currentCyclicSliceIndex = 0;
+			lastPackedSliceAmounts.remove(currentCyclicEntry.getKey());
+		}
+
+		final long fullRefreshStartNanos = cyclicScheduler.completeSlice(newSliceIndex, isRotationCompleted, this::hasCyclicEntryContent);
+		final TwitchApi twitchApi = plugin.getTwitchApi();
+
+		// guard: skip when no full refresh completed
+		if (fullRefreshStartNanos < 0 || twitchApi == null)
+		{
+			return;
+		}
+
+		twitchApi.getSyncMetrics().recordSince(TwitchSyncMetric.CYCLIC_FULL_REFRESH, fullRefreshStartNanos);
+	}
+
+	public TwitchStateEntry getCurrentCyclicEntry()
+	{
+		return cyclicScheduler.getCurrentEntry();
+	}
+
+	public int getCurrentCyclicSliceIndex()
+	{
+		return cyclicScheduler.getCurrentSliceIndex();
+	}
+
+	/**
+	 * Get whether a cyclic entry has anything to send, because disabled
+	 * or empty entries should not take the place of other entries.
+	 */
+	private boolean hasCyclicEntryContent(TwitchStateEntry entry)
+	{
+		switch (entry)
+		{
+			case BANK_TABBED_ITEMS:
+				return config.bankEnabled() && cyclicState.has(entry.getKey()) && cyclicState.has(TwitchStateEntry.BANK_PRICE.getKey());
+			case COLLECTION_LOG:
+				return config.collectionLogEnabled() && getCollectionLog() != null;
+			default:
+				return cyclicState.has(entry.getKey()) && !cyclicState.get(entry.getKey()).isJsonNull();
 		}
 	}
 
@@ -817,33 +1327,28 @@ public class TwitchState {
 		return itemsJson;
 	}
 
-	private JsonArray convertToJson(int[] array, int maxValue)
+	/**
+	 * Get the tab and category titles of all collection log categories that pass the filter in order.
+	 */
+	private List<Map.Entry<String, String>> getIncludedCollectionLogCategoryTitles()
 	{
-		final int length = array.length;
-		final int[] copiedArray = new int[length];
-
-		// Prevent the original array to be mutated with testing mode
-		// as it can be an array that is used for rendering.
-		System.arraycopy(array, 0, copiedArray, 0, length);
+		final JsonObject collectionLog = getCollectionLog();
+		final TwitchCollectionLogFilter filter = collectionLogFilter;
 
-		if (STATE_STRESS_TEST_ENABLED && maxValue > 0) {
-			for (int i = 0; i < array.length; i++) {
-				copiedArray[i] = (int) (Math.random() * maxValue);
-			}
+		// guard: the categories are still valid for the same collection log and filter
+		if (collectionLog == includedCollectionLogCategoriesSource && filter == includedCollectionLogCategoriesFilter)
+		{
+			return includedCollectionLogCategoryTitles;
 		}
 
-		JsonArray json = gson.toJsonTree(copiedArray).getAsJsonArray();
-		return json;
-	}
-
-	private int getCollectionLogItemAmount()
-	{
-		final JsonObject collectionLog = getCollectionLog();
-		AtomicInteger amount = new AtomicInteger();
+		final List<Map.Entry<String, String>> categoryTitles = new ArrayList<>();
+		includedCollectionLogCategoriesSource = collectionLog;
+		includedCollectionLogCategoriesFilter = filter;
+		includedCollectionLogCategoryTitles = categoryTitles;
 
 		if (collectionLog == null)
 		{
-			return amount.get();
+			return categoryTitles;
 		}
 
 		collectionLog.keySet().forEach(tabTitle ->
@@ -861,91 +1366,187 @@ public class TwitchState {
 				}
 
 				// guard: skip any categories that should not be included because of the filter
-				if (!shouldIncludeInCollectionLog(tabTitle, categoryTitle, items))
+				if (!filter.isIncluded(tabTitle, categoryTitle, items))
 				{
 					return;
 				}
 
-				amount.addAndGet(items.size());
+				categoryTitles.add(new AbstractMap.SimpleEntry<>(tabTitle, categoryTitle));
 			});
 		});
 
-		return amount.get();
+		return categoryTitles;
 	}
 
 	private int getBankItemAmount()
 	{
 		final JsonArray tabbedBankItems = getTabbedBankItems();
-		int amount = 0;
 
 		if (tabbedBankItems == null) {
-			return amount;
+			return 0;
 		}
 
-		for (int tabIndex = 0; tabIndex < tabbedBankItems.size(); tabIndex++)
+		updateBankSliceIndex(tabbedBankItems);
+
+		return bankItemAmount;
+	}
+
+	/**
+	 * Switch to the persisted state of the new account, which is loaded on other threads
+	 * to not block the client thread. The loaded state is published all at once when ready.
+	 */
+	public void onAccountChanged()
+	{
+		final long switchStartNanos = System.nanoTime();
+		final String newAccountIdentifier = plugin.getAccountIdentifier();
+		final long newAccountGeneration = accountGeneration.incrementAndGet();
+
+		// keep the state of the previous account in memory for a quick switch back,
+		// but only when it was completely loaded before switching again
+		if (accountIdentifier != null && isAccountStatePublished)
 		{
-			JsonArray tabItems = tabbedBankItems.get(tabIndex).getAsJsonArray();
-			amount += tabItems.size();
+			accountStateLoader.cache(accountIdentifier, getPersistedState());
 		}
 
-		return amount;
+		accountIdentifier = newAccountIdentifier;
+		isAccountStatePublished = false;
+		changedPersistedKeys.clear();
+		snapshotStore.switchAccount(newAccountIdentifier);
+		clearPersistedState();
+
+		accountStateLoader.load(newAccountIdentifier, plugin.getPlayerName(), new ArrayList<>(PERSISTED_ENTRIES.keySet())).thenAccept((accountState) -> {
+			plugin.runOnClientThread(() -> {
+
+				// guard: skip when another account is active in the meantime
+				if (newAccountGeneration != accountGeneration.get())
+				{
+					return;
+				}
+
+				publishAccountState(accountState);
+				isAccountStatePublished = true;
+
+				final TwitchApi twitchApi = plugin.getTwitchApi();
+
+				if (twitchApi != null)
+				{
+					twitchApi.getSyncMetrics().recordSince(TwitchSyncMetric.ACCOUNT_SWITCH, switchStartNanos);
+				}
+			});
+		});
 	}
 
-	public void onAccountChanged()
+	/**
+	 * Write the pending snapshots and free the native memory of the compressor before the plugin stops.
+	 */
+	public void shutDown()
 	{
-		reloadConfiguration();
+		accountStateLoader.shutDown();
+		snapshotStore.shutDown();
+		stateCompressor.shutDown();
 	}
 
-	private void reloadConfiguration()
+	private void clearPersistedState()
 	{
-		// when another account logs in the cache should be updated to that account
-		// first we reset the data and after that check the cache
-		cyclicState.remove(TwitchStateEntry.COLLECTION_LOG.getKey());
-		cyclicState.remove(TwitchStateEntry.BANK_TABBED_ITEMS.getKey());
-		cyclicState.remove(TwitchStateEntry.BANK_PRICE.getKey());
-		cyclicState.remove(TwitchStateEntry.QUESTS.getKey());
-		cyclicState.remove(TwitchStateEntry.INVOCATIONS.getKey());
-		cyclicState.remove(TwitchStateEntry.INVOCATIONS_RAID_LEVEL.getKey());
+		// when another account logs in the state should be updated to that account
+		// first we reset the data and after that the state of the new account is loaded
+		removeCyclicState(TwitchStateEntry.COLLECTION_LOG);
+		removeCyclicState(TwitchStateEntry.BANK_TABBED_ITEMS);
+		removeCyclicState(TwitchStateEntry.BANK_PRICE);
+		removeCyclicState(TwitchStateEntry.QUESTS);
+		removeCyclicState(TwitchStateEntry.INVOCATIONS);
+		removeCyclicState(TwitchStateEntry.INVOCATIONS_RAID_LEVEL);
+
+		setState(TwitchStateEntry.LOOTING_BAG_ITEMS, JsonNull.INSTANCE);
+		setState(TwitchStateEntry.LOOTING_BAG_PRICE, toJson(0));
+		dirtyCollectionLogCategories.clear();
+	}
 
-		currentState.add(TwitchStateEntry.LOOTING_BAG_ITEMS.getKey(), null);
-		currentState.addProperty(TwitchStateEntry.LOOTING_BAG_PRICE.getKey(), 0);
+	/**
+	 * Set the loaded state of an account without saving it again. Entries that
+	 * changed after the account switch are more recent and are therefore skipped.
+	 */
+	private void publishAccountState(Map<String, JsonElement> accountState)
+	{
+		PERSISTED_ENTRIES.forEach((key, entry) -> {
+			final JsonElement value = accountState.get(key);
 
-		plugin.loadFromConfiguration(COLLECTION_LOG_CONFIG_KEY, (String rawCollectionLog) -> {
-			JsonObject parsedCollectionLog = new JsonParser().parse(rawCollectionLog).getAsJsonObject();
-			setCollectionLog(parsedCollectionLog);
-		});
+			// guard: skip when nothing was stored or it is outdated
+			if (value == null || value.isJsonNull() || changedPersistedKeys.contains(key))
+			{
+				return;
+			}
 
-		plugin.loadFromConfiguration(BANK_TABBED_ITEMS_CONFIG_KEY, (String rawItems) -> {
-			JsonArray parsedTabbedItems = new JsonParser().parse(rawItems).getAsJsonArray();
-			setBankItems(parsedTabbedItems);
+			try {
+				setPersistedEntry(entry, normalizePersistedValue(entry, value));
+			} catch (Exception exception) {
+				plugin.logSupport("Could not publish the stored state '"+ key +"' due to the following error: ", exception);
+			}
 		});
+	}
 
-		plugin.loadFromConfiguration(BANK_PRICE_CONFIG_KEY, (String price) -> {
-			setBankItemsPrice(Long.parseLong(price));
-		});
+	/**
+	 * Prices and levels were stored as strings in the configuration, which are parsed to numbers here.
+	 */
+	private JsonElement normalizePersistedValue(TwitchStateEntry entry, JsonElement value)
+	{
+		switch (entry)
+		{
+			case BANK_PRICE:
+			case LOOTING_BAG_PRICE:
+				return toJson(value.getAsLong());
+			case INVOCATIONS_RAID_LEVEL:
+				return toJson(value.getAsInt());
+			default:
+				return value;
+		}
+	}
 
-		plugin.loadFromConfiguration(QUESTS_CONFIG_KEY, (String rawQuests) -> {
-			JsonArray parsedQuests = new JsonParser().parse(rawQuests).getAsJsonArray();
-			setQuests(parsedQuests);
-		});
+	private Map<String, JsonElement> getPersistedState()
+	{
+		final Map<String, JsonElement> persistedState = new HashMap<>();
 
-		plugin.loadFromConfiguration(LOOTING_BAG_ITEMS_CONFIG_KEY, (String rawItems) -> {
-			JsonArray parsedItems = new JsonParser().parse(rawItems).getAsJsonArray();
-			setItems(TwitchStateEntry.LOOTING_BAG_ITEMS.getKey(), parsedItems);
-		});
+		PERSISTED_ENTRIES.forEach((key, entry) -> {
+			final JsonElement value = getPersistedEntry(entry);
 
-		plugin.loadFromConfiguration(LOOTING_BAG_PRICE_CONFIG_KEY, (String price) -> {
-			setItemsPrice(TwitchStateEntry.LOOTING_BAG_PRICE.getKey(), price);
+			if (value != null && !value.isJsonNull())
+			{
+				persistedState.put(key, value);
+			}
 		});
 
-		plugin.loadFromConfiguration(INVOCATIONS_CONFIG_KEY, (String rawInvocations) -> {
-			JsonArray parsedInvocations = new JsonParser().parse(rawInvocations).getAsJsonArray();
-			setInvocations(parsedInvocations);
-		});
+		return persistedState;
+	}
 
-		plugin.loadFromConfiguration(INVOCATIONS_RAID_LEVEL_CONFIG_KEY, (String raidLevel) -> {
-			setInvocationsRaidLevel(raidLevel);
-		});
+	private JsonElement getPersistedEntry(TwitchStateEntry entry)
+	{
+		return (isCyclicEntry(entry) ? cyclicState : currentState).get(entry.getKey());
+	}
+
+	private void setPersistedEntry(TwitchStateEntry entry, JsonElement value)
+	{
+		if (isCyclicEntry(entry))
+		{
+			setCyclicState(entry, value);
+		}
+		else
+		{
+			setState(entry, value);
+		}
+	}
+
+	private boolean isCyclicEntry(TwitchStateEntry entry)
+	{
+		return entry != TwitchStateEntry.LOOTING_BAG_ITEMS && entry != TwitchStateEntry.LOOTING_BAG_PRICE;
+	}
+
+	/**
+	 * Save a changed entry of the current account.
+	 */
+	private void persist(String key, JsonElement value)
+	{
+		changedPersistedKeys.add(key);
+		snapshotStore.save(key, value);
 	}
 
 	public void setInToA(boolean isInToA)
@@ -0,0 +1,31 @@
+package com.twitchliveloadout.twitch;
+
+import com.twitchliveloadout.TwitchLiveLoadoutConfig;
+import lombok.Getter;
+
+/**
+ * The compression formats the state can be sent in. The marker is prepended to the
+ * Base64 payload so the viewers know how to decode it. GZIP has no marker for backwards
+ * compatibility, which is safe because a marker always contains a character that is
+ * not part of the Base64 alphabet.
+ */
+public enum TwitchStateCodec {
+	GZIP(""),
+
+	// NOTE: the version in the marker refers to the preset dictionary,
+	// bump it whenever the dictionary is changed
+	DEFLATE_DICTIONARY("dd1."),
+	;
+
+	@Getter
+	private final String marker;
+
+	TwitchStateCodec(String marker) {
+		this.marker = marker;
+	}
+
+	public static TwitchStateCodec fromConfig(TwitchLiveLoadoutConfig config)
+	{
+		return config.dictionaryCompressionEnabled() ? DEFLATE_DICTIONARY : GZIP;
+	}
+}
@@ -0,0 +1,135 @@
+package com.twitchliveloadout.twitch;
+
+import lombok.Getter;
+
+import java.util.zip.Deflater;
+
+/**
+ * Picks the deflate level and strategy for the state based on earlier compressions.
+ * The candidate with the smallest output is chosen as long as it stays within the CPU
+ * budget per byte of JSON. Periodically another candidate is tried to keep the
+ * measurements up to date as the contents of the state change. Measuring the size of
+ * a state without sending it always uses the best candidate and is not recorded.
+ */
+public class TwitchStateCompressionTuner
+{
+	private final static int EXPLORATION_INTERVAL = 25; // compressions
+	private final static double MAX_NANOS_PER_INPUT_BYTE = 50;
+	private final static double SMOOTHING_FACTOR = 0.2;
+
+	public enum Candidate {
+		FAST(Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY),
+		DEFAULT(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY),
+		DEFAULT_FILTERED(Deflater.DEFAULT_COMPRESSION, Deflater.FILTERED),
+		BEST(Deflater.BEST_COMPRESSION, Deflater.DEFAULT_STRATEGY),
+		BEST_FILTERED(Deflater.BEST_COMPRESSION, Deflater.FILTERED),
+		;
+
+		@Getter
+		private final int level;
+		@Getter
+		private final int strategy;
+
+		Candidate(int level, int strategy) {
+			this.level = level;
+			this.strategy = strategy;
+		}
+	}
+
+	private final Candidate[] candidates = Candidate.values();
+	private final double[] nanosPerInputByte = new double[candidates.length];
+	private final double[] compressionRatios = new double[candidates.length];
+	private final boolean[] measured = new boolean[candidates.length];
+	private int compressionCount = 0;
+	private int explorationIndex = 0;
+
+	@Getter
+	private volatile Candidate bestCandidate = Candidate.DEFAULT;
+
+	public synchronized Candidate selectCandidate()
+	{
+		compressionCount++;
+
+		// measure every candidate once before choosing
+		for (int candidateIndex = 0; candidateIndex < candidates.length; candidateIndex++)
+		{
+			if (!measured[candidateIndex])
+			{
+				return candidates[candidateIndex];
+			}
+		}
+
+		if (compressionCount % EXPLORATION_INTERVAL == 0)
+		{
+			explorationIndex = (explorationIndex + 1) % candidates.length;
+			return candidates[explorationIndex];
+		}
+
+		return bestCandidate;
+	}
+
+	public synchronized void record(Candidate candidate, long durationNanos, long inputBytes, long outputBytes)
+	{
+		final int candidateIndex = candidate.ordinal();
+
+		// guard: nothing to learn from an empty input
+		if (inputBytes <= 0)
+		{
+			return;
+		}
+
+		final double newNanosPerInputByte = ((double) durationNanos) / inputBytes;
+		final double newCompressionRatio = ((double) outputBytes) / inputBytes;
+
+		if (measured[candidateIndex])
+		{
+			nanosPerInputByte[candidateIndex] += SMOOTHING_FACTOR * (newNanosPerInputByte - nanosPerInputByte[candidateIndex]);
+			compressionRatios[candidateIndex] += SMOOTHING_FACTOR * (newCompressionRatio - compressionRatios[candidateIndex]);
+		}
+		else
+		{
+			nanosPerInputByte[candidateIndex] = newNanosPerInputByte;
+			compressionRatios[candidateIndex] = newCompressionRatio;
+			measured[candidateIndex] = true;
+		}
+
+		updateBestCandidate();
+	}
+
+	private void updateBestCandidate()
+	{
+		Candidate newBestCandidate = null;
+		double bestCompressionRatio = Double.MAX_VALUE;
+		Candidate fastestCandidate = Candidate.FAST;
+		double fastestNanosPerInputByte = Double.MAX_VALUE;
+
+		for (int candidateIndex = 0; candidateIndex < candidates.length; candidateIndex++)
+		{
+			if (!measured[candidateIndex])
+			{
+				continue;
+			}
+
+			if (nanosPerInputByte[candidateIndex] < fastestNanosPerInputByte)
+			{
+				fastestNanosPerInputByte = nanosPerInputByte[candidateIndex];
+				fastestCandidate = candidates[candidateIndex];
+			}
+
+			// guard: skip candidates that are too expensive
+			if (nanosPerInputByte[candidateIndex] > MAX_NANOS_PER_INPUT_BYTE)
+			{
+				continue;
+			}
+
+			if (compressionRatios[candidateIndex] < bestCompressionRatio)
+			{
+				bestCompressionRatio = compressionRatios[candidateIndex];
+				newBestCandidate = candidates[candidateIndex];
+			}
+		}
+
+		// fallback to the fastest when all are over budget, e.g. on a slow machine
+		bestCandidate = (newBestCandidate == null ? fastestCandidate : newBestCandidate);
+	}
+}
@@ -0,0 +1,431 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Serializes and compresses the state in one streaming pass. The JSON is written
+ * straight into a deflater that is reused for every message, which prevents copies
+ * of the full payload as strings and byte arrays and the native allocation of a new
+ * compressor on every send. The GZIP output is byte compatible with a GZIPOutputStream.
+ * The dictionary output is a zlib stream using the preset dictionary where the level
+ * and strategy are tuned by the measured compression cost and size.
+ */
+public class TwitchStateCompressor
+{
+	private final static int BUFFER_SIZE = 8 * 1024; // bytes
+	private final static byte[] GZIP_HEADER = {
+		0x1f, (byte) 0x8b, // magic number
+		Deflater.DEFLATED, // compression method
+		0, // flags
+		0, 0, 0, 0, // modification time
+		0, // extra flags
+		(byte) 0xff, // operating system (unknown, same as GZIPOutputStream)
+	};
+
+	private final TypeAdapter<JsonElement> jsonElementAdapter;
+	private final Deflater gzipDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final Deflater dictionaryDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, false);
+	private final TwitchStateCompressionTuner dictionaryTuner;
+	private Deflater deflater = gzipDeflater;
+	private final CRC32 crc = new CRC32();
+	private final byte[] deflateBuffer = new byte[BUFFER_SIZE];
+	private final PooledOutputStream compressedBuffer = new PooledOutputStream(BUFFER_SIZE);
+	private final PooledOutputStream encodedBuffer = new PooledOutputStream(BUFFER_SIZE);
+	private final Utf8Writer utf8Writer = new Utf8Writer(new DeflaterSink());
+	private boolean isShutDown = false;
+
+	public TwitchStateCompressor(Gson gson, TwitchStateCompressionTuner dictionaryTuner)
+	{
+		this.jsonElementAdapter = gson.getAdapter(JsonElement.class);
+		this.dictionaryTuner = dictionaryTuner;
+	}
+
+	/**
+	 * Compress the state and get it as a Base64 string prefixed with the codec marker that can be sent to Twitch.
+	 */
+	public synchronized String compressToBase64(JsonElement state, TwitchStateCodec codec) throws IOException
+	{
+		compress(state, codec, true);
+		encodedBuffer.reset();
+		encodedBuffer.write(codec.getMarker().getBytes(StandardCharsets.ISO_8859_1));
+
+		// closing the Base64 stream is required to write the padding,
+		// which does not close the pooled buffer as it is a no-op there
+		final OutputStream base64Stream = Base64.getEncoder().wrap(encodedBuffer);
+		base64Stream.write(compressedBuffer.getBuffer(), 0, compressedBuffer.size());
+		base64Stream.close();
+
+		return new String(encodedBuffer.getBuffer(), 0, encodedBuffer.size(), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Get the size of the Base64 string the state would result in without creating it.
+	 * The best candidate of the tuner is used, which is also the one the state is sent with.
+	 */
+	public synchronized int measureCompressedSize(JsonElement state, TwitchStateCodec codec) throws IOException
+	{
+		compress(state, codec, false);
+
+		return codec.getMarker().length() + getBase64Size(compressedBuffer.size());
+	}
+
+	/**
+	 * Free the native memory of the deflaters right away instead of waiting for the garbage collector.
+	 * Compressing afterwards fails with an exception.
+	 */
+	public synchronized void shutDown()
+	{
+		isShutDown = true;
+		gzipDeflater.end();
+		dictionaryDeflater.end();
+	}
+
+	/**
+	 * Reverse of the compression, which is how the viewers read the state.
+	 * This is used to replay recorded messages and is not part of the sync itself.
+	 */
+	public static String decompressFromBase64(String message) throws IOException
+	{
+		final boolean isDictionaryCodec = message.startsWith(TwitchStateCodec.DEFLATE_DICTIONARY.getMarker());
+		final String encodedState = (isDictionaryCodec ? message.substring(TwitchStateCodec.DEFLATE_DICTIONARY.getMarker().length()) : message);
+		final byte[] compressedState = Base64.getDecoder().decode(encodedState);
+
+		if (isDictionaryCodec)
+		{
+			return inflateWithDictionary(compressedState);
+		}
+
+		try (InputStream gzipInput = new GZIPInputStream(new ByteArrayInputStream(compressedState))) {
+			final ByteArrayOutputStream state = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			int length;
+
+			while ((length = gzipInput.read(buffer)) > 0)
+			{
+				state.write(buffer, 0, length);
+			}
+
+			return new String(state.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static String inflateWithDictionary(byte[] compressedState) throws IOException
+	{
+		final Inflater inflater = new Inflater();
+		final ByteArrayOutputStream state = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		try {
+			inflater.setInput(compressedState);
+
+			while (!inflater.finished())
+			{
+				final int length = inflater.inflate(buffer);
+				state.write(buffer, 0, length);
+
+				if (inflater.needsDictionary())
+				{
+					inflater.setDictionary(TwitchStateDictionary.DICTIONARY);
+				}
+				else if (length == 0 && inflater.needsInput())
+				{
+					throw new IOException("The compressed state is truncated.");
+				}
+			}
+		} catch (DataFormatException exception) {
+			throw new IOException("The compressed state is invalid.", exception);
+		} finally {
+			inflater.end();
+		}
+
+		return new String(state.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	public static int getBase64Size(int byteAmount)
+	{
+		return ((byteAmount + 2) / 3) * 4;
+	}
+
+	private void compress(JsonElement state, TwitchStateCodec codec, boolean isSending) throws IOException
+	{
+
+		// guard: the deflaters cannot be used anymore after they ended
+		if (isShutDown)
+		{
+			throw new IOException("The state compressor is shut down.");
+		}
+
+		if (codec == TwitchStateCodec.DEFLATE_DICTIONARY)
+		{
+			compressWithDictionary(state, isSending);
+			return;
+		}
+
+		compressedBuffer.reset();
+		compressedBuffer.write(GZIP_HEADER);
+		deflater = gzipDeflater;
+		deflater.reset();
+		crc.reset();
+
+		writeJson(state);
+
+		writeIntLittleEndian((int) crc.getValue());
+		writeIntLittleEndian((int) deflater.getBytesRead());
+	}
+
+	private void compressWithDictionary(JsonElement state, boolean isSending) throws IOException
+	{
+		final TwitchStateCompressionTuner.Candidate bestCandidate = dictionaryTuner.getBestCandidate();
+
+		// guard: measuring only uses the best candidate and does not train the tuner
+		if (!isSending)
+		{
+			deflateWithDictionary(state, bestCandidate);
+			return;
+		}
+
+		final TwitchStateCompressionTuner.Candidate candidate = dictionaryTuner.selectCandidate();
+		final long startTime = System.nanoTime();
+
+		deflateWithDictionary(state, candidate);
+		dictionaryTuner.record(candidate, System.nanoTime() - startTime, deflater.getBytesRead(), compressedBuffer.size());
+
+		// an explored candidate is only measured, because the cyclic slices
+		// are packed to fit in the payload when compressed with the best candidate
+		if (candidate != bestCandidate)
+		{
+			deflateWithDictionary(state, bestCandidate);
+		}
+	}
+
+	private void deflateWithDictionary(JsonElement state, TwitchStateCompressionTuner.Candidate candidate) throws IOException
+	{
+
+		// the zlib format writes its own header and checksum, which includes
+		// the ID of the dictionary so the viewers can verify they use the right one
+		compressedBuffer.reset();
+		deflater = dictionaryDeflater;
+		deflater.reset();
+		deflater.setLevel(candidate.getLevel());
+		deflater.setStrategy(candidate.getStrategy());
+		deflater.setDictionary(TwitchStateDictionary.DICTIONARY);
+
+		writeJson(state);
+	}
+
+	private void writeJson(JsonElement state) throws IOException
+	{
+
+		// lenient and with nulls to have the exact same output as JsonElement.toString()
+		// NOTE: the writer is not closed because that would close the reused UTF-8 writer
+		final JsonWriter jsonWriter = new JsonWriter(utf8Writer);
+		jsonWriter.setLenient(true);
+		jsonWriter.setSerializeNulls(true);
+		jsonElementAdapter.write(jsonWriter, state);
+		jsonWriter.flush();
+
+		deflater.finish();
+
+		while (!deflater.finished())
+		{
+			drainDeflater();
+		}
+	}
+
+	private void drainDeflater()
+	{
+		final int length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.NO_FLUSH);
+		compressedBuffer.write(deflateBuffer, 0, length);
+	}
+
+	private void writeIntLittleEndian(int value)
+	{
+		compressedBuffer.write(value & 0xff);
+		compressedBuffer.write((value >> 8) & 0xff);
+		compressedBuffer.write((value >> 16) & 0xff);
+		compressedBuffer.write((value >> 24) & 0xff);
+	}
+
+	/**
+	 * Stream feeding all written bytes to the reused deflater.
+	 */
+	private class DeflaterSink extends OutputStream
+	{
+		@Override
+		public void write(int value)
+		{
+			write(new byte[]{(byte) value}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length)
+		{
+			crc.update(bytes, offset, length);
+			deflater.setInput(bytes, offset, length);
+
+			// consume all input, because the given buffer is reused by the caller
+			while (!deflater.needsInput())
+			{
+				drainDeflater();
+			}
+		}
+	}
+
+	/**
+	 * Byte array stream that exposes its buffer so it can be read without copying.
+	 * Resetting keeps the allocated capacity for the next message.
+	 */
+	private static class PooledOutputStream extends ByteArrayOutputStream
+	{
+		PooledOutputStream(int initialSize)
+		{
+			super(initialSize);
+		}
+
+		byte[] getBuffer()
+		{
+			return buf;
+		}
+	}
+
+	/**
+	 * Writer encoding characters to UTF-8 into a small reused buffer.
+	 */
+	private static class Utf8Writer extends Writer
+	{
+		private final OutputStream out;
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int position = 0;
+		private char highSurrogate = 0;
+
+		Utf8Writer(OutputStream out)
+		{
+			this.out = out;
+		}
+
+		@Override
+		public void write(int character) throws IOException
+		{
+			writeChar((char) character);
+		}
+
+		@Override
+		public void write(char[] characters, int offset, int length) throws IOException
+		{
+			for (int index = offset; index < offset + length; index++)
+			{
+				writeChar(characters[index]);
+			}
+		}
+
+		@Override
+		public void write(String text, int offset, int length) throws IOException
+		{
+			for (int index = offset; index < offset + length; index++)
+			{
+				writeChar(text.charAt(index));
+			}
+		}
+
+		private void writeChar(char character) throws IOException
+		{
+			// make sure there is always room for the longest encoded character
+			if (position > buffer.length - 4)
+			{
+				flushBuffer();
+			}
+
+			if (highSurrogate != 0)
+			{
+				final char high = highSurrogate;
+				highSurrogate = 0;
+
+				if (Character.isLowSurrogate(character))
+				{
+					final int codePoint = Character.toCodePoint(high, character);
+					buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+					buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+					return;
+				}
+
+				// an unpaired surrogate is replaced, just like String.getBytes() does
+				buffer[position++] = '?';
+				writeChar(character);
+				return;
+			}
+
+			if (character < 0x80)
+			{
+				buffer[position++] = (byte) character;
+			}
+			else if (character < 0x800)
+			{
+				buffer[position++] = (byte) (0xc0 | (character >> 6));
+				buffer[position++] = (byte) (0x80 | (character & 0x3f));
+			}
+			else if (Character.isHighSurrogate(character))
+			{
+				highSurrogate = character;
+			}
+			else if (Character.isLowSurrogate(character))
+			{
+				buffer[position++] = '?';
+			}
+			else
+			{
+				buffer[position++] = (byte) (0xe0 | (character >> 12));
+				buffer[position++] = (byte) (0x80 | ((character >> 6) & 0x3f));
+				buffer[position++] = (byte) (0x80 | (character & 0x3f));
+			}
+		}
+
+		private void flushBuffer() throws IOException
+		{
+			if (position <= 0)
+			{
+				return;
+			}
+
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			if (highSurrogate != 0)
+			{
+				flushBuffer();
+				highSurrogate = 0;
+				buffer[position++] = '?';
+			}
+
+			flushBuffer();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Buffer of compressed states waiting for the stream delay to pass before they are sent.
+ * States are stored in the order they are due and a newer state replaces the last
+ * state when both are due in the same send window and the newer state contains everything
+ * of the last one. States carrying a different slice of the bank or collection log are
+ * always kept, because the cyclic state already moved on to the next slice.
+ */
+public class TwitchStateDelayLine
+{
+	public final static int SEND_WINDOW_MS = 500;
+
+	/**
+	 * Entries of which the state only contains a slice, so a newer value does not contain the older one.
+	 */
+	private final static Set<String> SLICED_ENTRY_KEYS = new HashSet<>(Arrays.asList(
+		TwitchStateEntry.BANK_TABBED_ITEMS.getKey(),
+		TwitchStateEntry.COLLECTION_LOG.getKey()
+	));
+
+	private final ArrayDeque<DelayedState> delayedStates = new ArrayDeque<>();
+
+	public static class DelayedState
+	{
+		@Getter
+		private final String compressedState;
+
+		/**
+		 * The uncompressed message that is only kept when it needs to be acknowledged after sending.
+		 */
+		@Getter
+		private final JsonObject message;
+
+		@Getter
+		private final boolean keyframe;
+
+		@Getter
+		private final Instant dueTime;
+
+		/**
+		 * Moment of System.nanoTime() the state was created to measure the time spent waiting.
+		 */
+		@Getter
+		private final long createdNanos;
+
+		/**
+		 * The keys of the entries in this state and the values of the sliced entries,
+		 * which are used to check whether a newer state contains everything of this one.
+		 */
+		private final Set<String> entryKeys;
+		private final Map<String, JsonElement> slicedEntries;
+
+		public DelayedState(String compressedState, JsonObject content, JsonObject message, boolean keyframe, Instant dueTime)
+		{
+			this.compressedState = compressedState;
+			this.message = message;
+			this.keyframe = keyframe;
+			this.dueTime = dueTime;
+			this.createdNanos = System.nanoTime();
+			this.entryKeys = new HashSet<>();
+			this.slicedEntries = new HashMap<>();
+
+			for (Map.Entry<String, JsonElement> entry : content.entrySet())
+			{
+				final String key = entry.getKey();
+
+				entryKeys.add(key);
+
+				if (SLICED_ENTRY_KEYS.contains(key))
+				{
+					slicedEntries.put(key, entry.getValue());
+				}
+			}
+		}
+
+		private DelayedState(DelayedState delayedState, Instant dueTime)
+		{
+			this.compressedState = delayedState.compressedState;
+			this.message = delayedState.message;
+			this.keyframe = delayedState.keyframe;
+			this.dueTime = dueTime;
+			this.createdNanos = delayedState.createdNanos;
+			this.entryKeys = delayedState.entryKeys;
+			this.slicedEntries = delayedState.slicedEntries;
+		}
+
+		/**
+		 * Get whether this state contains everything of an older state, so the older one does not have to be sent.
+		 * A keyframe is never replaced by a partial state, because viewers would otherwise miss the full state.
+		 */
+		private boolean supersedes(DelayedState olderState)
+		{
+			if (olderState.keyframe && !keyframe)
+			{
+				return false;
+			}
+
+			if (!entryKeys.containsAll(olderState.entryKeys))
+			{
+				return false;
+			}
+
+			for (Map.Entry<String, JsonElement> slicedEntry : olderState.slicedEntries.entrySet())
+			{
+
+				// guard: another slice of the same entry does not contain the older slice
+				if (!slicedEntry.getValue().equals(slicedEntries.get(slicedEntry.getKey())))
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		private long getSendWindow()
+		{
+			return dueTime.toEpochMilli() / SEND_WINDOW_MS;
+		}
+	}
+
+	/**
+	 * Add a state to the end of the line and get whether it replaced the last state,
+	 * which only happens when the new state contains everything of the last state.
+	 */
+	public synchronized boolean add(DelayedState delayedState)
+	{
+		final DelayedState lastDelayedState = delayedStates.peekLast();
+		boolean isReplaced = false;
+
+		if (lastDelayedState != null)
+		{
+
+			// keep the order in which the states are due when the delay is decreased
+			if (delayedState.getDueTime().isBefore(lastDelayedState.getDueTime()))
+			{
+				delayedState = new DelayedState(delayedState, lastDelayedState.getDueTime());
+			}
+
+			final boolean isSameSendWindow = delayedState.getSendWindow() == lastDelayedState.getSendWindow();
+			final boolean isSuperseded = delayedState.supersedes(lastDelayedState);
+
+			if (isSameSendWindow && isSuperseded)
+			{
+				delayedStates.pollLast();
+				isReplaced = true;
+			}
+		}
+
+		delayedStates.addLast(delayedState);
+
+		return isReplaced;
+	}
+
+	/**
+	 * Remove and get all the states that are due in the order they should be sent.
+	 */
+	public synchronized List<DelayedState> pollDue(Instant now)
+	{
+		final List<DelayedState> dueStates = new ArrayList<>();
+
+		while (!delayedStates.isEmpty() && !delayedStates.peekFirst().getDueTime().isAfter(now))
+		{
+			dueStates.add(delayedStates.pollFirst());
+		}
+
+		return dueStates;
+	}
+
+	/**
+	 * Remove all states and get how many were removed.
+	 */
+	public synchronized int clear()
+	{
+		final int clearedAmount = delayedStates.size();
+		delayedStates.clear();
+
+		return clearedAmount;
+	}
+
+	public synchronized int size()
+	{
+		return delayedStates.size();
+	}
+}
@@ -0,0 +1,168 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the state that was last accepted by Twitch so that only the entries
+ * that changed since then have to be sent to the viewers. A full keyframe is sent
+ * periodically and after any error, so viewers that just opened the extension or
+ * missed a message are able to catch up again.
+ */
+public class TwitchStateDelta
+{
+	/**
+	 * Entries of which only the current slice is included in a state, the
+	 * viewers keep the last slice they received when they are left out
+	 */
+	private final static Set<String> CYCLIC_KEYS = new HashSet<>(Arrays.asList(
+		TwitchStateEntry.BANK_TABBED_ITEMS.getKey(),
+		TwitchStateEntry.BANK_PRICE.getKey(),
+		TwitchStateEntry.COLLECTION_LOG.getKey(),
+		TwitchStateEntry.QUESTS.getKey(),
+		TwitchStateEntry.INVOCATIONS.getKey(),
+		TwitchStateEntry.INVOCATIONS_RAID_LEVEL.getKey()
+	));
+
+	/**
+	 * The acknowledged value of every state entry by its key, note that Gson
+	 * does not allow null values in a concurrent map so we store JSON null instead.
+	 */
+	private final ConcurrentHashMap<String, JsonElement> acknowledgedEntries = new ConcurrentHashMap<>();
+	private long lastAcknowledgedSequence = -1;
+
+	@Getter
+	private long sequence = 0;
+	private Instant lastKeyframeTime = null;
+	private boolean keyframeRequested = true;
+
+	/**
+	 * Build the message for the given state, which is either a full keyframe
+	 * or only the entries that differ from the last acknowledged state.
+	 */
+	public synchronized JsonObject encode(JsonObject state, int keyframeIntervalMs)
+	{
+		final boolean isKeyframe = shouldSendKeyframe(state, keyframeIntervalMs);
+		final JsonObject message = new JsonObject();
+		sequence++;
+
+		for (Map.Entry<String, JsonElement> entry : state.entrySet())
+		{
+			final String key = entry.getKey();
+			final JsonElement value = normalize(entry.getValue());
+			final JsonElement acknowledgedValue = acknowledgedEntries.get(key);
+
+			// guard: skip entries the viewers already have when sending a delta
+			if (!isKeyframe && value.equals(acknowledgedValue))
+			{
+				continue;
+			}
+
+			message.add(key, value);
+		}
+
+		message.addProperty(TwitchStateEntry.SYNC_SEQUENCE.getKey(), sequence);
+		message.addProperty(TwitchStateEntry.SYNC_KEYFRAME.getKey(), isKeyframe);
+
+		if (isKeyframe)
+		{
+			lastKeyframeTime = Instant.now();
+			keyframeRequested = false;
+		}
+
+		return message;
+	}
+
+	/**
+	 * Merge the entries of a message that was accepted by Twitch into the acknowledged state.
+	 */
+	public synchronized void acknowledge(JsonObject message)
+	{
+		final JsonElement sequenceElement = message.get(TwitchStateEntry.SYNC_SEQUENCE.getKey());
+		final JsonElement keyframeElement = message.get(TwitchStateEntry.SYNC_KEYFRAME.getKey());
+
+		// guard: skip messages that were not encoded here
+		if (sequenceElement == null || keyframeElement == null)
+		{
+			return;
+		}
+
+		final long messageSequence = sequenceElement.getAsLong();
+
+		// guard: responses can arrive out of order, a newer message
+		// already contains all the changes of the older ones
+		if (messageSequence <= lastAcknowledgedSequence)
+		{
+			return;
+		}
+
+		if (keyframeElement.getAsBoolean())
+		{
+			acknowledgedEntries.clear();
+		}
+
+		for (Map.Entry<String, JsonElement> entry : message.entrySet())
+		{
+			acknowledgedEntries.put(entry.getKey(), normalize(entry.getValue()));
+		}
+
+		lastAcknowledgedSequence = messageSequence;
+	}
+
+	/**
+	 * Make sure the next message contains the full state, for example after an error response.
+	 */
+	public synchronized void requestKeyframe()
+	{
+		keyframeRequested = true;
+	}
+
+	private boolean shouldSendKeyframe(JsonObject state, int keyframeIntervalMs)
+	{
+		if (keyframeRequested || lastKeyframeTime == null)
+		{
+			return true;
+		}
+
+		if (Instant.now().isAfter(lastKeyframeTime.plusMillis(keyframeIntervalMs)))
+		{
+			return true;
+		}
+
+		// entries that are removed from the state cannot be expressed in a delta,
+		// because a null value has a meaning of its own for the viewers
+		for (String acknowledgedKey : acknowledgedEntries.keySet())
+		{
+			if (isSyncKey(acknowledgedKey) || CYCLIC_KEYS.contains(acknowledgedKey))
+			{
+				continue;
+			}
+
+			if (!state.has(acknowledgedKey))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean isSyncKey(String key)
+	{
+		return key.equals(TwitchStateEntry.SYNC_SEQUENCE.getKey()) || key.equals(TwitchStateEntry.SYNC_KEYFRAME.getKey());
+	}
+
+	private JsonElement normalize(JsonElement value)
+	{
+		return (value == null ? JsonNull.INSTANCE : value);
+	}
+}
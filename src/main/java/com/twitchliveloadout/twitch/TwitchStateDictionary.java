@@ -0,0 +1,64 @@
+package com.twitchliveloadout.twitch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Preset dictionary for the deflate compression of the state. It contains the JSON
+ * fragments that are part of almost every message, so even the first occurrence of
+ * these fragments in a message can be compressed to a reference into the dictionary.
+ *
+ * The fragments are written out instead of generated from the state entries, because
+ * the viewers need the exact same bytes to decode a message. Deflate encodes references
+ * to recent bytes more compactly, so the most frequent fragments are at the end.
+ *
+ * NOTE: any change here requires a new marker version in TwitchStateCodec.
+ */
+public class TwitchStateDictionary
+{
+	private final static int EMPTY_ITEM_REPETITIONS = 64;
+
+	final static byte[] DICTIONARY = buildDictionary();
+
+	private static byte[] buildDictionary()
+	{
+		final StringBuilder dictionary = new StringBuilder();
+
+		// general settings that are rarely changed
+		dictionary.append("{\"connectionStatus\":{\"status\":true,\"isLoggedIn\":true},\"contentId\":\"");
+		dictionary.append("\",\"accountHash\":\"accountType\":\"NORMAL\",\"playerName\":\"");
+		dictionary.append("\",\"virtualLevelsEnabled\":true,\"topPosition\":\"themeType\":\"");
+		dictionary.append("\",\"marketplaceEnabled\":false,\"marketplaceActive\":false,\"marketplaceProtectionEnabled\":false");
+		dictionary.append(",\"currentProductCooldowns\":{},\"currentSharedCooldown\":\"sharedCooldown\":");
+		dictionary.append(",\"streamerProducts\":[],\"seasonalItems\":null,\"itemGoals\":null");
+		dictionary.append(",\"syncSequence\":\"syncKeyframe\":true,\"weight\":");
+
+		// cyclic state
+		dictionary.append(",\"invocationsRaidLevel\":null,\"invocations\":[{\"");
+		dictionary.append(",\"quests\":[[\"");
+		dictionary.append(",\"collectionLog\":{\"");
+
+		// fight statistics
+		dictionary.append(",\"fightStatistics\":{\"actorNames\":[\"\"],\"actorTypes\":[\"npc\",\"player\"],\"actorIds\":[");
+		dictionary.append("],\"actorCombatLevels\":[],\"totalInteractingTicks\":[],\"lastInteractingTicks\":[");
+		dictionary.append("],\"totalDurations\":[],\"lastDurations\":[],\"sessionCounters\":[],\"updatedAts\":[");
+		dictionary.append("],\"statistics\":{\"freeze\":{\"entangle\":{\"hitHeal\":{\"bloodHeal\":{\"spell\":{");
+		dictionary.append("\"poison\":{\"smite\":{\"other\":{\"total\":{");
+		dictionary.append("\"hc\":[0,0,0],\"mc\":[0,0,0],\"hd\":[0,0,0],\"md\":[0,0,0],\"ds\":[0,0,0]}");
+
+		// items and skills that are in every message
+		dictionary.append(",\"skillExperiences\":[0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0]");
+		dictionary.append(",\"boostedSkillLevels\":[1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1]");
+		dictionary.append(",\"lootingBag\":null,\"lootingBagPrice\":0,\"equipmentPrice\":0,\"equipment\":[[");
+		dictionary.append("]],\"inventoryPrice\":0,\"inventory\":[[");
+
+		// collection log categories and bank slices
+		dictionary.append("\":{\"i\":[[0,0],[0,1]],\"c\":[0]}},\"bankPrice\":0,\"bankTabbedItems\":[[[");
+
+		for (int repetition = 0; repetition < EMPTY_ITEM_REPETITIONS; repetition++)
+		{
+			dictionary.append("[-1,-1],");
+		}
+
+		return dictionary.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -3,52 +3,66 @@ package com.twitchliveloadout.twitch;
 import lombok.Getter;
 
 public enum TwitchStateEntry {
-	CONTENT_ID("contentId"),
-	CONNECTION_STATUS("connectionStatus"),
-	ACCOUNT_HASH("accountHash"),
-	ACCOUNT_TYPE("accountType"),
-	PLAYER_NAME("playerName"),
-	INVENTORY_ITEMS("inventory", true),
-	INVENTORY_PRICE("inventoryPrice", true),
-	EQUIPMENT_ITEMS("equipment", true),
-	EQUIPMENT_PRICE("equipmentPrice", true),
-	LOOTING_BAG_ITEMS("lootingBag", true),
-	LOOTING_BAG_PRICE("lootingBagPrice", true),
-	FIGHT_STATISTICS("fightStatistics", true),
-	SKILL_EXPERIENCES("skillExperiences", true),
-	BOOSTED_SKILL_LEVELS("boostedSkillLevels", true),
-	VIRTUAL_LEVELS_ENABLED("virtualLevelsEnabled"),
-	WEIGHT("weight", true),
-	ITEM_GOALS("itemGoals", true),
-	TOP_POSITION("topPosition"),
-	THEME_TYPE("themeType"),
-	BANK_TABBED_ITEMS("bankTabbedItems", true),
-	BANK_PRICE("bankPrice", true),
-	COLLECTION_LOG("collectionLog", true),
-	INVOCATIONS("invocations", true),
-	INVOCATIONS_RAID_LEVEL("invocationsRaidLevel", true),
-	MARKETPLACE_ENABLED("marketplaceEnabled", true),
-	MARKETPLACE_ACTIVE("marketplaceActive"),
-	MARKETPLACE_PROTECTION_ENABLED("marketplaceProtectionEnabled"),
-	CURRENT_PRODUCT_COOLDOWNS("currentProductCooldowns", true),
-	CURRENT_SHARED_COOLDOWN("currentSharedCooldown"),
-	SHARED_COOLDOWN("sharedCooldown"),
-	QUESTS("quests", true),
-	SEASONAL_ITEMS("seasonalItems", true),
-	STREAMER_PRODUCTS("streamerProducts"),
+	CONTENT_ID(1, "contentId"),
+	CONNECTION_STATUS(2, "connectionStatus"),
+	ACCOUNT_HASH(3, "accountHash"),
+	ACCOUNT_TYPE(4, "accountType"),
+	PLAYER_NAME(5, "playerName"),
+	INVENTORY_ITEMS(6, "inventory", true),
+	INVENTORY_PRICE(7, "inventoryPrice", true),
+	EQUIPMENT_ITEMS(8, "equipment", true),
+	EQUIPMENT_PRICE(9, "equipmentPrice", true),
+	LOOTING_BAG_ITEMS(10, "lootingBag", true),
+	LOOTING_BAG_PRICE(11, "lootingBagPrice", true),
+	FIGHT_STATISTICS(12, "fightStatistics", true),
+	SKILL_EXPERIENCES(13, "skillExperiences", true),
+	BOOSTED_SKILL_LEVELS(14, "boostedSkillLevels", true),
+	VIRTUAL_LEVELS_ENABLED(15, "virtualLevelsEnabled"),
+	WEIGHT(16, "weight", true),
+	ITEM_GOALS(17, "itemGoals", true),
+	TOP_POSITION(18, "topPosition"),
+	THEME_TYPE(19, "themeType"),
+	BANK_TABBED_ITEMS(20, "bankTabbedItems", true),
+	BANK_PRICE(21, "bankPrice", true),
+	COLLECTION_LOG(22, "collectionLog", true),
+	INVOCATIONS(23, "invocations", true),
+	INVOCATIONS_RAID_LEVEL(24, "invocationsRaidLevel", true),
+	MARKETPLACE_ENABLED(25, "marketplaceEnabled", true),
+	MARKETPLACE_ACTIVE(26, "marketplaceActive"),
+	MARKETPLACE_PROTECTION_ENABLED(27, "marketplaceProtectionEnabled"),
+	CURRENT_PRODUCT_COOLDOWNS(28, "currentProductCooldowns", true),
+	CURRENT_SHARED_COOLDOWN(29, "currentSharedCooldown"),
+	SHARED_COOLDOWN(30, "sharedCooldown"),
+	QUESTS(31, "quests", true),
+	SEASONAL_ITEMS(32, "seasonalItems", true),
+	STREAMER_PRODUCTS(33, "streamerProducts"),
+	SYNC_SEQUENCE(34, "syncSequence"),
+	SYNC_KEYFRAME(35, "syncKeyframe"),
+
+	// NOTE: the format version is always sent with its key and not its
+	// wire ID so the viewers are able to detect which format is used
+	FORMAT_VERSION(36, "formatVersion"),
 	;
 
+	/**
+	 * Short and stable identifier used instead of the key in the compact wire format.
+	 * NOTE: never reuse or change an existing ID, because the viewers depend on them.
+	 */
+	@Getter
+	private final int wireId;
 	@Getter
 	private final String key;
 	@Getter
 	private final boolean nullable;
 
-	TwitchStateEntry(String key) {
+	TwitchStateEntry(int wireId, String key) {
+		this.wireId = wireId;
 		this.key = key;
 		this.nullable = false;
 	}
 
-	TwitchStateEntry(String key, boolean nullable) {
+	TwitchStateEntry(int wireId, String key, boolean nullable) {
+		this.wireId = wireId;
 		this.key = key;
 		this.nullable = nullable;
 	}
@@ -0,0 +1,510 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import net.runelite.client.RuneLite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-account store of the persisted parts of the state, such as the bank and collection log.
+ * Every snapshot is a compact binary file in a directory of the account, which replaces storing
+ * large JSON strings in the RuneLite configuration on every change. Saving is write-behind where
+ * multiple changes within the delay are coalesced to only write the latest version. Pending
+ * snapshots are flushed in the background when switching accounts and when shutting down.
+ *
+ * The binary format is a tagged encoding of the JSON structure where all integers are
+ * zigzag encoded variable length numbers. The files are not memory mapped, because on
+ * Windows a mapped file cannot be replaced until the mapping is garbage collected.
+ */
+public class TwitchStateSnapshotStore
+{
+	private final static String DIRECTORY_NAME = "twitch-live-loadout";
+	private final static String FILE_EXTENSION = ".bin";
+	private final static int MAGIC = 0x544c4c53;
+	private final static int FORMAT_VERSION = 1;
+	private final static int WRITE_BEHIND_DELAY_MS = 5000;
+	private final static int SHUT_DOWN_TIMEOUT_MS = 5000;
+
+	private final static byte NULL_TAG = 0;
+	private final static byte TRUE_TAG = 1;
+	private final static byte FALSE_TAG = 2;
+	private final static byte INTEGER_TAG = 3;
+	private final static byte DECIMAL_TAG = 4;
+	private final static byte STRING_TAG = 5;
+	private final static byte ARRAY_TAG = 6;
+	private final static byte OBJECT_TAG = 7;
+
+	private final TwitchLiveLoadoutPlugin plugin;
+	private final File rootDirectory;
+	private final ScheduledThreadPoolExecutor writeExecutor = new ScheduledThreadPoolExecutor(1);
+
+	/**
+	 * Lock to write the snapshots in the order they were taken, while
+	 * still allowing multiple snapshots to be read at the same time
+	 */
+	private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+
+	/**
+	 * The latest snapshots per key that are not written yet, the values
+	 * are not copied so they should not be mutated after saving
+	 */
+	private final Map<String, JsonElement> pendingSnapshots = new HashMap<>();
+
+	/**
+	 * The snapshots of previous accounts per directory that are still being written,
+	 * which are loaded instead of their outdated files when switching back quickly
+	 */
+	private final Map<File, Map<String, JsonElement>> unwrittenSnapshots = new HashMap<>();
+	private String accountIdentifier = null;
+	private File accountDirectory = null;
+	private ScheduledFuture<?> scheduledFlush = null;
+
+	public TwitchStateSnapshotStore(TwitchLiveLoadoutPlugin plugin)
+	{
+		this(plugin, new File(RuneLite.RUNELITE_DIR, DIRECTORY_NAME));
+	}
+
+	TwitchStateSnapshotStore(TwitchLiveLoadoutPlugin plugin, File rootDirectory)
+	{
+		this.plugin = plugin;
+		this.rootDirectory = rootDirectory;
+
+		// the pending snapshots are flushed right away when shutting down
+		writeExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * Use the directory of the new account right away and flush everything
+	 * of the previous account on the write thread to not block the caller.
+	 */
+	public void switchAccount(String accountIdentifier)
+	{
+		final File newAccountDirectory = getAccountDirectory(accountIdentifier);
+		final Map<String, JsonElement> snapshots;
+		final File directory;
+
+		synchronized (this)
+		{
+			snapshots = takePendingSnapshots();
+			directory = accountDirectory;
+			this.accountIdentifier = accountIdentifier;
+			accountDirectory = newAccountDirectory;
+
+			// guard: nothing to write for the previous account
+			if (directory == null || snapshots.isEmpty())
+			{
+				return;
+			}
+
+			unwrittenSnapshots.computeIfAbsent(directory, (unwrittenDirectory) -> new HashMap<>()).putAll(snapshots);
+		}
+
+		try {
+			writeExecutor.execute(() -> writeUnwrittenSnapshots(directory, snapshots));
+		} catch (RejectedExecutionException exception) {
+			// the store is shut down, which means the snapshots are written right away
+			writeUnwrittenSnapshots(directory, snapshots);
+		}
+	}
+
+	public synchronized void save(String key, JsonElement value)
+	{
+
+		// guard: skip when the account is not known yet
+		if (accountDirectory == null || writeExecutor.isShutdown())
+		{
+			return;
+		}
+
+		pendingSnapshots.put(key, value);
+
+		if (scheduledFlush == null || scheduledFlush.isDone())
+		{
+			scheduledFlush = writeExecutor.schedule(this::flush, WRITE_BEHIND_DELAY_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Save a snapshot only when the account is still the current account,
+	 * which allows loading threads to save without checking this themselves.
+	 */
+	public synchronized void save(String accountIdentifier, String key, JsonElement value)
+	{
+
+		// guard: skip when another account is active in the meantime
+		if (!accountIdentifier.equals(this.accountIdentifier))
+		{
+			return;
+		}
+
+		save(key, value);
+	}
+
+	/**
+	 * Get the snapshot of an account or null when it was never saved.
+	 * This can be called from any thread, also while switching accounts.
+	 */
+	public JsonElement load(String accountIdentifier, String key) throws Exception
+	{
+		final File file = getFile(getAccountDirectory(accountIdentifier), key);
+
+		synchronized (this)
+		{
+
+			// guard: a pending snapshot is always the most recent
+			if (accountIdentifier.equals(this.accountIdentifier) && pendingSnapshots.containsKey(key))
+			{
+				return pendingSnapshots.get(key);
+			}
+
+			final Map<String, JsonElement> unwrittenAccountSnapshots = unwrittenSnapshots.get(file.getParentFile());
+
+			// guard: a snapshot of a previous account that is still being written is more recent than its file
+			if (unwrittenAccountSnapshots != null && unwrittenAccountSnapshots.containsKey(key))
+			{
+				return unwrittenAccountSnapshots.get(key);
+			}
+		}
+
+		final ByteBuffer buffer;
+		fileLock.readLock().lock();
+
+		try {
+
+			// guard: nothing is saved yet
+			if (!file.exists())
+			{
+				return null;
+			}
+
+			buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		} finally {
+			fileLock.readLock().unlock();
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC || buffer.get() != FORMAT_VERSION)
+			{
+				throw new Exception("The snapshot has an unknown format: "+ file.getName());
+			}
+
+			return readElement(buffer);
+		} catch (BufferUnderflowException exception) {
+			throw new Exception("The snapshot is truncated: "+ file.getName());
+		}
+	}
+
+	public void flush()
+	{
+		fileLock.writeLock().lock();
+
+		try {
+			final Map<String, JsonElement> snapshots;
+			final File directory;
+
+			synchronized (this)
+			{
+				snapshots = takePendingSnapshots();
+				directory = accountDirectory;
+			}
+
+			writeSnapshots(directory, snapshots);
+		} finally {
+			fileLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Flush on the write thread after the snapshots of previous accounts to keep the order
+	 * in which they are written, and wait until everything is written.
+	 */
+	public void shutDown()
+	{
+		try {
+			writeExecutor.execute(this::flush);
+		} catch (RejectedExecutionException exception) {
+			flush();
+		}
+
+		writeExecutor.shutdown();
+
+		try {
+			writeExecutor.awaitTermination(SHUT_DOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeUnwrittenSnapshots(File directory, Map<String, JsonElement> snapshots)
+	{
+		fileLock.writeLock().lock();
+
+		try {
+			writeSnapshots(directory, snapshots);
+		} finally {
+			synchronized (this)
+			{
+				final Map<String, JsonElement> unwrittenAccountSnapshots = unwrittenSnapshots.get(directory);
+
+				// only forget the snapshots that were not replaced by a later switch in the meantime
+				for (Map.Entry<String, JsonElement> snapshot : snapshots.entrySet())
+				{
+					unwrittenAccountSnapshots.remove(snapshot.getKey(), snapshot.getValue());
+				}
+
+				if (unwrittenAccountSnapshots.isEmpty())
+				{
+					unwrittenSnapshots.remove(directory);
+				}
+			}
+
+			fileLock.writeLock().unlock();
+		}
+	}
+
+	private Map<String, JsonElement> takePendingSnapshots()
+	{
+		final Map<String, JsonElement> snapshots = new HashMap<>(pendingSnapshots);
+		pendingSnapshots.clear();
+
+		return snapshots;
+	}
+
+	private void writeSnapshots(File directory, Map<String, JsonElement> snapshots)
+	{
+
+		// guard: nothing to write
+		if (directory == null || snapshots.isEmpty())
+		{
+			return;
+		}
+
+		for (Map.Entry<String, JsonElement> snapshot : snapshots.entrySet())
+		{
+			try {
+				final File file = getFile(directory, snapshot.getKey());
+				final File temporaryFile = new File(directory, snapshot.getKey() + FILE_EXTENSION +".tmp");
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				final DataOutputStream output = new DataOutputStream(bytes);
+
+				output.writeInt(MAGIC);
+				output.writeByte(FORMAT_VERSION);
+				writeElement(output, snapshot.getValue());
+				output.flush();
+
+				directory.mkdirs();
+
+				// write to another file first to never leave a partially written snapshot behind
+				try (FileOutputStream fileOutput = new FileOutputStream(temporaryFile)) {
+					bytes.writeTo(fileOutput);
+				}
+
+				Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (Exception exception) {
+				plugin.logSupport("Could not write the snapshot '"+ snapshot.getKey() +"' due to the following error: ", exception);
+			}
+		}
+	}
+
+	private File getAccountDirectory(String accountIdentifier)
+	{
+		final String directoryName = accountIdentifier.replaceAll("[^a-zA-Z0-9_-]", "_");
+
+		return new File(rootDirectory, directoryName);
+	}
+
+	private static File getFile(File directory, String key)
+	{
+		return new File(directory, key + FILE_EXTENSION);
+	}
+
+	private static void writeElement(DataOutputStream output, JsonElement element) throws Exception
+	{
+		if (element == null || element.isJsonNull())
+		{
+			output.writeByte(NULL_TAG);
+		}
+		else if (element.isJsonArray())
+		{
+			final JsonArray array = element.getAsJsonArray();
+			output.writeByte(ARRAY_TAG);
+			writeVarLong(output, array.size());
+
+			for (JsonElement arrayElement : array)
+			{
+				writeElement(output, arrayElement);
+			}
+		}
+		else if (element.isJsonObject())
+		{
+			final JsonObject object = element.getAsJsonObject();
+			output.writeByte(OBJECT_TAG);
+			writeVarLong(output, object.size());
+
+			for (Map.Entry<String, JsonElement> objectEntry : object.entrySet())
+			{
+				writeString(output, objectEntry.getKey());
+				writeElement(output, objectEntry.getValue());
+			}
+		}
+		else
+		{
+			writePrimitive(output, element.getAsJsonPrimitive());
+		}
+	}
+
+	private static void writePrimitive(DataOutputStream output, JsonPrimitive primitive) throws Exception
+	{
+		if (primitive.isBoolean())
+		{
+			output.writeByte(primitive.getAsBoolean() ? TRUE_TAG : FALSE_TAG);
+			return;
+		}
+
+		if (primitive.isString())
+		{
+			output.writeByte(STRING_TAG);
+			writeString(output, primitive.getAsString());
+			return;
+		}
+
+		final Number number = primitive.getAsNumber();
+		final boolean isInteger = number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+
+		// numbers that were parsed from a string are checked whether they are integers
+		if (isInteger || isIntegerString(number.toString()))
+		{
+			output.writeByte(INTEGER_TAG);
+			writeVarLong(output, zigzag(number.longValue()));
+			return;
+		}
+
+		output.writeByte(DECIMAL_TAG);
+		writeString(output, number.toString());
+	}
+
+	private static boolean isIntegerString(String value)
+	{
+		try {
+			Long.parseLong(value);
+			return true;
+		} catch (NumberFormatException exception) {
+			return false;
+		}
+	}
+
+	private static JsonElement readElement(ByteBuffer buffer) throws Exception
+	{
+		final byte tag = buffer.get();
+
+		switch (tag)
+		{
+			case NULL_TAG:
+				return JsonNull.INSTANCE;
+			case TRUE_TAG:
+				return new JsonPrimitive(true);
+			case FALSE_TAG:
+				return new JsonPrimitive(false);
+			case INTEGER_TAG:
+				return new JsonPrimitive(unzigzag(readVarLong(buffer)));
+			case DECIMAL_TAG:
+				return new JsonPrimitive(Double.parseDouble(readString(buffer)));
+			case STRING_TAG:
+				return new JsonPrimitive(readString(buffer));
+			case ARRAY_TAG:
+				final int arraySize = (int) readVarLong(buffer);
+				final JsonArray array = new JsonArray(arraySize);
+
+				for (int elementIndex = 0; elementIndex < arraySize; elementIndex++)
+				{
+					array.add(readElement(buffer));
+				}
+
+				return array;
+			case OBJECT_TAG:
+				final int objectSize = (int) readVarLong(buffer);
+				final JsonObject object = new JsonObject();
+
+				for (int entryIndex = 0; entryIndex < objectSize; entryIndex++)
+				{
+					final String key = readString(buffer);
+					object.add(key, readElement(buffer));
+				}
+
+				return object;
+			default:
+				throw new Exception("The snapshot contains an unknown tag: "+ tag);
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws Exception
+	{
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(output, bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer)
+	{
+		final byte[] bytes = new byte[(int) readVarLong(buffer)];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarLong(DataOutputStream output, long value) throws Exception
+	{
+		while ((value & ~0x7fL) != 0)
+		{
+			output.writeByte((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+
+		output.writeByte((int) value);
+	}
+
+	private static long readVarLong(ByteBuffer buffer)
+	{
+		long value = 0;
+		int shift = 0;
+		byte current;
+
+		do {
+			current = buffer.get();
+			value |= ((long) (current & 0x7f)) << shift;
+			shift += 7;
+		} while ((current & 0x80) != 0);
+
+		return value;
+	}
+
+	private static long zigzag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
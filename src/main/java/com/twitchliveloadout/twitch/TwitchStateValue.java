@@ -0,0 +1,186 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonPrimitive;
+import net.runelite.api.Item;
+
+import java.util.Arrays;
+
+/**
+ * Immutable typed value of a state entry that changes often, such as the skills and items.
+ * The values are stored as primitives and are only converted to JSON when a state is sent,
+ * instead of allocating a new JSON tree on every event. Because the values are never
+ * mutated a snapshot of the state can share them without copying.
+ */
+public interface TwitchStateValue
+{
+	JsonElement toJson();
+
+	/**
+	 * Numbers such as the skill experiences, which are copied because
+	 * the client keeps updating the same array.
+	 */
+	final class IntArray implements TwitchStateValue
+	{
+		private final int[] values;
+		private final int maxValue;
+
+		public IntArray(int[] values, int maxValue)
+		{
+			this.values = values.clone();
+			this.maxValue = maxValue;
+		}
+
+		public boolean hasValues(int[] otherValues)
+		{
+			return Arrays.equals(values, otherValues);
+		}
+
+		@Override
+		public JsonElement toJson()
+		{
+			final JsonArray json = new JsonArray(values.length);
+
+			for (int value : values)
+			{
+				json.add(TwitchState.STATE_STRESS_TEST_ENABLED && maxValue > 0 ? (int) (Math.random() * maxValue) : value);
+			}
+
+			return json;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			return other instanceof IntArray && hasValues(((IntArray) other).values);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Arrays.hashCode(values);
+		}
+	}
+
+	/**
+	 * Items of a container with their IDs and quantities in separate arrays.
+	 */
+	final class ItemArray implements TwitchStateValue
+	{
+		private final int[] ids;
+		private final int[] quantities;
+
+		public ItemArray(Item[] items)
+		{
+			final int itemAmount = (items == null ? 0 : items.length);
+			ids = new int[itemAmount];
+			quantities = new int[itemAmount];
+
+			for (int itemIndex = 0; itemIndex < itemAmount; itemIndex++)
+			{
+				ids[itemIndex] = items[itemIndex].getId();
+				quantities[itemIndex] = items[itemIndex].getQuantity();
+			}
+		}
+
+		public boolean hasItems(Item[] items)
+		{
+			final int itemAmount = (items == null ? 0 : items.length);
+
+			// guard: a different amount of items is always a change
+			if (itemAmount != ids.length)
+			{
+				return false;
+			}
+
+			for (int itemIndex = 0; itemIndex < itemAmount; itemIndex++)
+			{
+				if (ids[itemIndex] != items[itemIndex].getId() || quantities[itemIndex] != items[itemIndex].getQuantity())
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		public JsonElement toJson()
+		{
+			final JsonArray json = new JsonArray(ids.length);
+
+			for (int itemIndex = 0; itemIndex < ids.length; itemIndex++)
+			{
+				final JsonArray itemJson = new JsonArray(2);
+				int quantity = quantities[itemIndex];
+
+				if (TwitchState.STATE_STRESS_TEST_ENABLED)
+				{
+					quantity = (int) (Math.random() * TwitchState.MAX_ITEM_QUANTITY);
+				}
+
+				itemJson.add(ids[itemIndex]);
+				itemJson.add(quantity);
+				json.add(itemJson);
+			}
+
+			return json;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			return other instanceof ItemArray
+				&& Arrays.equals(ids, ((ItemArray) other).ids)
+				&& Arrays.equals(quantities, ((ItemArray) other).quantities);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * Arrays.hashCode(ids) + Arrays.hashCode(quantities);
+		}
+	}
+
+	/**
+	 * A single number such as a price or the weight, which can also be empty.
+	 */
+	final class Scalar implements TwitchStateValue
+	{
+		public final static Scalar EMPTY = new Scalar(true, 0);
+
+		private final boolean empty;
+		private final long value;
+
+		public Scalar(long value)
+		{
+			this(false, value);
+		}
+
+		private Scalar(boolean empty, long value)
+		{
+			this.empty = empty;
+			this.value = value;
+		}
+
+		@Override
+		public JsonElement toJson()
+		{
+			return (empty ? JsonNull.INSTANCE : new JsonPrimitive(value));
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			return other instanceof Scalar && empty == ((Scalar) other).empty && value == ((Scalar) other).value;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (empty ? -1 : Long.hashCode(value));
+		}
+	}
+}
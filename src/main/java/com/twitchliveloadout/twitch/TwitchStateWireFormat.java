@@ -0,0 +1,278 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact wire format (version 2) of the state that is applied right before compression.
+ * The in-memory and persisted state stay in the regular JSON format (version 1).
+ *
+ * In this format:
+ * - every entry key is replaced by the wire ID of the entry,
+ * - items are packed as the amount of items followed by varints, where an item is its ID plus one followed by the quantity
+ *   when the item is not empty. Empty items are written as a single zero byte,
+ * - tabbed bank items are packed as the amount of tabs followed by the packed items of each tab,
+ * - skill experiences and levels are packed as the amount of skills followed by each value,
+ * - the packed bytes of an entry are sent as a Base64 string.
+ * All varints use the unsigned LEB128 encoding, negative values are zigzag encoded.
+ */
+public class TwitchStateWireFormat
+{
+	public final static int VERSION = 2;
+	private final static int EMPTY_ITEM_ID = -1;
+	private final static Map<String, TwitchStateEntry> ENTRIES_BY_KEY = new HashMap<>();
+	private final static Map<String, TwitchStateEntry> ENTRIES_BY_WIRE_ID = new HashMap<>();
+
+	static {
+		for (TwitchStateEntry entry : TwitchStateEntry.values())
+		{
+			ENTRIES_BY_KEY.put(entry.getKey(), entry);
+			ENTRIES_BY_WIRE_ID.put(Integer.toString(entry.getWireId()), entry);
+		}
+	}
+
+	public static JsonObject encode(JsonObject state)
+	{
+		final JsonObject encodedState = new JsonObject();
+
+		for (Map.Entry<String, JsonElement> stateEntry : state.entrySet())
+		{
+			final String key = stateEntry.getKey();
+			final JsonElement value = stateEntry.getValue();
+			final TwitchStateEntry entry = ENTRIES_BY_KEY.get(key);
+
+			// guard: keep anything that is not a known entry as is
+			if (entry == null)
+			{
+				encodedState.add(key, value);
+				continue;
+			}
+
+			encodedState.add(Integer.toString(entry.getWireId()), encodeValue(entry, value));
+		}
+
+		encodedState.addProperty(TwitchStateEntry.FORMAT_VERSION.getKey(), VERSION);
+
+		return encodedState;
+	}
+
+	/**
+	 * Reverse of the encoding, which is how the viewers read the state.
+	 * NOTE: empty items are decoded with an empty quantity, because only their ID is sent.
+	 */
+	public static JsonObject decode(JsonObject encodedState)
+	{
+		final JsonObject state = new JsonObject();
+
+		for (Map.Entry<String, JsonElement> encodedEntry : encodedState.entrySet())
+		{
+			final String wireId = encodedEntry.getKey();
+			final JsonElement value = encodedEntry.getValue();
+			final TwitchStateEntry entry = ENTRIES_BY_WIRE_ID.get(wireId);
+
+			// guard: the format version is only there for the viewers
+			if (wireId.equals(TwitchStateEntry.FORMAT_VERSION.getKey()))
+			{
+				continue;
+			}
+
+			// guard: anything that is not a known entry was kept as is
+			if (entry == null)
+			{
+				state.add(wireId, value);
+				continue;
+			}
+
+			state.add(entry.getKey(), decodeValue(entry, value));
+		}
+
+		return state;
+	}
+
+	private static JsonElement encodeValue(TwitchStateEntry entry, JsonElement value)
+	{
+
+		// guard: only arrays are packed, nulls still clear the entry for the viewers
+		if (value == null || !value.isJsonArray())
+		{
+			return value;
+		}
+
+		final JsonArray array = value.getAsJsonArray();
+		final ByteArrayOutputStream packed = new ByteArrayOutputStream();
+
+		try {
+			switch (entry)
+			{
+				case INVENTORY_ITEMS:
+				case EQUIPMENT_ITEMS:
+				case LOOTING_BAG_ITEMS:
+					writeItems(packed, array);
+					break;
+				case BANK_TABBED_ITEMS:
+					writeVarInt(packed, array.size());
+
+					for (JsonElement tabItems : array)
+					{
+						writeItems(packed, tabItems.getAsJsonArray());
+					}
+					break;
+				case SKILL_EXPERIENCES:
+				case BOOSTED_SKILL_LEVELS:
+					writeVarInt(packed, array.size());
+
+					for (JsonElement skillValue : array)
+					{
+						writeVarInt(packed, zigzag(skillValue.getAsInt()));
+					}
+					break;
+				default:
+					return value;
+			}
+		} catch (Exception exception) {
+			// an unexpected structure is sent as regular JSON
+			return value;
+		}
+
+		return new JsonPrimitive(Base64.getEncoder().encodeToString(packed.toByteArray()));
+	}
+
+	private static JsonElement decodeValue(TwitchStateEntry entry, JsonElement value)
+	{
+
+		// guard: only packed arrays are sent as a string
+		if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString())
+		{
+			return value;
+		}
+
+		final ByteArrayInputStream packed = new ByteArrayInputStream(Base64.getDecoder().decode(value.getAsString()));
+		final JsonArray array = new JsonArray();
+
+		switch (entry)
+		{
+			case INVENTORY_ITEMS:
+			case EQUIPMENT_ITEMS:
+			case LOOTING_BAG_ITEMS:
+				return readItems(packed);
+			case BANK_TABBED_ITEMS:
+				final int tabAmount = readVarInt(packed);
+
+				for (int tabIndex = 0; tabIndex < tabAmount; tabIndex++)
+				{
+					array.add(readItems(packed));
+				}
+				return array;
+			case SKILL_EXPERIENCES:
+			case BOOSTED_SKILL_LEVELS:
+				final int skillAmount = readVarInt(packed);
+
+				for (int skillIndex = 0; skillIndex < skillAmount; skillIndex++)
+				{
+					array.add(unzigzag(readVarInt(packed)));
+				}
+				return array;
+			default:
+				return value;
+		}
+	}
+
+	private static void writeItems(ByteArrayOutputStream packed, JsonArray items)
+	{
+		writeVarInt(packed, items.size());
+
+		for (JsonElement rawItem : items)
+		{
+			final JsonArray item = rawItem.getAsJsonArray();
+			final int id = item.get(0).getAsInt();
+			final int quantity = item.get(1).getAsInt();
+
+			// guard: empty items only take up a single byte
+			if (id == EMPTY_ITEM_ID)
+			{
+				writeVarInt(packed, 0);
+				continue;
+			}
+
+			writeVarInt(packed, id + 1);
+			writeVarInt(packed, zigzag(quantity));
+		}
+	}
+
+	private static JsonArray readItems(ByteArrayInputStream packed)
+	{
+		final JsonArray items = new JsonArray();
+		final int itemAmount = readVarInt(packed);
+
+		for (int itemIndex = 0; itemIndex < itemAmount; itemIndex++)
+		{
+			final int packedId = readVarInt(packed);
+			final JsonArray item = new JsonArray();
+
+			// guard: empty items only consist of a zero byte
+			if (packedId == 0)
+			{
+				item.add(EMPTY_ITEM_ID);
+				item.add(EMPTY_ITEM_ID);
+				items.add(item);
+				continue;
+			}
+
+			item.add(packedId - 1);
+			item.add(unzigzag(readVarInt(packed)));
+			items.add(item);
+		}
+
+		return items;
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream packed, int value)
+	{
+		while ((value & ~0x7f) != 0)
+		{
+			packed.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+
+		packed.write(value);
+	}
+
+	private static int readVarInt(ByteArrayInputStream packed)
+	{
+		int value = 0;
+		int shift = 0;
+		int packedByte;
+
+		do {
+			packedByte = packed.read();
+
+			if (packedByte < 0 || shift > 28)
+			{
+				throw new IllegalArgumentException("The packed value is truncated or too long.");
+			}
+
+			value |= (packedByte & 0x7f) << shift;
+			shift += 7;
+		} while ((packedByte & 0x80) != 0);
+
+		return value;
+	}
+
+	private static int zigzag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,211 @@
+package com.twitchliveloadout.twitch;
+
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import com.twitchliveloadout.ui.CanvasListener;
+import lombok.Getter;
+import net.runelite.client.RuneLite;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.time.Instant;
+import java.util.Random;
+
+/**
+ * Coordinates the syncing between multiple RuneLite clients on the same machine that are
+ * syncing to the same Twitch channel. Only one of them, the leader, builds and sends the state
+ * while the others stay idle. The leader is the client that was most recently focused, where
+ * logged in clients take precedence. The clients share a small memory mapped file in the
+ * RuneLite directory that is only modified while holding a lock on it, which also contains
+ * the remaining rate limit budget so a new leader does not start with a stale budget. The lock
+ * is never waited for, because the heartbeat runs on the client thread, so a client keeps its
+ * current role when another client is holding the lock.
+ */
+public class TwitchSyncCoordinator
+{
+	private final static String FILE_PREFIX = "twitch-live-loadout-sync-";
+	private final static int FILE_SIZE = 64; // bytes
+	private final static int LEADER_TIMEOUT_MS = 3000;
+
+	// positions of the values in the shared file
+	private final static int LEADER_ID_POSITION = 0;
+	private final static int LEADER_HEARTBEAT_POSITION = 8;
+	private final static int LEADER_FOCUSED_AT_POSITION = 16;
+	private final static int LEADER_LOGGED_IN_POSITION = 24;
+	private final static int RATE_LIMIT_REMAINING_POSITION = 28;
+	private final static int RATE_LIMIT_RESET_POSITION = 32;
+
+	private final TwitchLiveLoadoutPlugin plugin;
+	private final CanvasListener canvasListener;
+	private final long clientId = new Random().nextLong();
+
+	private String currentChannelId = null;
+	private RandomAccessFile file = null;
+	private FileChannel channel = null;
+	private MappedByteBuffer buffer = null;
+
+	@Getter
+	private volatile boolean leader = true;
+
+	@Getter
+	private int sharedRateLimitRemaining = -1;
+
+	@Getter
+	private Instant sharedRateLimitResetTime = null;
+
+	public TwitchSyncCoordinator(TwitchLiveLoadoutPlugin plugin, CanvasListener canvasListener)
+	{
+		this.plugin = plugin;
+		this.canvasListener = canvasListener;
+	}
+
+	/**
+	 * Claim or keep the leadership for the given channel and get whether this client is the leader.
+	 * When the coordination fails for any reason every client acts as a leader, just like before.
+	 */
+	public synchronized boolean heartbeat(String channelId)
+	{
+
+		// guard: without a channel there is nothing to coordinate
+		if (channelId == null)
+		{
+			leader = true;
+			return leader;
+		}
+
+		try {
+			openChannel(channelId);
+
+			try (FileLock lock = channel.tryLock()) {
+
+				// guard: keep the current role when another client is holding the lock
+				if (lock == null)
+				{
+					return leader;
+				}
+
+				final long now = Instant.now().toEpochMilli();
+				final long leaderId = buffer.getLong(LEADER_ID_POSITION);
+				final long leaderHeartbeat = buffer.getLong(LEADER_HEARTBEAT_POSITION);
+				final long leaderFocusedAt = buffer.getLong(LEADER_FOCUSED_AT_POSITION);
+				final boolean leaderLoggedIn = buffer.getInt(LEADER_LOGGED_IN_POSITION) == 1;
+				final boolean isLeaderExpired = now - leaderHeartbeat > LEADER_TIMEOUT_MS;
+				final Instant lastInFocusAt = canvasListener.getLastInFocusAt();
+				final long focusedAt = (lastInFocusAt == null ? 0 : lastInFocusAt.toEpochMilli());
+				final boolean isLoggedIn = plugin.isLoggedIn(true);
+				final boolean isFocusedMoreRecently = canvasListener.isInFocus() && focusedAt > leaderFocusedAt;
+				final boolean canTakeOver = isLoggedIn || !leaderLoggedIn;
+
+				leader = (leaderId == clientId && !isLeaderExpired)
+					|| isLeaderExpired
+					|| (isFocusedMoreRecently && canTakeOver)
+					|| (isLoggedIn && !leaderLoggedIn);
+
+				if (leader)
+				{
+					buffer.putLong(LEADER_ID_POSITION, clientId);
+					buffer.putLong(LEADER_HEARTBEAT_POSITION, now);
+					buffer.putLong(LEADER_FOCUSED_AT_POSITION, focusedAt);
+					buffer.putInt(LEADER_LOGGED_IN_POSITION, isLoggedIn ? 1 : 0);
+				}
+
+				final long resetTime = buffer.getLong(RATE_LIMIT_RESET_POSITION);
+				sharedRateLimitRemaining = buffer.getInt(RATE_LIMIT_REMAINING_POSITION);
+				sharedRateLimitResetTime = (resetTime <= 0 ? null : Instant.ofEpochMilli(resetTime));
+			}
+		} catch (Exception exception) {
+			plugin.logSupport("Could not coordinate the syncing with other clients due to the following error: ", exception);
+			closeChannel();
+			leader = true;
+		}
+
+		return leader;
+	}
+
+	/**
+	 * Share the last known rate limit budget with the other clients.
+	 */
+	public synchronized void shareRateLimit(int remaining, Instant resetTime)
+	{
+
+		// guard: only the leader sends requests
+		if (buffer == null || !leader)
+		{
+			return;
+		}
+
+		try (FileLock lock = channel.tryLock()) {
+
+			// guard: skip sharing when another client is holding the lock, the next response shares it again
+			if (lock == null)
+			{
+				return;
+			}
+
+			buffer.putInt(RATE_LIMIT_REMAINING_POSITION, remaining);
+			buffer.putLong(RATE_LIMIT_RESET_POSITION, resetTime == null ? 0 : resetTime.toEpochMilli());
+		} catch (Exception exception) {
+			plugin.logSupport("Could not share the rate limit with other clients due to the following error: ", exception);
+		}
+	}
+
+	/**
+	 * Hand over the leadership immediately instead of waiting for the timeout.
+	 */
+	public synchronized void shutDown()
+	{
+		if (buffer != null && leader)
+		{
+			try (FileLock lock = channel.tryLock()) {
+				if (lock != null && buffer.getLong(LEADER_ID_POSITION) == clientId)
+				{
+					buffer.putLong(LEADER_HEARTBEAT_POSITION, 0);
+				}
+			} catch (Exception exception) {
+				// empty, the leadership expires anyways
+			}
+		}
+
+		closeChannel();
+	}
+
+	private void openChannel(String channelId) throws Exception
+	{
+
+		// guard: reuse the file of the same channel
+		if (buffer != null && channelId.equals(currentChannelId))
+		{
+			return;
+		}
+
+		closeChannel();
+
+		// the channel ID only contains digits, but sanitize it to be sure it is a valid file name
+		final String fileName = FILE_PREFIX + channelId.replaceAll("[^a-zA-Z0-9]", "") + ".dat";
+		final File syncFile = new File(RuneLite.RUNELITE_DIR, fileName);
+
+		file = new RandomAccessFile(syncFile, "rw");
+		channel = file.getChannel();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+		currentChannelId = channelId;
+	}
+
+	private void closeChannel()
+	{
+		try {
+			if (file != null)
+			{
+				file.close();
+			}
+		} catch (Exception exception) {
+			// empty
+		}
+
+		file = null;
+		channel = null;
+		buffer = null;
+		currentChannelId = null;
+	}
+}
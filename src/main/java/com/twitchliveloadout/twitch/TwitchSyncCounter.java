@@ -0,0 +1,23 @@
+package com.twitchliveloadout.twitch;
+
+import lombok.Getter;
+
+public enum TwitchSyncCounter {
+	SENT("sent", "sent"),
+	REPLACED("replaced", "replaced by a newer state"),
+	DISCARDED("discarded", "discarded"),
+	REJECTED("rejected", "rejected by Twitch"),
+	FAILED("failed", "failed to send"),
+	;
+
+	@Getter
+	private final String key;
+	@Getter
+	private final String displayName;
+
+	TwitchSyncCounter(String key, String displayName)
+	{
+		this.key = key;
+		this.displayName = displayName;
+	}
+}
@@ -0,0 +1,129 @@
+package com.twitchliveloadout.twitch;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram with logarithmic buckets that are each split in linear sub-buckets,
+ * similar to an HDR histogram. This keeps the relative error below ~6% for any value
+ * while recording is a single atomic increment in a fixed array.
+ */
+public class TwitchSyncHistogram
+{
+	private final static int SUB_BUCKET_BITS = 4;
+	private final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private final static int MAX_EXPONENT = 40;
+	private final static int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder totalCount = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public void record(long value)
+	{
+		final long clampedValue = Math.max(0, value);
+
+		counts.incrementAndGet(getBucketIndex(clampedValue));
+		totalCount.increment();
+		sum.add(clampedValue);
+		max.accumulate(clampedValue);
+	}
+
+	/**
+	 * Get the highest value of the bucket the percentile (0 - 100) falls in.
+	 */
+	public long getPercentile(double percentile)
+	{
+		final long count = getCount();
+
+		// guard: nothing is recorded yet
+		if (count <= 0)
+		{
+			return 0;
+		}
+
+		final long threshold = Math.max(1, (long) Math.ceil(count * percentile / 100d));
+		final long maxValue = getMax();
+		long seenCount = 0;
+
+		for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++)
+		{
+			seenCount += counts.get(bucketIndex);
+
+			if (seenCount >= threshold)
+			{
+				return Math.min(getBucketHighestValue(bucketIndex), maxValue);
+			}
+		}
+
+		return maxValue;
+	}
+
+	public long getCount()
+	{
+		return totalCount.sum();
+	}
+
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	public double getMean()
+	{
+		final long count = getCount();
+
+		return (count <= 0 ? 0 : ((double) sum.sum()) / count);
+	}
+
+	public void reset()
+	{
+		for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++)
+		{
+			counts.set(bucketIndex, 0);
+		}
+
+		totalCount.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	private static int getBucketIndex(long value)
+	{
+
+		// guard: small values have their own bucket
+		if (value < SUB_BUCKET_COUNT)
+		{
+			return (int) value;
+		}
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+		// guard: clamp huge values in the last bucket
+		if (exponent > MAX_EXPONENT)
+		{
+			return BUCKET_COUNT - 1;
+		}
+
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final int subBucketIndex = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucketIndex;
+	}
+
+	private static long getBucketHighestValue(int bucketIndex)
+	{
+		if (bucketIndex < SUB_BUCKET_COUNT)
+		{
+			return bucketIndex;
+		}
+
+		final int shift = (bucketIndex - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		final int subBucketIndex = (bucketIndex - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		final long lowestValue = ((long) (SUB_BUCKET_COUNT + subBucketIndex)) << shift;
+
+		return lowestValue + (1L << shift) - 1;
+	}
+}
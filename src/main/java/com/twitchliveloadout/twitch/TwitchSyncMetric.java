@@ -0,0 +1,33 @@
+package com.twitchliveloadout.twitch;
+
+import lombok.Getter;
+
+/**
+ * All the stages of the sync pipeline that are measured in a histogram.
+ * Durations are recorded in microseconds, sizes in bytes.
+ */
+public enum TwitchSyncMetric {
+	STATE_BUILD("stateBuild", "State build", true),
+	SERIALIZATION("serialization", "Serialization", true),
+	COMPRESSION("compression", "Compression", true),
+	QUEUE_WAIT("queueWait", "Queue wait", true),
+	HTTP_ROUND_TRIP("httpRoundTrip", "HTTP round-trip", true),
+	PAYLOAD_SIZE("payloadSize", "Payload size", false),
+	ACCOUNT_SWITCH("accountSwitch", "Account switch", true),
+	CYCLIC_FULL_REFRESH("cyclicFullRefresh", "Full cyclic refresh", true),
+	;
+
+	@Getter
+	private final String key;
+	@Getter
+	private final String displayName;
+	@Getter
+	private final boolean duration;
+
+	TwitchSyncMetric(String key, String displayName, boolean duration)
+	{
+		this.key = key;
+		this.displayName = displayName;
+		this.duration = duration;
+	}
+}
@@ -0,0 +1,148 @@
+package com.twitchliveloadout.twitch;
+
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the counters and histograms of every stage of the sync pipeline,
+ * from building the state up until Twitch responded. The metrics are shown in the
+ * connectivity panel and are available via JMX to tune the sync rate per streamer.
+ */
+public class TwitchSyncMetrics implements TwitchSyncMetricsMXBean
+{
+	private final static String OBJECT_NAME = "com.twitchliveloadout:type=SyncMetrics";
+	private final static double[] PERCENTILES = {50, 90, 99};
+
+	private final TwitchLiveLoadoutPlugin plugin;
+	private final EnumMap<TwitchSyncMetric, TwitchSyncHistogram> histograms = new EnumMap<>(TwitchSyncMetric.class);
+	private final EnumMap<TwitchSyncCounter, LongAdder> counters = new EnumMap<>(TwitchSyncCounter.class);
+
+	public TwitchSyncMetrics(TwitchLiveLoadoutPlugin plugin)
+	{
+		this.plugin = plugin;
+
+		for (TwitchSyncMetric metric : TwitchSyncMetric.values())
+		{
+			histograms.put(metric, new TwitchSyncHistogram());
+		}
+
+		for (TwitchSyncCounter counter : TwitchSyncCounter.values())
+		{
+			counters.put(counter, new LongAdder());
+		}
+	}
+
+	public void record(TwitchSyncMetric metric, long value)
+	{
+		histograms.get(metric).record(value);
+	}
+
+	/**
+	 * Record the time that passed since the given moment of System.nanoTime() in microseconds.
+	 */
+	public void recordSince(TwitchSyncMetric metric, long startNanos)
+	{
+		record(metric, (System.nanoTime() - startNanos) / 1000);
+	}
+
+	public void increment(TwitchSyncCounter counter)
+	{
+		add(counter, 1);
+	}
+
+	public void add(TwitchSyncCounter counter, long amount)
+	{
+		counters.get(counter).add(amount);
+	}
+
+	public TwitchSyncHistogram getHistogram(TwitchSyncMetric metric)
+	{
+		return histograms.get(metric);
+	}
+
+	public long getCount(TwitchSyncCounter counter)
+	{
+		return counters.get(counter).sum();
+	}
+
+	@Override
+	public Map<String, Long> getCounters()
+	{
+		final Map<String, Long> values = new LinkedHashMap<>();
+
+		for (TwitchSyncCounter counter : TwitchSyncCounter.values())
+		{
+			values.put(counter.getKey(), getCount(counter));
+		}
+
+		return values;
+	}
+
+	@Override
+	public Map<String, Long> getPercentiles()
+	{
+		final Map<String, Long> values = new LinkedHashMap<>();
+
+		for (TwitchSyncMetric metric : TwitchSyncMetric.values())
+		{
+			final TwitchSyncHistogram histogram = getHistogram(metric);
+
+			for (double percentile : PERCENTILES)
+			{
+				values.put(metric.getKey() +".p"+ ((int) percentile), histogram.getPercentile(percentile));
+			}
+
+			values.put(metric.getKey() +".max", histogram.getMax());
+			values.put(metric.getKey() +".count", histogram.getCount());
+		}
+
+		return values;
+	}
+
+	@Override
+	public void reset()
+	{
+		histograms.values().forEach(TwitchSyncHistogram::reset);
+		counters.values().forEach(LongAdder::reset);
+	}
+
+	public void register()
+	{
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+
+			// replace the metrics of a previous start of the plugin
+			if (server.isRegistered(name))
+			{
+				server.unregisterMBean(name);
+			}
+
+			server.registerMBean(this, name);
+		} catch (Exception exception) {
+			plugin.logSupport("Could not register the sync metrics via JMX due to the following error: ", exception);
+		}
+	}
+
+	public void unregister()
+	{
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+
+			if (server.isRegistered(name))
+			{
+				server.unregisterMBean(name);
+			}
+		} catch (Exception exception) {
+			plugin.logSupport("Could not unregister the sync metrics via JMX due to the following error: ", exception);
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.twitchliveloadout.twitch;
+
+import java.util.Map;
+
+/**
+ * Management interface to inspect the sync metrics via JMX, for example with JConsole.
+ */
+public interface TwitchSyncMetricsMXBean
+{
+	Map<String, Long> getCounters();
+
+	Map<String, Long> getPercentiles();
+
+	void reset();
+}
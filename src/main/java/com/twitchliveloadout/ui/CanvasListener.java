@@ -14,6 +14,7 @@ public class CanvasListener implements FocusListener {
 
 	@Getter
 	private boolean inFocus = false;
+	@Getter
 	private Instant lastInFocusAt = null;
 
 	public CanvasListener(TwitchLiveLoadoutConfig config)
@@ -14,6 +14,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.Collections;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 public class CombatPanel extends JPanel
@@ -36,6 +37,7 @@ public class CombatPanel extends JPanel
 	private final JPanel errorWrapper = new JPanel(new BorderLayout());
 
 	private final FightStateManager fightStateManager;
+	private final AtomicBoolean rebuildRequested = new AtomicBoolean(false);
 
 	public CombatPanel(FightStateManager fightStateManager)
 	{
@@ -120,6 +122,25 @@ public class CombatPanel extends JPanel
 		}
 	}
 
+	/**
+	 * Rebuild once on the Swing thread, where multiple requests before that are combined.
+	 * This can be requested from any thread.
+	 */
+	public void requestRebuild()
+	{
+
+		// guard: a rebuild is already pending
+		if (!rebuildRequested.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		SwingUtilities.invokeLater(() -> {
+			rebuildRequested.set(false);
+			rebuild();
+		});
+	}
+
 	public void rebuild()
 	{
 		rebuildFightList();
@@ -30,6 +30,10 @@ import com.twitchliveloadout.TwitchLiveLoadoutConfig;
 import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
 import com.twitchliveloadout.twitch.TwitchApi;
 import com.twitchliveloadout.twitch.TwitchState;
+import com.twitchliveloadout.twitch.TwitchSyncCounter;
+import com.twitchliveloadout.twitch.TwitchSyncHistogram;
+import com.twitchliveloadout.twitch.TwitchSyncMetric;
+import com.twitchliveloadout.twitch.TwitchSyncMetrics;
 import net.runelite.client.ui.ColorScheme;
 import net.runelite.client.ui.FontManager;
 import net.runelite.client.util.ImageUtil;
@@ -65,6 +69,7 @@ public class ConnectivityPanel extends JPanel
 	private final TextPanel authPanel = new TextPanel("Twitch Token Validity", "N/A");
 	private final TextPanel rateLimitPanel = new TextPanel("Twitch API Limit", "N/A");
 	private final TextPanel statePanel = new TextPanel("Loadout State Size", "N/A");
+	private final TextPanel metricsPanel = new TextPanel("Sync Pipeline", "N/A");
 	private JPanel actionsContainer = new JPanel();
 
 	private final TwitchLiveLoadoutPlugin plugin;
@@ -120,6 +125,8 @@ public class ConnectivityPanel extends JPanel
 		constraints.gridy++;
 		wrapper.add(statePanel, constraints);
 		constraints.gridy++;
+		wrapper.add(metricsPanel, constraints);
+		constraints.gridy++;
 
 		add(wrapper, BorderLayout.NORTH);
 	}
@@ -182,9 +189,8 @@ public class ConnectivityPanel extends JPanel
 			twitchStatusColor = ERROR_TEXT_COLOR;
 		}
 
-		String state = twitchApi.getLastCompressedState();
-		byte[] stateBytes = state.getBytes();
-		float stateUsagePercentage = ((float) stateBytes.length) / ((float) TwitchApi.MAX_PAYLOAD_SIZE) * 100;
+		int stateSize = twitchApi.getLastCompressedStateSize();
+		float stateUsagePercentage = ((float) stateSize) / ((float) TwitchApi.MAX_PAYLOAD_SIZE) * 100;
 		String currentCyclicState = twitchState.getCurrentCyclicEntry().getKey();
 		String stateText = String.format("%.2f", stateUsagePercentage) +"% used of Twitch storage for general data and part of "+ currentCyclicState +".";
 		String stateColor = DEFAULT_TEXT_COLOR;
@@ -212,6 +218,53 @@ public class ConnectivityPanel extends JPanel
 		authPanel.setText(getTextInColor(authText, authColor));
 		rateLimitPanel.setText(getTextInColor(rateLimitText, rateLimitColor));
 		statePanel.setText(getTextInColor(stateText, stateColor));
+		metricsPanel.setText(getTextInColor(getMetricsText(), DEFAULT_TEXT_COLOR));
+	}
+
+	private String getMetricsText()
+	{
+		final TwitchSyncMetrics syncMetrics = twitchApi.getSyncMetrics();
+		final StringBuilder metricsText = new StringBuilder();
+
+		for (TwitchSyncMetric metric : TwitchSyncMetric.values())
+		{
+			final TwitchSyncHistogram histogram = syncMetrics.getHistogram(metric);
+
+			metricsText
+				.append(metric.getDisplayName())
+				.append(": p50 ").append(formatMetricValue(metric, histogram.getPercentile(50)))
+				.append(", p99 ").append(formatMetricValue(metric, histogram.getPercentile(99)))
+				.append("<br/>");
+		}
+
+		metricsText.append("<br/>States");
+
+		for (TwitchSyncCounter counter : TwitchSyncCounter.values())
+		{
+			metricsText
+				.append("<br/>")
+				.append(syncMetrics.getCount(counter))
+				.append(" ")
+				.append(counter.getDisplayName());
+		}
+
+		return metricsText.toString();
+	}
+
+	private String formatMetricValue(TwitchSyncMetric metric, long value)
+	{
+		// durations such as a full refresh of the cyclic state take seconds
+		if (metric.isDuration() && value >= 1000 * 1000)
+		{
+			return String.format("%.2f", value / 1000f / 1000f) +" s";
+		}
+
+		if (metric.isDuration())
+		{
+			return String.format("%.2f", value / 1000f) +" ms";
+		}
+
+		return value +" bytes";
 	}
 
 	public String getTextInColor(String text, String color)
@@ -0,0 +1,69 @@
+package com.twitchliveloadout.replay;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.twitchliveloadout.twitch.TwitchHttpEndpoint;
+import com.twitchliveloadout.twitch.TwitchJournal;
+import lombok.Getter;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class TwitchJournalEntry
+{
+	@Getter
+	private final long time;
+	@Getter
+	private final TwitchHttpEndpoint endpoint;
+	@Getter
+	private final int responseCode;
+	@Getter
+	private final String request;
+	@Getter
+	private final String response;
+	@Getter
+	private final String error;
+
+	public TwitchJournalEntry(JsonObject rawEntry)
+	{
+		time = rawEntry.get(TwitchJournal.TIME_KEY).getAsLong();
+		endpoint = TwitchHttpEndpoint.valueOf(rawEntry.get(TwitchJournal.ENDPOINT_KEY).getAsString());
+		responseCode = rawEntry.get(TwitchJournal.RESPONSE_CODE_KEY).getAsInt();
+		request = getString(rawEntry, TwitchJournal.REQUEST_KEY);
+		response = getString(rawEntry, TwitchJournal.RESPONSE_KEY);
+		error = getString(rawEntry, TwitchJournal.ERROR_KEY);
+	}
+
+	/**
+	 * Read all entries of a journal file ordered by time, invalid lines are skipped.
+	 */
+	public static List<TwitchJournalEntry> readAll(File journalFile) throws Exception
+	{
+		final List<TwitchJournalEntry> entries = new ArrayList<>();
+
+		for (String line : Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8))
+		{
+			try {
+				entries.add(new TwitchJournalEntry(new JsonParser().parse(line).getAsJsonObject()));
+			} catch (Exception exception) {
+				// empty, the last line might be incomplete
+			}
+		}
+
+		entries.sort(Comparator.comparingLong(TwitchJournalEntry::getTime));
+
+		return entries;
+	}
+
+	private static String getString(JsonObject rawEntry, String key)
+	{
+		final JsonElement value = rawEntry.get(key);
+
+		return (value == null || value.isJsonNull() ? null : value.getAsString());
+	}
+}
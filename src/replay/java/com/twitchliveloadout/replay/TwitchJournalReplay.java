@@ -0,0 +1,321 @@
+package com.twitchliveloadout.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.twitchliveloadout.BenchmarkFixtures;
+import com.twitchliveloadout.TwitchLiveLoadoutConfig;
+import com.twitchliveloadout.TwitchLiveLoadoutPlugin;
+import com.twitchliveloadout.marketplace.MarketplaceManager;
+import com.twitchliveloadout.twitch.*;
+import com.twitchliveloadout.ui.CanvasListener;
+import net.runelite.api.Client;
+import net.runelite.client.RuneLite;
+import net.runelite.client.chat.ChatMessageManager;
+import net.runelite.client.ui.overlay.OverlayManager;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays a recorded journal against a local stand-in for Twitch at 1x or an accelerated speed.
+ * The recorded PubSub messages are decoded back into the states the streamer had at their recorded
+ * moments, which are synced through the same pipeline as the plugin: the delta encoding, the delay
+ * line, the compression and the rate limiter. The marketplace polls and applies transactions at the
+ * intervals of the plugin, scaled to the speed. No live Twitch account is needed, which makes the
+ * load reproducible.
+ *
+ * Usage: ./gradlew replayJournal -Pjournal=<path to journal> -Pspeed=<speed, e.g. 10>
+ */
+public class TwitchJournalReplay
+{
+	private final static String DEFAULT_CHANNEL_ID = "12345";
+	private final static long DRAIN_DURATION_MS = 5 * 1000;
+	private final static long SYNC_STATE_INTERVAL_MS = 500;
+	private final static long APPLY_TRANSACTIONS_INTERVAL_MS = 1000;
+	private final static long FETCH_TRANSACTIONS_INTERVAL_MS = 3 * 1000;
+	private final static long FETCH_CONFIGURATION_INTERVAL_MS = 10 * 1000;
+	private final static long FETCH_PRODUCTS_INTERVAL_MS = 5 * 60 * 1000;
+
+	private final TwitchLiveLoadoutConfig config;
+	private final TwitchReplayClock clock;
+	private final TwitchStandIn standIn;
+	private final TwitchApi twitchApi;
+	private final MarketplaceManager marketplaceManager;
+	private final ScheduledExecutorService replayExecutor = Executors.newSingleThreadScheduledExecutor();
+	private final ScheduledExecutorService clientThread = Executors.newSingleThreadScheduledExecutor();
+
+	private final AtomicInteger replayedMessageCount = new AtomicInteger();
+	private final AtomicInteger failedMessageCount = new AtomicInteger();
+	private final AtomicInteger scheduledStateCount = new AtomicInteger();
+	private final AtomicInteger appliedTransactionCount = new AtomicInteger();
+	private final AtomicInteger failedApplyCount = new AtomicInteger();
+	private int recordedFailureCount = 0;
+
+	/**
+	 * The state of the streamer at the current moment of the replay, which is
+	 * rebuilt from the recorded keyframes and deltas just like the viewers do
+	 */
+	private JsonObject replayedState = new JsonObject();
+	private long replayedStateVersion = 0;
+	private long scheduledStateVersion = 0;
+
+	public static void main(String[] args) throws Exception
+	{
+		final boolean hasJournalArgument = args.length > 0 && !args[0].isEmpty();
+		final File defaultJournalFile = new File(RuneLite.RUNELITE_DIR, TwitchJournal.FILE_NAME);
+		final File journalFile = (hasJournalArgument ? new File(args[0]) : defaultJournalFile);
+		final double speed = (args.length > 1 && !args[1].isEmpty() ? Double.parseDouble(args[1]) : 1);
+		final List<TwitchJournalEntry> entries = TwitchJournalEntry.readAll(journalFile);
+
+		// guard: nothing to replay
+		if (entries.isEmpty())
+		{
+			System.out.println("No entries found in the journal: "+ journalFile);
+			return;
+		}
+
+		final TwitchJournalReplay replay = new TwitchJournalReplay(entries, speed);
+		replay.run(entries);
+		System.exit(0);
+	}
+
+	public TwitchJournalReplay(List<TwitchJournalEntry> entries, double speed) throws Exception
+	{
+		final TwitchLiveLoadoutPlugin plugin = BenchmarkFixtures.createPlugin();
+		config = BenchmarkFixtures.createConfig();
+		final Client client = BenchmarkFixtures.createClient();
+		final ChatMessageManager chatMessageManager = mock(ChatMessageManager.class);
+		final Gson gson = new Gson();
+		final TwitchStateCompressionTuner compressionTuner = new TwitchStateCompressionTuner();
+		final TwitchState twitchState = BenchmarkFixtures.createTwitchState(plugin, config, compressionTuner);
+		final TwitchSyncCoordinator syncCoordinator = new TwitchSyncCoordinator(plugin, mock(CanvasListener.class));
+
+		doReturn(createToken()).when(config).twitchToken();
+		doReturn(true).when(config).marketplaceEnabled();
+
+		clock = new TwitchReplayClock(entries.get(0).getTime(), speed);
+		standIn = new TwitchStandIn(entries, clock);
+		twitchApi = new TwitchApi(plugin, client, config, chatMessageManager, new OkHttpClient(), gson, compressionTuner, syncCoordinator);
+		twitchApi.setBaseUrlOverride(HttpUrl.get(standIn.getBaseUrl()));
+		marketplaceManager = new MarketplaceManager(plugin, twitchApi, twitchState, client, config, chatMessageManager, BenchmarkFixtures.createItemManager(), mock(OverlayManager.class), gson);
+	}
+
+	public void run(List<TwitchJournalEntry> entries) throws Exception
+	{
+		final long lastRecordedTime = entries.get(entries.size() - 1).getTime();
+		final long syncDelayMs = config.syncDelay() * 1000L + TwitchApi.BASE_SYNC_DELAY;
+		final long replayDurationMs = clock.getReplayDelayNanos(lastRecordedTime) / 1_000_000L + syncDelayMs + DRAIN_DURATION_MS;
+
+		standIn.start();
+
+		for (TwitchJournalEntry entry : entries)
+		{
+			if (entry.getError() != null)
+			{
+				recordedFailureCount++;
+			}
+
+			if (entry.getEndpoint() == TwitchHttpEndpoint.PUBSUB && entry.getRequest() != null)
+			{
+				replayExecutor.schedule(() -> replayPubSubMessage(entry), clock.getReplayDelayNanos(entry.getTime()), TimeUnit.NANOSECONDS);
+			}
+		}
+
+		// poll like the plugin does, where the client thread is a single thread as well
+		// NOTE: the state is synced at the interval of the plugin without scaling it, because
+		// the rate limit and the delay line of the pipeline are not scaled either
+		clientThread.scheduleWithFixedDelay(this::syncState, 0, SYNC_STATE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		scheduleOnClientThread(this::updateProducts, FETCH_PRODUCTS_INTERVAL_MS);
+		scheduleOnClientThread(this::updateStreamerProducts, FETCH_CONFIGURATION_INTERVAL_MS);
+		scheduleOnClientThread(marketplaceManager::fetchAsyncNewEbsTransactions, FETCH_TRANSACTIONS_INTERVAL_MS);
+		scheduleOnClientThread(this::applyTransactions, APPLY_TRANSACTIONS_INTERVAL_MS);
+
+		Thread.sleep(replayDurationMs);
+
+		replayExecutor.shutdownNow();
+		clientThread.shutdownNow();
+		report(entries.size());
+		twitchApi.shutDown();
+		standIn.stop();
+	}
+
+	/**
+	 * Decode a recorded PubSub message and merge it into the state of the streamer at this moment.
+	 */
+	private void replayPubSubMessage(TwitchJournalEntry entry)
+	{
+		try {
+			final JsonObject data = new JsonParser().parse(entry.getRequest()).getAsJsonObject();
+			final String rawMessage = TwitchStateCompressor.decompressFromBase64(data.get("message").getAsString());
+			final JsonObject message = new JsonParser().parse(rawMessage).getAsJsonObject();
+			final boolean isWireFormat = message.has(TwitchStateEntry.FORMAT_VERSION.getKey());
+
+			mergeReplayedState(isWireFormat ? TwitchStateWireFormat.decode(message) : message);
+			replayedMessageCount.incrementAndGet();
+		} catch (Exception exception) {
+			failedMessageCount.incrementAndGet();
+		}
+	}
+
+	private synchronized void mergeReplayedState(JsonObject message)
+	{
+		final JsonElement keyframe = message.remove(TwitchStateEntry.SYNC_KEYFRAME.getKey());
+		message.remove(TwitchStateEntry.SYNC_SEQUENCE.getKey());
+
+		// messages that were recorded without delta sync always contain the full state
+		if (keyframe == null || keyframe.getAsBoolean())
+		{
+			replayedState = new JsonObject();
+		}
+
+		for (Map.Entry<String, JsonElement> messageEntry : message.entrySet())
+		{
+			replayedState.add(messageEntry.getKey(), messageEntry.getValue());
+		}
+
+		replayedStateVersion++;
+	}
+
+	/**
+	 * Schedule the latest state like the plugin does, where there is only a single client so it is always the leader.
+	 */
+	private void syncState()
+	{
+		try {
+
+			// guard: skip building states while PubSub keeps failing
+			if (!twitchApi.isPubSubAvailable())
+			{
+				return;
+			}
+
+			// guard: wait for the rate limiter like the plugin does
+			if (!twitchApi.canScheduleState())
+			{
+				return;
+			}
+
+			final JsonObject state;
+
+			synchronized (this)
+			{
+
+				// guard: nothing new was recorded since the last scheduled state
+				if (replayedStateVersion == scheduledStateVersion)
+				{
+					return;
+				}
+
+				state = replayedState.deepCopy();
+				scheduledStateVersion = replayedStateVersion;
+			}
+
+			twitchApi.scheduleBroadcasterState(state);
+			scheduledStateCount.incrementAndGet();
+		} catch (Exception exception) {
+			// empty, an exception would stop the polling
+		}
+	}
+
+	private void updateProducts()
+	{
+		marketplaceManager.updateAsyncEbsProducts();
+	}
+
+	private void updateStreamerProducts()
+	{
+		try {
+			twitchApi.fetchAsyncConfigurationSegment(TwitchSegmentType.BROADCASTER);
+			marketplaceManager.updateStreamerProducts();
+		} catch (Exception exception) {
+			// empty, try again in the next poll
+		}
+	}
+
+	private void applyTransactions()
+	{
+		final int queuedAmountBefore = marketplaceManager.getQueuedTransactions().size();
+
+		try {
+			marketplaceManager.applyQueuedTransactions();
+			marketplaceManager.cleanExpiredProducts();
+		} catch (Exception exception) {
+			failedApplyCount.incrementAndGet();
+		}
+
+		final int queuedAmountAfter = marketplaceManager.getQueuedTransactions().size();
+		appliedTransactionCount.addAndGet(Math.max(0, queuedAmountBefore - queuedAmountAfter));
+	}
+
+	private void scheduleOnClientThread(Runnable task, long intervalMs)
+	{
+		clientThread.scheduleAtFixedRate(() -> {
+			try {
+				task.run();
+			} catch (Exception exception) {
+				// empty, an exception would stop the polling
+			}
+		}, 0, clock.scaleIntervalMs(intervalMs), TimeUnit.MILLISECONDS);
+	}
+
+	private void report(int entryAmount)
+	{
+		final double elapsedMinutes = clock.getElapsedMinutes();
+		final TwitchSyncMetrics syncMetrics = twitchApi.getSyncMetrics();
+		final StringBuilder counters = new StringBuilder();
+
+		for (TwitchSyncCounter counter : TwitchSyncCounter.values())
+		{
+			counters.append(counters.length() > 0 ? ", " : "")
+				.append(counter.getDisplayName())
+				.append(": ")
+				.append(syncMetrics.getCount(counter));
+		}
+
+		System.out.println("Replayed "+ entryAmount +" journal entries at "+ clock.getSpeed() +"x in "+ String.format("%.2f", elapsedMinutes) +" minutes, of which "+ recordedFailureCount +" were recorded failed requests");
+		System.out.println("Recorded PubSub messages replayed: "+ replayedMessageCount.get() +", failed to decode: "+ failedMessageCount.get() +", states scheduled: "+ scheduledStateCount.get());
+		System.out.println("States "+ counters +", received by stand-in: "+ standIn.getReceivedMessageCount().get());
+
+		for (TwitchSyncMetric metric : new TwitchSyncMetric[] {TwitchSyncMetric.SERIALIZATION, TwitchSyncMetric.COMPRESSION, TwitchSyncMetric.QUEUE_WAIT, TwitchSyncMetric.HTTP_ROUND_TRIP})
+		{
+			System.out.println(metric.getDisplayName() +": "+ formatPercentiles(syncMetrics.getHistogram(metric)));
+		}
+
+		final TwitchSyncHistogram payloadSize = syncMetrics.getHistogram(TwitchSyncMetric.PAYLOAD_SIZE);
+		System.out.println("Payload size: p50 "+ payloadSize.getPercentile(50) +" bytes, p99 "+ payloadSize.getPercentile(99) +" bytes, max "+ payloadSize.getMax() +" bytes");
+		System.out.println("Transactions applied: "+ appliedTransactionCount.get() +" ("+ String.format("%.1f", appliedTransactionCount.get() / Math.max(elapsedMinutes, 0.001)) +" per minute), still queued: "+ marketplaceManager.getQueuedTransactions().size() +", failed apply runs: "+ failedApplyCount.get());
+	}
+
+	private static String formatPercentiles(TwitchSyncHistogram histogram)
+	{
+		return "p50 "+ String.format("%.2f", histogram.getPercentile(50) / 1000d) +" ms"
+			+", p99 "+ String.format("%.2f", histogram.getPercentile(99) / 1000d) +" ms"
+			+", max "+ String.format("%.2f", histogram.getMax() / 1000d) +" ms";
+	}
+
+	/**
+	 * Create an unsigned token with only the channel ID, which is all the stand-in needs.
+	 */
+	private static String createToken()
+	{
+		final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		final String header = encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+		final String payload = encoder.encodeToString(("{\"channel_id\":\""+ DEFAULT_CHANNEL_ID +"\"}").getBytes(StandardCharsets.UTF_8));
+
+		return header +"."+ payload +".";
+	}
+}
@@ -0,0 +1,52 @@
+package com.twitchliveloadout.replay;
+
+import lombok.Getter;
+
+/**
+ * Maps the recorded moments of a journal to the moments of the replay at a certain speed.
+ */
+public class TwitchReplayClock
+{
+	@Getter
+	private final long firstRecordedTime;
+	@Getter
+	private final double speed;
+	private final long startNanos = System.nanoTime();
+
+	public TwitchReplayClock(long firstRecordedTime, double speed)
+	{
+		this.firstRecordedTime = firstRecordedTime;
+		this.speed = speed;
+	}
+
+	/**
+	 * Get the System.nanoTime() moment the recorded time (epoch ms) is replayed.
+	 */
+	public long getReplayNanos(long recordedTime)
+	{
+		return startNanos + getReplayDelayNanos(recordedTime);
+	}
+
+	public long getReplayDelayNanos(long recordedTime)
+	{
+		return (long) ((recordedTime - firstRecordedTime) * 1_000_000L / speed);
+	}
+
+	/**
+	 * Scale an interval of the plugin to the speed of the replay.
+	 */
+	public long scaleIntervalMs(long intervalMs)
+	{
+		return Math.max(1, (long) (intervalMs / speed));
+	}
+
+	public boolean isDue(long recordedTime)
+	{
+		return System.nanoTime() >= getReplayNanos(recordedTime);
+	}
+
+	public double getElapsedMinutes()
+	{
+		return (System.nanoTime() - startNanos) / 60_000_000_000d;
+	}
+}
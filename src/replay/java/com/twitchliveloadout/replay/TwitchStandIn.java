@@ -0,0 +1,175 @@
+package com.twitchliveloadout.replay;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.twitchliveloadout.twitch.TwitchHttpEndpoint;
+import lombok.Getter;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-in for the Twitch API and the EBS that serves the responses of a journal
+ * once their moment has passed in the replay. Received PubSub messages are only counted,
+ * because the sync pipeline measures the time each stage takes itself.
+ */
+public class TwitchStandIn
+{
+	private final static int RATE_LIMIT = 800;
+	private final static String EMPTY_TRANSACTIONS_RESPONSE = "{\"status\":true,\"message\":\"\",\"transactions\":[]}";
+
+	private final HttpServer server;
+	private final TwitchReplayClock clock;
+	private final Map<TwitchHttpEndpoint, List<TwitchJournalEntry>> responseEntries;
+	private final AtomicInteger nextTransactionIndex = new AtomicInteger();
+
+	@Getter
+	private final AtomicInteger receivedMessageCount = new AtomicInteger();
+
+	public TwitchStandIn(List<TwitchJournalEntry> entries, TwitchReplayClock clock) throws Exception
+	{
+		this.clock = clock;
+		this.responseEntries = entries
+			.stream()
+			.filter(entry -> entry.getResponse() != null)
+			.collect(Collectors.groupingBy(TwitchJournalEntry::getEndpoint));
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newFixedThreadPool(4));
+		server.createContext("/", this::handle);
+	}
+
+	public void start()
+	{
+		server.start();
+	}
+
+	public void stop()
+	{
+		server.stop(0);
+	}
+
+	public String getBaseUrl()
+	{
+		return "http://127.0.0.1:"+ server.getAddress().getPort();
+	}
+
+	private void handle(HttpExchange exchange)
+	{
+		try {
+			final String path = exchange.getRequestURI().getPath();
+
+			// read the whole request so the connection can be reused
+			exchange.getRequestBody().readAllBytes();
+
+			if (path.endsWith("/pubsub"))
+			{
+				receivedMessageCount.incrementAndGet();
+				respond(exchange, 204, null);
+			}
+			else if (path.endsWith("/configurations"))
+			{
+				respondWithLatest(exchange, TwitchHttpEndpoint.CONFIGURATION_SEGMENT);
+			}
+			else if (path.endsWith("/marketplace-products"))
+			{
+				respondWithLatest(exchange, TwitchHttpEndpoint.EBS_PRODUCTS);
+			}
+			else if (path.endsWith("/marketplace-transactions"))
+			{
+				respondWithTransactions(exchange);
+			}
+			else
+			{
+				respond(exchange, 404, null);
+			}
+		} catch (Exception exception) {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Respond with the last response that was recorded before the current moment in the replay.
+	 */
+	private void respondWithLatest(HttpExchange exchange, TwitchHttpEndpoint endpoint) throws Exception
+	{
+		final List<TwitchJournalEntry> entries = responseEntries.get(endpoint);
+		TwitchJournalEntry latestEntry = null;
+
+		// guard: nothing was recorded for this endpoint
+		if (entries == null || entries.isEmpty())
+		{
+			respond(exchange, 404, null);
+			return;
+		}
+
+		for (TwitchJournalEntry entry : entries)
+		{
+			if (latestEntry != null && !clock.isDue(entry.getTime()))
+			{
+				break;
+			}
+
+			latestEntry = entry;
+		}
+
+		respond(exchange, latestEntry.getResponseCode(), latestEntry.getResponse());
+	}
+
+	/**
+	 * Respond with the newest transactions that became due since the previous request, like the EBS would.
+	 */
+	private void respondWithTransactions(HttpExchange exchange) throws Exception
+	{
+		final List<TwitchJournalEntry> entries = responseEntries.get(TwitchHttpEndpoint.EBS_TRANSACTIONS);
+		TwitchJournalEntry latestEntry = null;
+
+		if (entries != null)
+		{
+			synchronized (nextTransactionIndex)
+			{
+				int entryIndex = nextTransactionIndex.get();
+
+				while (entryIndex < entries.size() && clock.isDue(entries.get(entryIndex).getTime()))
+				{
+					latestEntry = entries.get(entryIndex);
+					entryIndex++;
+				}
+
+				nextTransactionIndex.set(entryIndex);
+			}
+		}
+
+		if (latestEntry == null)
+		{
+			respond(exchange, 200, EMPTY_TRANSACTIONS_RESPONSE);
+			return;
+		}
+
+		respond(exchange, latestEntry.getResponseCode(), latestEntry.getResponse());
+	}
+
+	private void respond(HttpExchange exchange, int responseCode, String body) throws Exception
+	{
+		final byte[] bytes = (body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8));
+		final long resetTime = Instant.now().plusSeconds(60).getEpochSecond();
+
+		// a generous budget, the replay is about the load on the plugin and not on Twitch
+		exchange.getResponseHeaders().add("Ratelimit-Limit", Integer.toString(RATE_LIMIT));
+		exchange.getResponseHeaders().add("Ratelimit-Remaining", Integer.toString(RATE_LIMIT));
+		exchange.getResponseHeaders().add("Ratelimit-Reset", Long.toString(resetTime));
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(responseCode, bytes.length == 0 ? -1 : bytes.length);
+
+		try (OutputStream responseBody = exchange.getResponseBody()) {
+			responseBody.write(bytes);
+		}
+	}
+}
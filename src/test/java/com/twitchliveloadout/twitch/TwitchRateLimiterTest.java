@@ -0,0 +1,257 @@
+package com.twitchliveloadout.twitch;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds the rate limiter with the responses of a local stand-in for Twitch that returns scripted rate limit headers.
+ */
+public class TwitchRateLimiterTest
+{
+	private final static Instant START_TIME = Instant.ofEpochSecond(1_700_000_000);
+
+	private final Deque<ScriptedResponse> scriptedResponses = new ArrayDeque<>();
+	private final OkHttpClient httpClient = new OkHttpClient();
+	private HttpServer server;
+	private TestClock clock;
+	private TwitchRateLimiter rateLimiter;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			final ScriptedResponse scriptedResponse = scriptedResponses.poll();
+			final int responseCode = (scriptedResponse == null ? 500 : scriptedResponse.responseCode);
+
+			if (scriptedResponse != null)
+			{
+				scriptedResponse.addHeader(exchange.getResponseHeaders(), "Ratelimit-Limit", scriptedResponse.limit);
+				scriptedResponse.addHeader(exchange.getResponseHeaders(), "Ratelimit-Remaining", scriptedResponse.remaining);
+				scriptedResponse.addHeader(exchange.getResponseHeaders(), "Ratelimit-Reset", scriptedResponse.reset);
+			}
+
+			exchange.sendResponseHeaders(responseCode, -1);
+			exchange.close();
+		});
+		server.start();
+
+		clock = new TestClock(START_TIME);
+		rateLimiter = new TwitchRateLimiter(clock);
+	}
+
+	@After
+	public void tearDown()
+	{
+		server.stop(0);
+	}
+
+	@Test
+	public void spendsTheRemainingPointsEvenlyUntilTheReset() throws IOException
+	{
+		script(200, "100", "65", resetAfterSeconds(60));
+		sendRequest();
+
+		// 60 spendable points in 60 seconds is a point per second
+		assertSlots(rateLimiter.getPredictedSlots(3), 0, 1000, 2000);
+	}
+
+	@Test
+	public void slowsDownWhenOtherClientsSpendTheSameBudget() throws IOException
+	{
+		script(200, "100", "65", resetAfterSeconds(60));
+		script(200, "100", "20", resetAfterSeconds(60));
+		sendRequest();
+		sendRequest();
+
+		// 15 spendable points in 60 seconds is a point every 4 seconds
+		assertSlots(rateLimiter.getPredictedSlots(3), 0, 4000, 8000);
+	}
+
+	@Test
+	public void waitsForTheNextSlotAfterAcquiring() throws IOException
+	{
+		script(200, "100", "66", resetAfterSeconds(60));
+		sendRequest();
+
+		assertTrue(rateLimiter.canAcquire());
+		rateLimiter.acquire();
+		assertFalse(rateLimiter.canAcquire());
+		assertEquals(65, rateLimiter.getRemaining());
+		assertSlots(rateLimiter.getPredictedSlots(2), 1000, 2000);
+
+		clock.advance(1000);
+		assertTrue(rateLimiter.canAcquire());
+	}
+
+	@Test
+	public void waitsForTheResetAfterBeingRateLimited() throws IOException
+	{
+		script(200, "100", "65", resetAfterSeconds(60));
+		script(429, "100", "0", resetAfterSeconds(30));
+		sendRequest();
+		sendRequest();
+
+		assertFalse(rateLimiter.canAcquire());
+		assertEquals(0, rateLimiter.getRemaining());
+
+		// after the reset a full window of 95 spendable points is spread over 60 seconds
+		assertSlots(rateLimiter.getPredictedSlots(3), 30000, 30632, 31264);
+	}
+
+	@Test
+	public void waitsForAWindowWhenRateLimitedWithoutReset() throws IOException
+	{
+		script(429, null, null, null);
+		sendRequest();
+
+		assertEquals(START_TIME.plusSeconds(60), rateLimiter.getResetTime());
+		assertSlots(rateLimiter.getPredictedSlots(1), 60000);
+	}
+
+	@Test
+	public void restoresTheBudgetWhenTheResetHasPassed() throws IOException
+	{
+		script(429, "100", "0", resetAfterSeconds(30));
+		sendRequest();
+		assertFalse(rateLimiter.canAcquire());
+
+		clock.advance(30000);
+
+		assertTrue(rateLimiter.canAcquire());
+		assertEquals(100, rateLimiter.getRemaining());
+		assertNull(rateLimiter.getResetTime());
+	}
+
+	@Test
+	public void keepsTheBudgetOnInvalidOrMissingHeaders() throws IOException
+	{
+		script(200, "100", "65", resetAfterSeconds(60));
+		script(200, null, "invalid", null);
+		script(200, null, null, null);
+		sendRequest();
+		sendRequest();
+		sendRequest();
+
+		assertEquals(100, rateLimiter.getLimit());
+		assertEquals(65, rateLimiter.getRemaining());
+		assertEquals(START_TIME.plusSeconds(60), rateLimiter.getResetTime());
+		assertSlots(rateLimiter.getPredictedSlots(2), 0, 1000);
+	}
+
+	private void script(int responseCode, String limit, String remaining, String reset)
+	{
+		scriptedResponses.add(new ScriptedResponse(responseCode, limit, remaining, reset));
+	}
+
+	private String resetAfterSeconds(long seconds)
+	{
+		return String.valueOf(clock.instant().plusSeconds(seconds).getEpochSecond());
+	}
+
+	private void sendRequest() throws IOException
+	{
+		final Request request = new Request.Builder()
+			.url("http://127.0.0.1:"+ server.getAddress().getPort() +"/extensions/pubsub")
+			.build();
+
+		try (Response response = httpClient.newCall(request).execute())
+		{
+			rateLimiter.handleResponse(response.code(), response.headers());
+		}
+	}
+
+	private void assertSlots(List<Instant> slots, long... expectedOffsetsMs)
+	{
+		final long[] offsetsMs = new long[slots.size()];
+
+		for (int slotIndex = 0; slotIndex < slots.size(); slotIndex++)
+		{
+			offsetsMs[slotIndex] = slots.get(slotIndex).toEpochMilli() - START_TIME.toEpochMilli();
+		}
+
+		assertEquals(Arrays.toString(expectedOffsetsMs), Arrays.toString(offsetsMs));
+	}
+
+	private static class ScriptedResponse
+	{
+		private final int responseCode;
+		private final String limit;
+		private final String remaining;
+		private final String reset;
+
+		private ScriptedResponse(int responseCode, String limit, String remaining, String reset)
+		{
+			this.responseCode = responseCode;
+			this.limit = limit;
+			this.remaining = remaining;
+			this.reset = reset;
+		}
+
+		private void addHeader(com.sun.net.httpserver.Headers headers, String name, String value)
+		{
+
+			// guard: leave out the headers that are not scripted
+			if (value == null)
+			{
+				return;
+			}
+
+			headers.add(name, value);
+		}
+	}
+
+	private static class TestClock extends Clock
+	{
+		private Instant now;
+
+		private TestClock(Instant now)
+		{
+			this.now = now;
+		}
+
+		private void advance(long ms)
+		{
+			now = now.plusMillis(ms);
+		}
+
+		@Override
+		public Instant instant()
+		{
+			return now;
+		}
+
+		@Override
+		public ZoneId getZone()
+		{
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone)
+		{
+			return this;
+		}
+	}
+}
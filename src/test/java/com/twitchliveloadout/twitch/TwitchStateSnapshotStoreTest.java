@@ -0,0 +1,216 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TwitchStateSnapshotStoreTest
+{
+	private final static String ACCOUNT_IDENTIFIER = "12345";
+	private final static String KEY = "bankTabbedItems";
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private TwitchStateSnapshotStore snapshotStore;
+
+	@Before
+	public void setUp()
+	{
+		snapshotStore = createSnapshotStore();
+		snapshotStore.switchAccount(ACCOUNT_IDENTIFIER);
+	}
+
+	@After
+	public void tearDown()
+	{
+		snapshotStore.shutDown();
+	}
+
+	@Test
+	public void roundTripsNulls() throws Exception
+	{
+		assertRoundTrip(JsonNull.INSTANCE);
+	}
+
+	@Test
+	public void roundTripsBooleans() throws Exception
+	{
+		assertRoundTrip(new JsonPrimitive(true));
+		assertRoundTrip(new JsonPrimitive(false));
+	}
+
+	@Test
+	public void roundTripsIntegers() throws Exception
+	{
+		for (long value : new long[] {0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE})
+		{
+			assertRoundTrip(new JsonPrimitive(value));
+		}
+
+		// numbers parsed from JSON are stored as integers when they have no fraction
+		assertRoundTrip(new JsonParser().parse("2147000000"));
+	}
+
+	@Test
+	public void roundTripsDecimals() throws Exception
+	{
+		assertRoundTrip(new JsonPrimitive(1.5));
+		assertRoundTrip(new JsonPrimitive(-0.001));
+		assertRoundTrip(new JsonParser().parse("3.25"));
+	}
+
+	@Test
+	public void roundTripsStrings() throws Exception
+	{
+		assertRoundTrip(new JsonPrimitive(""));
+		assertRoundTrip(new JsonPrimitive("Twisted bow"));
+		assertRoundTrip(new JsonPrimitive("\u00e9\u00e8 \u2713 \ud83d\udc09"));
+	}
+
+	@Test
+	public void roundTripsArrays() throws Exception
+	{
+		assertRoundTrip(new JsonArray());
+		assertRoundTrip(new JsonParser().parse("[[[995, 2147000000], [-1, -1]], [], [[4151, 1]]]"));
+	}
+
+	@Test
+	public void roundTripsObjects() throws Exception
+	{
+		assertRoundTrip(new JsonObject());
+		assertRoundTrip(new JsonParser().parse("{\"bosses\": {\"Zulrah\": [1, true, null, \"kc\", 2.5]}, \"empty\": {}}"));
+	}
+
+	@Test
+	public void returnsNullWhenNeverSaved() throws Exception
+	{
+		assertNull(createSnapshotStore().load(ACCOUNT_IDENTIFIER, KEY));
+	}
+
+	@Test
+	public void returnsPendingSnapshotsBeforeTheyAreWritten() throws Exception
+	{
+		final JsonElement value = new JsonPrimitive(5);
+		snapshotStore.save(KEY, value);
+
+		assertEquals(value, snapshotStore.load(ACCOUNT_IDENTIFIER, KEY));
+		assertNull(createSnapshotStore().load(ACCOUNT_IDENTIFIER, KEY));
+	}
+
+	@Test
+	public void flushesWhenSwitchingAccounts() throws Exception
+	{
+		final JsonElement value = new JsonPrimitive("flushed");
+		snapshotStore.save(KEY, value);
+		snapshotStore.switchAccount("67890");
+
+		// the previous account is written in the background and can be loaded in the meantime
+		assertEquals(value, snapshotStore.load(ACCOUNT_IDENTIFIER, KEY));
+		assertNull(snapshotStore.load("67890", KEY));
+
+		snapshotStore.shutDown();
+		assertEquals(value, createSnapshotStore().load(ACCOUNT_IDENTIFIER, KEY));
+	}
+
+	@Test
+	public void rejectsAnUnknownMagicNumber() throws Exception
+	{
+		final byte[] bytes = writeSnapshot(new JsonPrimitive(1));
+		bytes[0] ^= 0xff;
+		overwriteSnapshot(bytes);
+
+		assertLoadFails("unknown format");
+	}
+
+	@Test
+	public void rejectsAnUnknownVersion() throws Exception
+	{
+		final byte[] bytes = writeSnapshot(new JsonPrimitive(1));
+		bytes[4] = 2;
+		overwriteSnapshot(bytes);
+
+		assertLoadFails("unknown format");
+	}
+
+	@Test
+	public void rejectsAnUnknownTag() throws Exception
+	{
+		final byte[] bytes = writeSnapshot(JsonNull.INSTANCE);
+		bytes[5] = 42;
+		overwriteSnapshot(bytes);
+
+		assertLoadFails("unknown tag");
+	}
+
+	@Test
+	public void rejectsATruncatedSnapshot() throws Exception
+	{
+		final byte[] bytes = writeSnapshot(new JsonParser().parse("{\"items\": [[995, 2147000000], [4151, 1]], \"name\": \"bank\"}"));
+
+		// every length short of the full snapshot is missing a part of it
+		for (int length = 0; length < bytes.length; length++)
+		{
+			overwriteSnapshot(Arrays.copyOf(bytes, length));
+			assertLoadFails("truncated");
+		}
+	}
+
+	private TwitchStateSnapshotStore createSnapshotStore()
+	{
+		return new TwitchStateSnapshotStore(null, temporaryFolder.getRoot());
+	}
+
+	private void assertRoundTrip(JsonElement value) throws Exception
+	{
+		snapshotStore.save(KEY, value);
+		snapshotStore.flush();
+
+		assertEquals(value, createSnapshotStore().load(ACCOUNT_IDENTIFIER, KEY));
+	}
+
+	private byte[] writeSnapshot(JsonElement value) throws Exception
+	{
+		snapshotStore.save(KEY, value);
+		snapshotStore.flush();
+
+		return Files.readAllBytes(getSnapshotFile().toPath());
+	}
+
+	private void overwriteSnapshot(byte[] bytes) throws Exception
+	{
+		Files.write(getSnapshotFile().toPath(), bytes);
+	}
+
+	private File getSnapshotFile()
+	{
+		return new File(new File(temporaryFolder.getRoot(), ACCOUNT_IDENTIFIER), KEY +".bin");
+	}
+
+	private void assertLoadFails(String expectedMessage)
+	{
+		try {
+			snapshotStore.load(ACCOUNT_IDENTIFIER, KEY);
+			fail("The snapshot should not be loaded");
+		} catch (Exception exception) {
+			assertTrue(exception.getMessage(), exception.getMessage().contains(expectedMessage));
+		}
+	}
+}
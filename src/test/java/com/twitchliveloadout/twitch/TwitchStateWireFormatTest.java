@@ -0,0 +1,194 @@
+package com.twitchliveloadout.twitch;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.Base64;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TwitchStateWireFormatTest
+{
+	@Test
+	public void roundTripsItems()
+	{
+		final JsonObject state = new JsonObject();
+		state.add(TwitchStateEntry.INVENTORY_ITEMS.getKey(), items(995, 2147000000, 4151, 1, -1, -1, 0, 1));
+		state.add(TwitchStateEntry.EQUIPMENT_ITEMS.getKey(), items(11832, 1));
+		state.add(TwitchStateEntry.LOOTING_BAG_ITEMS.getKey(), items(385, 27));
+
+		assertRoundTrip(state);
+	}
+
+	@Test
+	public void roundTripsNegativeAndExtremeValues()
+	{
+		final JsonObject state = new JsonObject();
+		state.add(TwitchStateEntry.INVENTORY_ITEMS.getKey(), items(
+			Integer.MAX_VALUE, Integer.MIN_VALUE,
+			Integer.MIN_VALUE, Integer.MAX_VALUE,
+			-2, -1,
+			0, 0
+		));
+		state.add(TwitchStateEntry.SKILL_EXPERIENCES.getKey(), values(0, 1, -1, 63, -64, 64, -65, Integer.MAX_VALUE, Integer.MIN_VALUE));
+		state.add(TwitchStateEntry.BOOSTED_SKILL_LEVELS.getKey(), values(99, 118, -5));
+
+		assertRoundTrip(state);
+	}
+
+	@Test
+	public void roundTripsBankTabs()
+	{
+		final JsonArray tabs = new JsonArray();
+		tabs.add(items(995, 1000000, -1, -1));
+		tabs.add(new JsonArray());
+		tabs.add(items(4151, 1));
+
+		final JsonObject state = new JsonObject();
+		state.add(TwitchStateEntry.BANK_TABBED_ITEMS.getKey(), tabs);
+
+		assertRoundTrip(state);
+	}
+
+	@Test
+	public void roundTripsEmptyArrays()
+	{
+		final JsonObject state = new JsonObject();
+		state.add(TwitchStateEntry.INVENTORY_ITEMS.getKey(), new JsonArray());
+		state.add(TwitchStateEntry.BANK_TABBED_ITEMS.getKey(), new JsonArray());
+		state.add(TwitchStateEntry.SKILL_EXPERIENCES.getKey(), new JsonArray());
+
+		final JsonObject encodedState = TwitchStateWireFormat.encode(state);
+
+		// the amount of values is all that is sent
+		assertPacked(encodedState, TwitchStateEntry.INVENTORY_ITEMS, 0);
+		assertPacked(encodedState, TwitchStateEntry.BANK_TABBED_ITEMS, 0);
+		assertPacked(encodedState, TwitchStateEntry.SKILL_EXPERIENCES, 0);
+		assertEquals(state, TwitchStateWireFormat.decode(encodedState));
+	}
+
+	@Test
+	public void keepsNullsAndUnpackedEntries()
+	{
+		final JsonObject state = new JsonObject();
+		state.add(TwitchStateEntry.INVENTORY_ITEMS.getKey(), JsonNull.INSTANCE);
+		state.add(TwitchStateEntry.BANK_TABBED_ITEMS.getKey(), JsonNull.INSTANCE);
+		state.addProperty(TwitchStateEntry.PLAYER_NAME.getKey(), "Zezima");
+		state.addProperty(TwitchStateEntry.WEIGHT.getKey(), -3);
+		state.add(TwitchStateEntry.FIGHT_STATISTICS.getKey(), new JsonParser().parse("{\"fights\":[]}"));
+		state.addProperty("unknownEntry", 5);
+
+		final JsonObject encodedState = TwitchStateWireFormat.encode(state);
+
+		assertTrue(encodedState.get(Integer.toString(TwitchStateEntry.INVENTORY_ITEMS.getWireId())).isJsonNull());
+		assertEquals(TwitchStateWireFormat.VERSION, encodedState.get(TwitchStateEntry.FORMAT_VERSION.getKey()).getAsInt());
+		assertEquals(5, encodedState.get("unknownEntry").getAsInt());
+		assertRoundTrip(state);
+	}
+
+	@Test
+	public void sendsUnexpectedStructuresAsRegularJson()
+	{
+		final JsonObject state = new JsonObject();
+		state.add(TwitchStateEntry.INVENTORY_ITEMS.getKey(), new JsonParser().parse("[[995]]"));
+
+		final JsonObject encodedState = TwitchStateWireFormat.encode(state);
+
+		assertTrue(encodedState.get(Integer.toString(TwitchStateEntry.INVENTORY_ITEMS.getWireId())).isJsonArray());
+		assertRoundTrip(state);
+	}
+
+	@Test
+	public void packsVarIntsAndZigzags()
+	{
+		final JsonObject state = new JsonObject();
+		state.add(TwitchStateEntry.SKILL_EXPERIENCES.getKey(), values(0, -1, 1, 64, Integer.MIN_VALUE));
+		state.add(TwitchStateEntry.INVENTORY_ITEMS.getKey(), items(-1, -1, 127, 1));
+
+		final JsonObject encodedState = TwitchStateWireFormat.encode(state);
+
+		assertPacked(encodedState, TwitchStateEntry.SKILL_EXPERIENCES,
+			5,
+			0,
+			1,
+			2,
+			0x80, 0x01,
+			0xff, 0xff, 0xff, 0xff, 0x0f
+		);
+		assertPacked(encodedState, TwitchStateEntry.INVENTORY_ITEMS,
+			2,
+			0,
+			0x80, 0x01, 2
+		);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTruncatedValues()
+	{
+		final JsonObject encodedState = new JsonObject();
+		encodedState.addProperty(Integer.toString(TwitchStateEntry.SKILL_EXPERIENCES.getWireId()), encode(2, 0x80));
+
+		TwitchStateWireFormat.decode(encodedState);
+	}
+
+	private static void assertRoundTrip(JsonObject state)
+	{
+		assertEquals(state, TwitchStateWireFormat.decode(TwitchStateWireFormat.encode(state)));
+	}
+
+	private static void assertPacked(JsonObject encodedState, TwitchStateEntry entry, int... expectedBytes)
+	{
+		final byte[] packed = Base64.getDecoder().decode(encodedState.get(Integer.toString(entry.getWireId())).getAsString());
+
+		assertArrayEquals(toBytes(expectedBytes), packed);
+	}
+
+	private static String encode(int... bytes)
+	{
+		return Base64.getEncoder().encodeToString(toBytes(bytes));
+	}
+
+	private static byte[] toBytes(int... values)
+	{
+		final byte[] bytes = new byte[values.length];
+
+		for (int index = 0; index < values.length; index++)
+		{
+			bytes[index] = (byte) values[index];
+		}
+
+		return bytes;
+	}
+
+	private static JsonArray items(int... idsAndQuantities)
+	{
+		final JsonArray items = new JsonArray();
+
+		for (int index = 0; index < idsAndQuantities.length; index += 2)
+		{
+			final JsonArray item = new JsonArray();
+			item.add(idsAndQuantities[index]);
+			item.add(idsAndQuantities[index + 1]);
+			items.add(item);
+		}
+
+		return items;
+	}
+
+	private static JsonArray values(int... values)
+	{
+		final JsonArray array = new JsonArray();
+
+		for (int value : values)
+		{
+			array.add(value);
+		}
+
+		return array;
+	}
+}